@@ -0,0 +1,288 @@
+package com.szadowsz.rotom4j.binary.io.reader;
+
+import com.szadowsz.rotom4j.binary.SeekableStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Utility class for reading raw data from a buffer, heap, direct or memory-mapped.
+ * <p>
+ * It has the same read methods as {@link HexInputStream}, but reads multibyte values in one access rather than a byte
+ * at a time, and positions can be set anywhere in the buffer, backwards included.
+ */
+public class HexBufferReader implements SeekableStream, AutoCloseable {
+
+    /** The data, little endian ordered; its position is the position of this reader. */
+    private final ByteBuffer buf;
+    /** The data in big endian order, sharing the position of buf through setPosition. */
+    private final ByteBuffer bigEndian;
+
+    /** The stack of saved positions for this reader. */
+    private long[] positionStack = new long[8];
+    private int positionCount;
+
+    /**
+     * Creates a new HexBufferReader over the remaining content of a buffer, without copying it.
+     * The 0-position of the reader is the current position of the buffer, whose own position is left untouched.
+     *
+     * @param data the buffer to read from
+     */
+    public HexBufferReader(ByteBuffer data) {
+        this.buf = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.bigEndian = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates a new HexBufferReader over an array, without copying it.
+     *
+     * @param data the bytes to read from
+     */
+    public HexBufferReader(byte[] data) {
+        this(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Creates a new HexBufferReader for a file, by memory-mapping it.
+     *
+     * @param path the file to read
+     * @return a reader over the whole file
+     * @throws IOException if the file could not be mapped
+     */
+    public static HexBufferReader map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new HexBufferReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Get the current position of this reader. */
+    public long getPosition() {
+        return buf.position();
+    }
+
+    /**
+     * Sets the position of this reader.
+     *
+     * @param newPos The desired position of the reader.
+     * @throws EOFException when the given position is outside of the data
+     */
+    public void setPosition(long newPos) throws EOFException {
+        if (newPos < 0 || newPos > buf.limit()) {
+            throw new EOFException("Position " + newPos + " is outside of the " + buf.limit() + " bytes of data");
+        }
+        buf.position((int) newPos);
+    }
+
+    /** Convenience method for {@link #setPosition(long)}. */
+    public void goTo(long pos) throws EOFException {
+        setPosition(pos);
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        setPosition(position);
+    }
+
+    @Override
+    public long getStreamSize() {
+        return buf.limit();
+    }
+
+    /** Returns the number of bytes left to read until the end of the data. */
+    public int available() {
+        return buf.remaining();
+    }
+
+    /**
+     * Get a read-only view of the data left to read, without copying it or moving this reader
+     *
+     * @return a little endian buffer from the current position to the end of the data
+     */
+    public ByteBuffer remaining() {
+        return buf.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Read the next byte. If the end of the data has been reached, -1 is returned */
+    public int read() {
+        return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+    }
+
+    /**
+     * Read bytes into an array, like {@link java.io.InputStream#read(byte[], int, int)}
+     *
+     * @return the number of bytes read, or -1 at the end of the data
+     */
+    public int read(byte[] dst, int off, int len) {
+        if (!buf.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, buf.remaining());
+        buf.get(dst, off, n);
+        return n;
+    }
+
+    /** Read exactly dst.length bytes into an array */
+    public void readFully(byte[] dst) throws EOFException {
+        require(dst.length);
+        buf.get(dst);
+    }
+
+    /** Read an array of bytes, each widened to an int, from this reader */
+    public int[] readBytes(int length) throws EOFException {
+        require(length);
+        int[] data = new int[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = buf.get() & 0xFF;
+        }
+        return data;
+    }
+
+    /** Read the rest of the data, each byte widened to an int */
+    public int[] readAllBytes() throws EOFException {
+        return readBytes(available());
+    }
+
+    /** Read a byte from this reader */
+    public int readU8() throws EOFException {
+        require(1);
+        return buf.get() & 0xFF;
+    }
+
+    /** Read a little endian s16 from this reader */
+    public short readS16() throws EOFException {
+        require(2);
+        return buf.getShort();
+    }
+
+    /** Read a big endian s16 from this reader */
+    public short readlS16() throws EOFException {
+        require(2);
+        short s = bigEndian.getShort(buf.position());
+        buf.position(buf.position() + 2);
+        return s;
+    }
+
+    /** Read a little endian u16 from this reader */
+    public int readU16() throws EOFException {
+        return readS16() & 0xFFFF;
+    }
+
+    /** Read a big endian u16 from this reader */
+    public int readlU16() throws EOFException {
+        return readlS16() & 0xFFFF;
+    }
+
+    /** Read a little endian s32 from this reader */
+    public int readS32() throws EOFException {
+        require(4);
+        return buf.getInt();
+    }
+
+    /** Read a big endian s32 from this reader */
+    public int readlS32() throws EOFException {
+        require(4);
+        int i = bigEndian.getInt(buf.position());
+        buf.position(buf.position() + 4);
+        return i;
+    }
+
+    /** Read a little endian u32 from this reader */
+    public long readU32() throws EOFException {
+        return readS32() & 0xFFFFFFFFL;
+    }
+
+    /** Read a big endian u32 from this reader */
+    public long readlU32() throws EOFException {
+        return readlS32() & 0xFFFFFFFFL;
+    }
+
+    /** Read a little endian s64 from this reader */
+    public long readS64() throws EOFException {
+        require(8);
+        return buf.getLong();
+    }
+
+    /** Read a big endian s64 from this reader */
+    public long readlS64() throws EOFException {
+        require(8);
+        long l = bigEndian.getLong(buf.position());
+        buf.position(buf.position() + 8);
+        return l;
+    }
+
+    /** Peek at the next u8 from this reader, or -1 at the end of the data */
+    public short peekU8() {
+        return (short) (buf.hasRemaining() ? buf.get(buf.position()) & 0xFF : -1);
+    }
+
+    /** Read a String of a certain length from this reader */
+    public String readString(int length) throws EOFException {
+        require(length);
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1); // one char per byte, as HexInputStream reads them
+    }
+
+    /**
+     * Reads a \0-terminated string from this reader
+     *
+     * @param totlength the total length of the string in the data. If -1, read until a \0 is read.
+     */
+    public String read0TerminatedString(int totlength) throws EOFException {
+        int start = buf.position();
+        int end = start;
+        int limit = (totlength == -1) ? buf.limit() : Math.min(buf.limit(), start + totlength);
+        while (end < limit && buf.get(end) != 0) {
+            end++;
+        }
+        if (totlength == -1 && end == buf.limit()) {
+            throw new EOFException("Unterminated string at " + start);
+        }
+        String s = readString(end - start);
+        setPosition((totlength == -1) ? end + 1 : start + totlength);
+        return s;
+    }
+
+    /** Skip n bytes, backwards if n is negative */
+    public void skip(long n) throws EOFException {
+        setPosition(getPosition() + n);
+    }
+
+    /** Reset this reader to its base position. */
+    public void reset() {
+        buf.position(0);
+    }
+
+    /** Save the current position on the local stack */
+    public void savePosition() {
+        if (positionCount == positionStack.length) {
+            positionStack = Arrays.copyOf(positionStack, positionCount * 2);
+        }
+        positionStack[positionCount++] = buf.position();
+    }
+
+    /** Pop the last saved position from the local stack and restore that position */
+    public void loadPosition() {
+        if (positionCount > 0) {
+            buf.position((int) positionStack[--positionCount]);
+        }
+    }
+
+    /** Nothing to release, a mapped buffer is unmapped once it is no longer reachable */
+    @Override
+    public void close() {
+    }
+
+    private void require(int length) throws EOFException {
+        if (length < 0 || buf.remaining() < length) {
+            throw new EOFException("Need " + length + " bytes at " + buf.position() + ", only " + buf.remaining() + " left");
+        }
+    }
+}
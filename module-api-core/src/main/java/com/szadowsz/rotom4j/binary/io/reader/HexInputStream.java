@@ -6,7 +6,10 @@ import java.util.Stack;
 /** 
  * Utility class for reading raw data from a file.
  * Does not extend InputStream, but does implement most of its methods.  
+ *
+ * @deprecated reads a byte at a time and can only seek forwards, use {@link HexBufferReader} instead
  */
+@Deprecated
 public class HexInputStream implements AutoCloseable{
 
     /** The InputStream this stream is based on. */
@@ -19,20 +19,36 @@
 
 package com.szadowsz.rotom4j.binary.io.reader;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 public class MemBuf {
 
     private byte[] buf;
+    private ByteBuffer view;
+    private final boolean readOnly;
     private int capacity;
     private int readPos;
     private int writePos;
     private MemBufReader reader;
+    private MemBufReader bigEndianReader;
     private MemBufWriter writer;
 
     private static final int INITIAL_SIZE = 1024*1024;
 
+    // single bounds-checked little endian accesses that work on heap, direct and mapped views alike
+    private static final VarHandle SHORT_LE = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT_BE = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     public static MemBuf create() {
         return new MemBuf();
     }
@@ -43,39 +59,135 @@ public class MemBuf {
         return buf;
     }
 
+    /**
+     * Wraps existing data in a read-only buffer, without copying it
+     *
+     * @param data the bytes to read from
+     * @return a read-only buffer over the data
+     */
+    public static MemBuf wrap(byte[] data) {
+        return new MemBuf(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Wraps part of existing data in a read-only buffer, without copying it
+     *
+     * @param data the bytes to read from
+     * @param offset the offset of the first byte to expose
+     * @param length the number of bytes to expose
+     * @return a read-only buffer over the range, with position 0 at offset
+     */
+    public static MemBuf wrap(byte[] data, int offset, int length) {
+        return new MemBuf(ByteBuffer.wrap(data, offset, length).slice());
+    }
+
+    /**
+     * Wraps the remaining content of a heap, direct or mapped buffer, without copying it
+     *
+     * @param data the buffer to read from, its position and limit are left untouched
+     * @return a read-only buffer over the remaining bytes
+     */
+    public static MemBuf wrap(ByteBuffer data) {
+        return new MemBuf(data.slice());
+    }
+
     public MemBuf() {
         this.buf = new byte[INITIAL_SIZE];
+        this.view = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+        this.readOnly = false;
         this.capacity = INITIAL_SIZE;
         reader = new MemBufReader();
         writer = new MemBufWriter();
     }
 
-    private MemBuf(MemBuf memBuf, int baseAddress)
-    {
-        this.buf = memBuf.buf;
-        this.capacity = memBuf.capacity;
-        this.readPos = baseAddress;
-        this.writePos = baseAddress;
+    private MemBuf(ByteBuffer data) {
+        this.view = data.order(ByteOrder.LITTLE_ENDIAN);
+        this.readOnly = true;
+        this.capacity = view.limit();
+        this.writePos = capacity;
         reader = new MemBufReader();
         writer = new MemBufWriter();
     }
 
+    /**
+     * Creates a read-only view of a sub-block of this buffer, sharing its content
+     *
+     * @param offset the offset of the sub-block
+     * @param length the size of the sub-block
+     * @return a read-only buffer whose position 0 is at offset
+     */
+    public MemBuf slice(int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > writePos) {
+            throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + length) + ") is outside of the " + writePos + " available bytes");
+        }
+        return new MemBuf(view.slice(offset, length));
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Exposes the written content as a read-only ByteBuffer, without copying it, e.g. for channel writes
+     *
+     * @return a read-only buffer over bytes [0, write position), with its own position and limit
+     */
+    public ByteBuffer asReadOnlyBuffer() {
+        return view.slice(0, writePos).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
     public MemBufReader reader() {
         return reader;
     }
 
+    /**
+     * Gets a reader that reads multibyte values in the given byte order. All readers of a buffer share its read position,
+     * so a file can switch to another reader part way through, e.g. once it has read its byte order mark.
+     *
+     * @param order the byte order of the values to read
+     * @return the reader for that byte order
+     */
+    public MemBufReader reader(ByteOrder order) {
+        if (order == ByteOrder.LITTLE_ENDIAN) {
+            return reader;
+        }
+        if (bigEndianReader == null) {
+            bigEndianReader = new BigEndianReader();
+        }
+        return bigEndianReader;
+    }
+
     public MemBufWriter writer() {
         return writer;
     }
 
     public class MemBufReader {
 
-        private void require(int space) {
+        void require(int space) {
             if (writePos - readPos < space) {
                 throw new IllegalStateException("Not enough room to read. need "+space+" bytes, have "+(writePos-readPos));
             }
         }
 
+        /**
+         * Gets the byte order multibyte values are read in
+         *
+         * @return the byte order of this reader
+         */
+        public ByteOrder order() {
+            return ByteOrder.LITTLE_ENDIAN;
+        }
+
+        /**
+         * Gets the reader of this buffer for another byte order, which continues from the same position
+         *
+         * @param order the byte order of the values to read
+         * @return the reader for that byte order
+         */
+        public MemBufReader withOrder(ByteOrder order) {
+            return reader(order);
+        }
+
         public int getPosition() {
             return readPos;
         }
@@ -90,21 +202,19 @@ public class MemBuf {
 
         public byte[] getBuffer() {
             byte[] ret = new byte[writePos-readPos];
-            System.arraycopy(buf, readPos, ret, 0, writePos-readPos);
+            view.get(readPos, ret, 0, ret.length);
             return ret;
         }
 
         public int readByte() {
             require(1);
-            return buf[readPos++];
+            return view.get(readPos++);
         }
 
         public int readInt() {
             require(4);
-            int ret = readUInt8();
-            ret |= (readUInt8() << 8);
-            ret |= (readUInt8() << 16);
-            ret |= (readUInt8() << 24);
+            int ret = (int) INT_LE.get(view, readPos);
+            readPos += 4;
             return ret;
         }
 
@@ -112,32 +222,105 @@ public class MemBuf {
             return ((long) readInt()) & 0xFFFFFFFFL;
         }
 
+        public long readLong() {
+            require(8);
+            long ret = (long) LONG_LE.get(view, readPos);
+            readPos += 8;
+            return ret;
+        }
+
         public short readShort() {
             require(2);
-            int ret = readUInt8() | (readUInt8() << 8);
-            return (short)ret;
+            short ret = (short) SHORT_LE.get(view, readPos);
+            readPos += 2;
+            return ret;
         }
 
         public int readUInt16() {
             return ((int) readShort()) & 0xffff;
         }
 
+        /**
+         * Reads consecutive unsigned 16 bit values, with a single bounds check
+         *
+         * @param count the number of values to read
+         * @return the values, widened to ints
+         */
+        public int[] readU16Array(int count) {
+            int[] ret = new int[count];
+            readU16Array(ret, 0, count);
+            return ret;
+        }
+
+        /**
+         * Reads consecutive unsigned 16 bit values into an existing array, with a single bounds check
+         *
+         * @param dst the array to read into
+         * @param offset the index of dst to read the first value into
+         * @param count the number of values to read
+         */
+        public void readU16Array(int[] dst, int offset, int count) {
+            require(Math.multiplyExact(count, 2));
+            int pos = readPos;
+            for (int i = offset; i < offset + count; i++, pos += 2) {
+                dst[i] = (short) SHORT_LE.get(view, pos) & 0xFFFF;
+            }
+            readPos = pos;
+        }
+
+        /**
+         * Reads consecutive unsigned 32 bit values, with a single bounds check
+         *
+         * @param count the number of values to read
+         * @return the values, widened to longs
+         */
+        public long[] readU32Array(int count) {
+            long[] ret = new long[count];
+            readU32Array(ret, 0, count);
+            return ret;
+        }
+
+        /**
+         * Reads consecutive unsigned 32 bit values into an existing array, with a single bounds check
+         *
+         * @param dst the array to read into
+         * @param offset the index of dst to read the first value into
+         * @param count the number of values to read
+         */
+        public void readU32Array(long[] dst, int offset, int count) {
+            require(Math.multiplyExact(count, 4));
+            int pos = readPos;
+            for (int i = offset; i < offset + count; i++, pos += 4) {
+                dst[i] = (int) INT_LE.get(view, pos) & 0xFFFFFFFFL;
+            }
+            readPos = pos;
+        }
+
         public short readUInt8()
         {
             return (short) ((short)readByte() & 0xff);
         }
 
+        /**
+         * Reads a 4 byte block magic, e.g. "RAHC" for the character data of an NCGR. The magic is stored as an int in
+         * the file's byte order, so it is returned in its little endian form whatever the order of the file.
+         *
+         * @return the magic, as it appears in little endian files
+         */
+        public String readMagic() {
+            int magic = readInt();
+            byte[] label = {(byte) magic, (byte) (magic >> 8), (byte) (magic >> 16), (byte) (magic >> 24)};
+            return new String(label, StandardCharsets.US_ASCII);
+        }
+
         public String readString(int size) {
-            require(size);
-            String ret = new String(Arrays.copyOfRange(buf, readPos, readPos + size), StandardCharsets.UTF_8);
-            readPos += size;
-            return ret;
+            return new String(readBytes(size), StandardCharsets.UTF_8);
         }
 
         public byte[] readBytes(int size) {
             require(size);
             byte[] ret = new byte[size];
-            System.arraycopy(buf, readPos, ret, 0, size);
+            view.get(readPos, ret, 0, size);
             readPos += size;
             return ret;
         }
@@ -149,9 +332,18 @@ public class MemBuf {
 
         public byte[] readTo(long addrs) {
             int size = (int) (addrs - readPos);
+            return readBytes(size);
+        }
+
+        /**
+         * Reads a read-only view of the next bytes, without copying them
+         *
+         * @param size the number of bytes to expose
+         * @return a read-only buffer whose position 0 is the current position
+         */
+        public MemBuf readSlice(int size) {
             require(size);
-            byte[] ret = new byte[size];
-            System.arraycopy(buf, readPos, ret, 0, size);
+            MemBuf ret = slice(readPos, size);
             readPos += size;
             return ret;
         }
@@ -174,12 +366,72 @@ public class MemBuf {
     }
 
 
+    /**
+     * Reader for big endian files. Its multibyte reads are overridden rather than checking the byte order on each read.
+     */
+    private class BigEndianReader extends MemBufReader {
+
+        @Override
+        public ByteOrder order() {
+            return ByteOrder.BIG_ENDIAN;
+        }
+
+        @Override
+        public int readInt() {
+            require(4);
+            int ret = (int) INT_BE.get(view, readPos);
+            readPos += 4;
+            return ret;
+        }
+
+        @Override
+        public long readLong() {
+            require(8);
+            long ret = (long) LONG_BE.get(view, readPos);
+            readPos += 8;
+            return ret;
+        }
+
+        @Override
+        public short readShort() {
+            require(2);
+            short ret = (short) SHORT_BE.get(view, readPos);
+            readPos += 2;
+            return ret;
+        }
+
+        @Override
+        public void readU16Array(int[] dst, int offset, int count) {
+            require(Math.multiplyExact(count, 2));
+            int pos = readPos;
+            for (int i = offset; i < offset + count; i++, pos += 2) {
+                dst[i] = (short) SHORT_BE.get(view, pos) & 0xFFFF;
+            }
+            readPos = pos;
+        }
+
+        @Override
+        public void readU32Array(long[] dst, int offset, int count) {
+            require(Math.multiplyExact(count, 4));
+            int pos = readPos;
+            for (int i = offset; i < offset + count; i++, pos += 4) {
+                dst[i] = (int) INT_BE.get(view, pos) & 0xFFFFFFFFL;
+            }
+            readPos = pos;
+        }
+    }
+
+
     public class MemBufWriter {
 
         private void require(int space) {
+            if (readOnly) {
+                throw new ReadOnlyBufferException();
+            }
             if (capacity - (writePos) < space) {
                 int newSize = Math.max((writePos)+space, capacity + INITIAL_SIZE);
                 buf = Arrays.copyOf(buf, newSize);
+                view = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
                 capacity = buf.length;
             }
         }
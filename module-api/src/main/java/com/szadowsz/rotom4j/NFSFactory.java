@@ -1,10 +1,13 @@
 package com.szadowsz.rotom4j;
 
+import com.szadowsz.rotom4j.binary.ByteArrayCompressibleData.DecodedData;
 import com.szadowsz.rotom4j.binary.array.ByteArrayEditableData;
 import com.szadowsz.rotom4j.compression.CompFormat;
+import com.szadowsz.rotom4j.compression.DecodeCache;
 import com.szadowsz.rotom4j.compression.JavaDSDecmp;
 import com.szadowsz.rotom4j.file.RotomFile;
 import com.szadowsz.rotom4j.file.RotomFormat;
+import com.szadowsz.rotom4j.exception.InvalidFileException;
 import com.szadowsz.rotom4j.exception.NitroException;
 import com.szadowsz.rotom4j.file.data.DataFile;
 import com.szadowsz.rotom4j.file.data.DataFormat;
@@ -17,16 +20,17 @@ import com.szadowsz.rotom4j.file.nitro.n2d.ncgr.NCGR;
 import com.szadowsz.rotom4j.file.nitro.n2d.nclr.NCLR;
 import com.szadowsz.rotom4j.file.nitro.n2d.nscr.NSCR;
 import com.szadowsz.rotom4j.file.nitro.n3d.nsbca.NSBCA;
-import com.szadowsz.rotom4j.binary.io.reader.Buffer;
-import com.szadowsz.rotom4j.binary.io.reader.HexInputStream;
 import com.szadowsz.rotom4j.file.nitro.n3d.nsbmd.NSBMD;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import static com.szadowsz.rotom4j.file.RotomFormat.NSBCA;
@@ -38,6 +42,9 @@ public class NFSFactory {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(NFSFactory.class);
 
+    private static final int MAGIC_SIZE = 4;
+    private static final int PROBE_SIZE = 1024; // enough for the compression header, a huffman tree and the magic
+
     /**
      * Attempt to read the File Format from an expected Nitro File header
      *
@@ -56,47 +63,121 @@ public class NFSFactory {
         return RotomFormat.BINARY; // We fall back to expect it in some sort of binary format
     }
 
+    /**
+     * Attempt to read the File Format from the header of possibly compressed data, only decompressing as much of it as
+     * the magic takes up
+     *
+     * @param compressedData the raw potentially compressed data, or its first bytes
+     * @param compFormat the detected compression format
+     * @param length the size of the data once decompressed
+     * @return Expected Format
+     * @throws IOException if the start of the data could not be decompressed
+     */
+    private static RotomFormat sniffFileFormat(byte[] compressedData, CompFormat compFormat, long length) throws IOException {
+        if (compFormat == CompFormat.NONE) {
+            return parseFileFormat(compressedData);
+        } else if (length <= MAGIC_SIZE) {
+            return RotomFormat.BINARY;
+        }
+        byte[] magic = new byte[MAGIC_SIZE + 1]; // parseFileFormat expects more data than just the magic
+        JavaDSDecmp.decompress(ByteBuffer.wrap(compressedData), magic);
+        return parseFileFormat(magic);
+    }
+
+    /**
+     * Get the size of possibly compressed data once decompressed, from its compression header
+     *
+     * @param compressedData the raw potentially compressed data, or its first bytes
+     * @param compFormat the detected compression format
+     * @param fileLength the size of the raw data
+     * @return the decompressed size
+     * @throws IOException if the compression header is incomplete
+     */
+    private static long getDataLength(byte[] compressedData, CompFormat compFormat, long fileLength) throws IOException {
+        return (compFormat == CompFormat.NONE) ? fileLength : JavaDSDecmp.getDecompressedLength(ByteBuffer.wrap(compressedData));
+    }
+
+    /**
+     * Detect the File Format of a file on disk without parsing it, by reading and decompressing as little of it as
+     * possible
+     *
+     * @param file java file representation to inspect
+     * @return Expected Format, BINARY if the file is not a recognised Nitro File
+     * @throws NitroException if the file could not be read
+     */
+    public static RotomFormat probe(File file) throws NitroException {
+        byte[] head;
+        long fileLength;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            fileLength = channel.size();
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(fileLength, PROBE_SIZE));
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    break; // the file got shorter since its size was read, probe what there is
+                }
+            }
+            head = Arrays.copyOf(buf.array(), buf.position());
+        } catch (IOException e) {
+            throw new InvalidFileException("Could not read " + file.getAbsolutePath(), e);
+        }
+        CompFormat compFormat = JavaDSDecmp.supports(head);
+        try {
+            return sniffFileFormat(head, compFormat, getDataLength(head, compFormat, fileLength));
+        } catch (IOException e) {
+            if (head.length < fileLength) { // e.g. a huffman tree that is larger than the probe
+                LOGGER.debug("Could not read the magic of {} from its first {} bytes", file.getName(), head.length);
+                try {
+                    byte[] data = Files.readAllBytes(file.toPath());
+                    return sniffFileFormat(data, compFormat, getDataLength(data, compFormat, fileLength));
+                } catch (IOException ignored) {
+                }
+            }
+            return RotomFormat.BINARY;
+        }
+    }
+
     /**
      * Convert raw data into a file obj
      *
      * @param magic the detected file format
-     * @param path the file path
-     * @param datalength the uncompressed? data length
+     * @param file the file the data was read from
+     * @param compData the compressed data
+     * @param datalength the uncompressed data length
      * @return parsed file obj
      * @throws NitroException if the conversion fails
      */
-    private static RotomFile convertFromFile(RotomFormat magic, String path, long datalength) throws NitroException {
+    private static RotomFile convertFromFile(RotomFormat magic, File file, ByteArrayEditableData compData, long datalength) throws NitroException {
         switch (magic) {
             case NSBCA -> {
-                return new NSBCA(path);
+                return new NSBCA(file, compData);
             }
             case NSBMD -> {
-                return new NSBMD(path);
+                return new NSBMD(file, compData);
             }
             case NCGR -> { // Nintendo Character Graphic Resource
-                return new NCGR(path);
+                return new NCGR(file, compData);
             }
             case NCLR -> { // Nintendo CoLor Resource
-                return new NCLR(path);
+                return new NCLR(file, compData);
             }
             case NSCR -> { // Nintendo SCreen Resource
-                return new NSCR(path);
+                return new NSCR(file, compData);
             }
             case NCER -> { // Nintendo CEll Resource
-                return new NCER(path);
+                return new NCER(file, compData);
             }
             case NANR -> { // Nintendo ANimation Resource
-                return new NANR(path);
+                return new NANR(file, compData);
             }
             case BINARY -> { // Some Sort Of Data File
                 if (datalength > 4) {
-                    return new DataFile(DataFormat.UNSPECIFIED,path);
+                    return new DataFile(DataFormat.UNSPECIFIED, file, compData);
                 } else {
-                    return new PlaceholderNFSFile(path, datalength);
+                    return new PlaceholderNFSFile(file, compData);
                 }
             }
             default -> {
-                return new UnspecifiedNFSFile(magic, path);
+                return new UnspecifiedNFSFile(magic, file, compData);
             }
         }
     }
@@ -155,28 +236,6 @@ public class NFSFactory {
      * Convert raw data into a file obj
      *
      * @param magic the detected file format
-     * @param path the file path, if not from a narc
-     * @param name the file name to use
-     * @param comp the detected compression format
-     * @param compData the compressed data
-     * @param data the uncompressed data
-     * @return parsed file obj
-     * @throws NitroException if the conversion fails
-     */
-    private static RotomFile convert(RotomFormat magic, String path, String name, CompFormat comp, ByteArrayEditableData compData, ByteArrayEditableData data) throws NitroException {
-        if (path != null) {
-           return convertFromFile(magic, path, ((data != null)?data.getDataSize():0L));
-        } else {
-            return convertFromBinary(magic, name, comp, compData, data);
-        }
-    }
-
-
-    /**
-     * Convert raw data into a file obj
-     *
-     * @param magic the detected file format
-     * @param path the file path, if not from a narc
      * @param name the file name to use
      * @param comp the detected compression format
      * @param compData the raw compressed data
@@ -184,8 +243,10 @@ public class NFSFactory {
      * @return parsed file obj
      * @throws NitroException if the conversion fails
      */
-    private static RotomFile convert(RotomFormat magic, String path, String name, CompFormat comp,  byte[] compData, byte[] data) throws NitroException, NitroException {
-        return convert(magic,path,name,comp,new ByteArrayEditableData(compData),new ByteArrayEditableData(data));
+    private static RotomFile convert(RotomFormat magic, String name, CompFormat comp,  byte[] compData, byte[] data) throws NitroException {
+        // hand over data that has already been decompressed, rather than have the file decompress it again
+        ByteArrayEditableData compressed = (data != compData) ? new DecodedData(compData, data) : new ByteArrayEditableData(compData);
+        return convertFromBinary(magic,name,comp,compressed,new ByteArrayEditableData(data));
     }
 
     /**
@@ -200,27 +261,29 @@ public class NFSFactory {
      */
     public static RotomFile fromNarc(String narcName, int index, long fileCount, byte[] compressedData) throws NitroException {
         String fileNameNoExt = narcName + "_" + String.format("%0" + String.valueOf(fileCount).length() + "d", index);
-        CompFormat compFormat = CompFormat.NONE;
-        int[] dataInt;
-        byte[] data = null;
-        try (HexInputStream input = new HexInputStream(new ByteArrayInputStream(compressedData))) {
-            compFormat = JavaDSDecmp.supports(input);
-            if (compFormat != CompFormat.NONE) {
-                dataInt = JavaDSDecmp.decompress(input);
-            } else {
-                dataInt = input.readAllBytes();
-            }
-            data = new byte[dataInt.length];
-            for (int i = 0; i < dataInt.length; i++) {
-                data[i] = (byte) dataInt[i];
-            }
-        } catch (NegativeArraySizeException | ArrayIndexOutOfBoundsException | IOException e) {
+        return fromBinary(fileNameNoExt, compressedData);
+    }
+
+    /**
+     * Extract a file obj from data held in memory, e.g. a file inside a ROM or archive
+     *
+     * @param fileNameNoExt the name to give the file obj, without its extension
+     * @param compressedData the raw potentially compressed data
+     * @return parsed file obj
+     * @throws NitroException if file obj is unable to be parsed
+     */
+    public static RotomFile fromBinary(String fileNameNoExt, byte[] compressedData) throws NitroException {
+        CompFormat compFormat = JavaDSDecmp.supports(compressedData);
+        byte[] data;
+        try {
+            data = (compFormat != CompFormat.NONE) ? DecodeCache.decompress(compressedData) : compressedData;
+        } catch (NegativeArraySizeException | IndexOutOfBoundsException | IOException e) {
             LOGGER.warn("Failed to decompress " + fileNameNoExt, e);
             compFormat = CompFormat.UNKNOWN;
             data = compressedData;
         }
         RotomFormat magic = parseFileFormat(data);
-        return convert(magic, null, fileNameNoExt, compFormat, compressedData, data);
+        return convert(magic, fileNameNoExt, compFormat, compressedData, data);
 
     }
 
@@ -232,28 +295,24 @@ public class NFSFactory {
      * @throws NitroException if file obj is unable to be parsed
      */
     public static RotomFile fromFile(File file) throws NitroException {
-        String path = file.getAbsolutePath();
         String fileName = file.getName();
-        CompFormat compFormat = CompFormat.NONE;
-        // TODO currently after some refactoring, we now read the data twice and we should avoid that
-        int[] dataInt;
-        byte[] compressedData = Buffer.readFile(path);
-        byte[] data = null;
-        try (HexInputStream input = new HexInputStream(new ByteArrayInputStream(compressedData))) {
-            compFormat = JavaDSDecmp.supports(input);
-            if (compFormat != CompFormat.NONE) {
-                dataInt = JavaDSDecmp.decompress(input);
-            } else {
-                dataInt = input.readAllBytes();
-            }
-            data = new byte[dataInt.length];
-            for (int i = 0; i < dataInt.length; i++) {
-                data[i] = (byte) dataInt[i];
-            }
+        byte[] compressedData;
+        try {
+            compressedData = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new InvalidFileException("Could not Load Nitro File " + file.getAbsolutePath(), e);
+        }
+        CompFormat compFormat = JavaDSDecmp.supports(compressedData);
+        RotomFormat magic;
+        long dataLength;
+        try {
+            dataLength = getDataLength(compressedData, compFormat, compressedData.length);
+            magic = sniffFileFormat(compressedData, compFormat, dataLength);
         } catch (IOException e) {
-            LOGGER.error("Failed to detect Compression method for " + fileName, e);
+            LOGGER.error("Failed to detect Compression method for {}", fileName, e);
+            magic = RotomFormat.BINARY;
+            dataLength = 0L;
         }
-        RotomFormat magic = parseFileFormat(data); // TODO shorter decompression to just read the magic
-        return convert(magic, path, fileName, compFormat, compressedData, data);
+        return convertFromFile(magic, file, new ByteArrayEditableData(compressedData), dataLength);
     }
 }
\ No newline at end of file
@@ -1,14 +1,16 @@
 package com.szadowsz.rotom4j.binary;
 
 import com.szadowsz.rotom4j.binary.array.ByteArrayEditableData;
-import com.szadowsz.rotom4j.binary.io.reader.HexInputStream;
 import com.szadowsz.rotom4j.compression.CompFormat;
+import com.szadowsz.rotom4j.compression.DecodeCache;
 import com.szadowsz.rotom4j.compression.JavaDSDecmp;
 import com.szadowsz.rotom4j.exception.InvalidFileException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  *
@@ -18,57 +20,56 @@ public class ByteArrayCompressibleData extends ByteArrayEditableData {
 
     protected final ByteArrayEditableData compressedData; // compressed data, whether or not the data was originally compressed
     protected final CompFormat compression;
+    private volatile ByteBuffer mapping; // content read in place, until it is first copied into data and compressedData
 
     protected String filePath;
     protected String fileFullName;
 
     protected static byte[] uncompress(ByteArrayEditableData data) {
-        int[] dataInt;
-        try (HexInputStream input = new HexInputStream(new ByteArrayInputStream(data.getData()))) {
-            CompFormat compFormat = JavaDSDecmp.supports(input);
-            if (compFormat != CompFormat.NONE) {
-                dataInt = JavaDSDecmp.decompress(input);
-            } else {
-                dataInt = input.readAllBytes();
-            }
-            byte[] uncompressedData = new byte[dataInt.length];
-            for (int i = 0; i < dataInt.length; i++) {
-                uncompressedData[i] = (byte) dataInt[i];
-            }
-            return uncompressedData;
-        } catch (IOException e) {
-            LOGGER.warn("Error decompressing data", e);
-            return new byte[0];
-        }
+        return uncompress(detectCompressionUsed(data), data);
     }
 
     protected static byte[] uncompress(CompFormat compFormat, ByteArrayEditableData data) {
-        int[] dataInt;
-        try (HexInputStream input = new HexInputStream(new ByteArrayInputStream(data.getData()))) {
-           if (compFormat != CompFormat.NONE && compFormat != CompFormat.UNKNOWN) {
-                dataInt = JavaDSDecmp.decompress(input);
+        if (data instanceof DecodedData decoded) {
+            return decoded.takeDecoded();
+        }
+        byte[] bytes = data.getData();
+        try {
+            if (compFormat != CompFormat.NONE && compFormat != CompFormat.UNKNOWN) {
+                return DecodeCache.decompress(bytes);
             } else {
-                dataInt = input.readAllBytes();
-            }
-            byte[] uncompressedData = new byte[dataInt.length];
-            for (int i = 0; i < dataInt.length; i++) {
-                uncompressedData[i] = (byte) dataInt[i];
+                return Arrays.copyOf(bytes, bytes.length);
             }
-            return uncompressedData;
         } catch (IOException e) {
             LOGGER.warn("Error decompressing data", e);
             return new byte[0];
         }
     }
 
-    protected static CompFormat detectCompressionUsed(ByteArrayEditableData data) {
-        CompFormat compFormat = CompFormat.NONE;
-        try (HexInputStream input = new HexInputStream(new ByteArrayInputStream(data.getData()))) {
-            compFormat = JavaDSDecmp.supports(input);
-        } catch (IOException e) {
-            LOGGER.error("Error checking decompression format", e);
+    /**
+     * Compressed data passed along with its already decompressed content, so that it is not decompressed again
+     */
+    public static class DecodedData extends ByteArrayEditableData {
+        private byte[] decoded;
+
+        /**
+         * @param data the compressed data
+         * @param decoded the decompressed data, which is taken over by the file it is passed to
+         */
+        public DecodedData(byte[] data, byte[] decoded) {
+            super(data);
+            this.decoded = decoded;
         }
-        return compFormat;
+
+        private synchronized byte[] takeDecoded() {
+            byte[] taken = decoded;
+            decoded = null; // only needed once, so it is not kept alive next to the file's data
+            return (taken != null) ? taken : uncompress(detectCompressionUsed(this), new ByteArrayEditableData(getData()));
+        }
+    }
+
+    protected static CompFormat detectCompressionUsed(ByteArrayEditableData data) {
+        return JavaDSDecmp.supports(data.getData());
     }
 
 
@@ -99,7 +100,17 @@ public class ByteArrayCompressibleData extends ByteArrayEditableData {
     }
 
     public ByteArrayCompressibleData(File file) throws InvalidFileException {
-        this(readFile(file));
+        this(file, readFile(file));
+    }
+
+    /**
+     * Constructor for file content that has already been read into memory, so the file is not read again
+     *
+     * @param file the file the content was read from
+     * @param data the possibly compressed content of the file
+     */
+    public ByteArrayCompressibleData(File file, ByteArrayEditableData data) {
+        this(data);
         // TODO null handling
         this.filePath = file.getAbsolutePath();
         this.fileFullName = file.getName();
@@ -110,18 +121,248 @@ public class ByteArrayCompressibleData extends ByteArrayEditableData {
         // TODO null handling
     }
 
+    /**
+     * Constructor for file content that is read in place, e.g. from a memory-mapped file, rather than loaded into memory.
+     * The content is copied into memory the first time any method of this class reads or changes it.
+     *
+     * @param file the file the content is read from
+     * @param mapping the possibly compressed content of the file
+     * @param compression the compression used by the file
+     */
+    protected ByteArrayCompressibleData(File file, ByteBuffer mapping, CompFormat compression) {
+        super(new byte[0]);
+        this.compressedData = new ByteArrayEditableData(new byte[0]);
+        this.compression = compression;
+        this.mapping = mapping;
+        this.filePath = file.getAbsolutePath();
+        this.fileFullName = file.getName();
+    }
+
+    /**
+     * Copy content that is read in place into memory, if it has not been already
+     */
+    protected void loadMapping() {
+        if (mapping != null) {
+            synchronized (this) {
+                ByteBuffer content = mapping;
+                if (content != null) {
+                    byte[] bytes = new byte[content.limit()];
+                    content.get(0, bytes);
+                    compressedData.insert(0, bytes);
+                    data = uncompress(compression, compressedData);
+                    mapping = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public byte[] getData() {
+        loadMapping();
+        return super.getData();
+    }
+
+    @Override
+    public long getDataSize() {
+        loadMapping();
+        return super.getDataSize();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        loadMapping();
+        return super.isEmpty();
+    }
+
+    @Override
+    public byte getByte(long position) {
+        loadMapping();
+        return super.getByte(position);
+    }
+
+    @Override
+    public void copyToArray(long startFrom, byte[] target, int offset, int length) {
+        loadMapping();
+        super.copyToArray(startFrom, target, offset, length);
+    }
+
+    @Override
+    public void saveToStream(OutputStream outputStream) throws IOException {
+        loadMapping();
+        super.saveToStream(outputStream);
+    }
+
+    @Override
+    public InputStream getDataInputStream() {
+        loadMapping();
+        return super.getDataInputStream();
+    }
+
+    @Override
+    public OutputStream getDataOutputStream() {
+        loadMapping();
+        return super.getDataOutputStream();
+    }
+
+    @Override
+    public BinaryData copy() {
+        loadMapping();
+        return super.copy();
+    }
+
+    @Override
+    public BinaryData copy(long startFrom, long length) {
+        loadMapping();
+        return super.copy(startFrom, length);
+    }
+
+    @Override
+    public void setByte(long position, byte value) {
+        loadMapping();
+        super.setByte(position, value);
+    }
+
+    @Override
+    public void setDataSize(long size) {
+        loadMapping();
+        super.setDataSize(size);
+    }
+
+    @Override
+    public void insertUninitialized(long startFrom, long length) {
+        loadMapping();
+        super.insertUninitialized(startFrom, length);
+    }
+
+    @Override
+    public void insert(long startFrom, long length) {
+        loadMapping();
+        super.insert(startFrom, length);
+    }
+
+    @Override
+    public void insert(long startFrom, byte[] insertedData) {
+        loadMapping();
+        super.insert(startFrom, insertedData);
+    }
+
+    @Override
+    public void insert(long startFrom, byte[] insertedData, int insertedDataOffset, int length) {
+        loadMapping();
+        super.insert(startFrom, insertedData, insertedDataOffset, length);
+    }
+
+    @Override
+    public void insert(long startFrom, BinaryData insertedData) {
+        loadMapping();
+        super.insert(startFrom, insertedData);
+    }
+
+    @Override
+    public void insert(long startFrom, BinaryData insertedData, long insertedDataOffset, long insertedDataLength) {
+        loadMapping();
+        super.insert(startFrom, insertedData, insertedDataOffset, insertedDataLength);
+    }
+
+    @Override
+    public long insert(long startFrom, InputStream inputStream, long dataSize) throws IOException {
+        loadMapping();
+        return super.insert(startFrom, inputStream, dataSize);
+    }
+
+    @Override
+    public void fillData(long startFrom, long length) {
+        loadMapping();
+        super.fillData(startFrom, length);
+    }
+
+    @Override
+    public void fillData(long startFrom, long length, byte fill) {
+        loadMapping();
+        super.fillData(startFrom, length, fill);
+    }
+
+    @Override
+    public void replace(long targetPosition, BinaryData sourceData) {
+        loadMapping();
+        super.replace(targetPosition, sourceData);
+    }
+
+    @Override
+    public void replace(long targetPosition, BinaryData replacingData, long startFrom, long replacingLength) {
+        loadMapping();
+        super.replace(targetPosition, replacingData, startFrom, replacingLength);
+    }
+
+    @Override
+    public void replace(long targetPosition, byte[] replacingData) {
+        loadMapping();
+        super.replace(targetPosition, replacingData);
+    }
+
+    @Override
+    public void replace(long targetPosition, byte[] replacingData, int replacingDataOffset, int length) {
+        loadMapping();
+        super.replace(targetPosition, replacingData, replacingDataOffset, length);
+    }
+
+    @Override
+    public void remove(long startFrom, long length) {
+        loadMapping();
+        super.remove(startFrom, length);
+    }
+
+    @Override
+    public void clear() {
+        loadMapping();
+        super.clear();
+    }
+
+    @Override
+    public void loadFromStream(InputStream inputStream) throws IOException {
+        loadMapping();
+        super.loadFromStream(inputStream);
+    }
+
+    @Override
+    public boolean compareTo(BinaryData other) {
+        loadMapping();
+        return super.compareTo(other);
+    }
+
+    @Override
+    public int hashCode() {
+        loadMapping();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        loadMapping();
+        if (obj instanceof ByteArrayCompressibleData other) {
+            other.loadMapping();
+        }
+        return super.equals(obj);
+    }
+
     public ByteArrayCompressibleData() throws InvalidFileException {
         this((File) null); // TODO bit of a trap here
     }
 
     public byte[] getCompressedBytes() {
+        loadMapping();
         return compressedData.getData();
     }
 
     public ByteArrayEditableData getCompressedData() { // TODO inconsistent naming/return type
+        loadMapping();
         return compressedData;
     }
 
+    public CompFormat getCompression() {
+        return compression;
+    }
+
     public String getFileName() {
         return fileFullName;
     }
@@ -19,6 +19,8 @@
 
 package com.szadowsz.rotom4j.binary;
 
+import java.nio.ByteOrder;
+
 public class Endianness
 {
     public enum EndiannessType
@@ -32,6 +34,25 @@ public class Endianness
         {
             symbol = s;
         }
+
+        /**
+         * Gets the equivalent NIO byte order
+         * @return a <code>ByteOrder</code>
+         */
+        public ByteOrder toByteOrder()
+        {
+            return (this == BIG) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        }
+
+        /**
+         * Gets the endianness equivalent to an NIO byte order
+         * @param order a <code>ByteOrder</code>
+         * @return an <code>EndiannessType</code>
+         */
+        public static EndiannessType valueOf(ByteOrder order)
+        {
+            return (order == ByteOrder.BIG_ENDIAN) ? BIG : LITTLE;
+        }
     }
 
     /**
@@ -7,6 +7,7 @@ public enum CompFormat {
 
     NONE,
     LZ77_10,
+    LZ77_11,
     HUFFMAN,
     RLE, UNKNOWN;
 }
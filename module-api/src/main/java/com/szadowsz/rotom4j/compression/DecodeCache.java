@@ -0,0 +1,314 @@
+package com.szadowsz.rotom4j.compression;
+
+import com.szadowsz.rotom4j.utils.XXHash64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A cache of decompressed data, keyed by the 64 bit xxHash and length of the compressed bytes.
+ * <p>
+ * Archives often hold many identical compressed files, such as blank palettes or placeholder sprites, and the same
+ * files are decompressed again each time an archive is opened. Decompressing through this cache returns a copy of the
+ * data decoded the first time instead. The memory tier is a least recently used map bounded both by its number of
+ * entries and their total size. An optional disk tier keeps decoded data between runs, bounded by its total size and
+ * evicting the files least recently used. Each disk file records the length and CRC32C of the compressed data it was
+ * decoded from, which are checked before it is used, so a hash collision or a stale file is decoded again instead.
+ */
+public final class DecodeCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DecodeCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+
+    private static final int DISK_MAGIC = 0x31434452; // "RDC1"
+    private static final int DISK_HEADER_SIZE = 16; // magic, compressed length, CRC32C of the compressed data, decoded length
+    private static final String DISK_SUFFIX = ".bin";
+
+    private record Key(long hash, int length) {
+    }
+
+    private static final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static long cachedBytes;
+    private static long hits;
+    private static long misses;
+    private static Path diskDirectory;
+    private static long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+    private static long diskBytes = -1; // total size of the disk tier, -1 until it has been measured
+
+    private DecodeCache() {
+    }
+
+    /**
+     * Decompress data, or return a copy of it decompressed earlier
+     *
+     * @param data the compressed data
+     * @return the decompressed data, which the caller is free to modify
+     * @throws IOException if the data could not be decompressed
+     */
+    public static byte[] decompress(byte[] data) throws IOException {
+        Key key = new Key(XXHash64.hash(data), data.length);
+        byte[] decoded = get(key);
+        if (decoded != null) {
+            return decoded.clone();
+        }
+
+        Path disk = getDiskFile(key);
+        int crc = (disk != null) ? crc32c(data) : 0;
+        decoded = (disk != null) ? readDisk(disk, data.length, crc) : null;
+        if (decoded == null) {
+            decoded = JavaDSDecmp.decompress(data);
+            if (disk != null) {
+                writeDisk(disk, data.length, crc, decoded);
+            }
+        }
+        put(key, decoded);
+        return decoded.clone();
+    }
+
+    private static synchronized byte[] get(Key key) {
+        byte[] decoded = entries.get(key);
+        if (decoded != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return decoded;
+    }
+
+    private static synchronized void put(Key key, byte[] decoded) {
+        if (decoded.length > maxBytes || maxEntries == 0) {
+            return;
+        }
+        byte[] previous = entries.put(key, decoded);
+        cachedBytes += decoded.length - ((previous != null) ? previous.length : 0);
+        evict();
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<Key, byte[]>> it = entries.entrySet().iterator(); // iterates from least recently used
+        while (it.hasNext() && (entries.size() > maxEntries || cachedBytes > maxBytes)) {
+            cachedBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * Set the bounds of the memory tier, evicting the least recently used entries if it no longer fits
+     *
+     * @param entries the maximum number of decoded files to keep, 0 disables the memory tier
+     * @param bytes the maximum total size of the decoded files to keep
+     */
+    public static synchronized void setLimits(int entries, long bytes) {
+        maxEntries = entries;
+        maxBytes = bytes;
+        evict();
+    }
+
+    /**
+     * Set the directory of the disk tier, or null to disable it. The disk tier is disabled by default.
+     *
+     * @param directory the directory to keep decoded files in, created if needed
+     */
+    public static synchronized void setDiskDirectory(Path directory) {
+        diskDirectory = directory;
+        diskBytes = -1;
+    }
+
+    /**
+     * Set the bound of the disk tier, evicting the least recently used files if it no longer fits
+     *
+     * @param bytes the maximum total size of the files in the disk tier
+     */
+    public static synchronized void setDiskLimit(long bytes) {
+        maxDiskBytes = bytes;
+        if (diskDirectory != null && diskBytes > maxDiskBytes) {
+            evictDisk(diskDirectory);
+        }
+    }
+
+    public static synchronized Path getDiskDirectory() {
+        return diskDirectory;
+    }
+
+    /**
+     * Get the directory the disk tier uses by default, under the user's cache directory
+     *
+     * @return the default directory of the disk tier
+     */
+    public static Path getDefaultDiskDirectory() {
+        String base = System.getenv("LOCALAPPDATA"); // windows
+        if (base == null) {
+            base = System.getenv("XDG_CACHE_HOME");
+        }
+        Path root = (base != null) ? Paths.get(base) : Paths.get(System.getProperty("user.home"), ".cache");
+        return root.resolve("rotom4j").resolve("decoded");
+    }
+
+    /**
+     * Empty the memory tier, the disk tier is left as is
+     */
+    public static synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    public static synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public static synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    private static synchronized Path getDiskFile(Key key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        return diskDirectory.resolve(String.format("%016x_%08x" + DISK_SUFFIX, key.hash(), key.length()));
+    }
+
+    private static int crc32c(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Read a disk file, if it exists and was decoded from the same compressed data
+     *
+     * @return the decoded data, or null if it has to be decoded again
+     */
+    private static byte[] readDisk(Path file, int length, int crc) {
+        byte[] bytes;
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            LOGGER.debug("Could not read decode cache file {}", file, e);
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.length < DISK_HEADER_SIZE || header.getInt(0) != DISK_MAGIC || header.getInt(4) != length
+                || header.getInt(8) != crc || header.getInt(12) != bytes.length - DISK_HEADER_SIZE) {
+            LOGGER.debug("Decode cache file {} does not match the data being decoded", file);
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis())); // marks it as recently used
+        } catch (IOException e) {
+            LOGGER.debug("Could not touch decode cache file {}", file, e);
+        }
+        return Arrays.copyOfRange(bytes, DISK_HEADER_SIZE, bytes.length);
+    }
+
+    private static void writeDisk(Path file, int length, int crc, byte[] decoded) {
+        if (DISK_HEADER_SIZE + (long) decoded.length > getDiskLimit()) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(DISK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(DISK_MAGIC).putInt(length).putInt(crc).putInt(decoded.length);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    out.write(header.array());
+                    out.write(decoded);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            addDiskBytes(file.getParent(), DISK_HEADER_SIZE + decoded.length);
+        } catch (IOException e) {
+            LOGGER.debug("Could not write decode cache file {}", file, e);
+        }
+    }
+
+    private static synchronized long getDiskLimit() {
+        return maxDiskBytes;
+    }
+
+    private static synchronized void addDiskBytes(Path directory, long bytes) {
+        if (!directory.equals(diskDirectory)) {
+            return;
+        }
+        if (diskBytes < 0) {
+            evictDisk(directory); // measures the directory, including the file just written
+        } else {
+            diskBytes += bytes;
+            if (diskBytes > maxDiskBytes) {
+                evictDisk(directory);
+            }
+        }
+    }
+
+    /**
+     * Measure the disk tier and delete its least recently used files until it fits its bound
+     */
+    private static void evictDisk(Path directory) {
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + DISK_SUFFIX)) {
+            for (Path file : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                files.add(file);
+                attributes.put(file, attrs);
+                total += attrs.size();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not measure decode cache directory {}", directory, e);
+            return;
+        }
+        if (total > maxDiskBytes) {
+            files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+            for (Path file : files) {
+                if (total <= maxDiskBytes) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(file);
+                    total -= attributes.get(file).size();
+                } catch (IOException e) {
+                    LOGGER.debug("Could not evict decode cache file {}", file, e);
+                }
+            }
+        }
+        diskBytes = total;
+    }
+}
@@ -0,0 +1,188 @@
+package com.szadowsz.rotom4j.compression;
+
+import com.szadowsz.rotom4j.exception.InvalidFileException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Table-driven decoder for the 0x24 (4 bit) and 0x28 (8 bit) Huffman streams.
+ * <p>
+ * Tree Table (list of 8bit nodes, starting with the root node)
+ *      Root Node and Non-Data-Child Nodes are:
+ *          Bit0-5   Offset to next child node,
+ *                   Next child node0 is at (CurrentAddr AND NOT 1)+Offset*2+2
+ *                   Next child node1 is at (CurrentAddr AND NOT 1)+Offset*2+2+1
+ *          Bit6     Node1 End Flag (1=Next child node is data)
+ *          Bit7     Node0 End Flag (1=Next child node is data)
+ *      Data nodes are (when End Flag was set in parent node):
+ *          Bit0-7   Data (upper bits should be zero if Data Size is less than 8)
+ * Compressed Bitstream (stored in units of 32bits)
+ *      Bit0-31  Node Bits (Bit31=First Bit)  (0=Node0, 1=Node1)
+ * <p>
+ * The tree is flattened into a child array, from which a lookup table is built that resolves up to 8 bits of code at
+ * once. Longer codes fall back to walking the child array a bit at a time.
+ */
+class HuffDecoder {
+
+    private static final int LOOKUP_BITS = 8;
+    private static final int LEAF = 1 << 16;
+    private static final int ROOT = 1; // addresses are relative to the tree size byte, the root node follows it
+
+    // per internal node address, the two children: either LEAF | data or the address of the next internal node
+    private final int[] children;
+    // per LOOKUP_BITS code prefix: LEAF | (code length << 8) | data, or the internal node reached after the prefix
+    private final int[] lookup;
+    private final int dataSize;
+
+    private long bitBuffer; // unread bits, first bit at bit 63
+    private int bitCount;
+
+    private HuffDecoder(byte[] tree, int dataSize) throws InvalidFileException {
+        this.dataSize = dataSize;
+        this.children = new int[tree.length * 2];
+        this.lookup = new int[1 << LOOKUP_BITS];
+        flatten(tree, ROOT);
+        for (int prefix = 0; prefix < lookup.length; prefix++) {
+            int node = ROOT;
+            int entry = -1;
+            for (int bit = 1; bit <= LOOKUP_BITS; bit++) {
+                int child = children[node * 2 + ((prefix >> (LOOKUP_BITS - bit)) & 1)];
+                if ((child & LEAF) != 0) {
+                    entry = child | (bit << 8);
+                    break;
+                }
+                node = child;
+            }
+            lookup[prefix] = (entry >= 0) ? entry : node;
+        }
+    }
+
+    private void flatten(byte[] tree, int addr) throws InvalidFileException {
+        if (children[addr * 2] != 0) {
+            return; // already reached through another parent, children always come after their parent
+        }
+        int node = tree[addr] & 0xFF;
+        int child0 = (addr & ~1) + (node & 0x3F) * 2 + 2;
+        if (child0 + 1 >= tree.length) {
+            throw new InvalidFileException("Huffman tree node at " + addr + " points outside of the tree");
+        }
+        children[addr * 2] = childOf(tree, child0, (node & 0x80) != 0);
+        children[addr * 2 + 1] = childOf(tree, child0 + 1, (node & 0x40) != 0);
+    }
+
+    private int childOf(byte[] tree, int addr, boolean isData) throws InvalidFileException {
+        if (isData) {
+            int data = tree[addr] & 0xFF;
+            if (data >= (1 << dataSize)) {
+                throw new InvalidFileException("Huffman data " + Integer.toHexString(data) + " is wider than " + dataSize + " bits");
+            }
+            return LEAF | data;
+        }
+        flatten(tree, addr);
+        return addr;
+    }
+
+    /**
+     * Decode a Huffman stream
+     *
+     * @param input the stream, positioned after the compression header at the tree size byte, which is consumed
+     * @param output the array to decode into
+     * @param length the number of bytes to decode
+     * @param dataSize the symbol size, 4 or 8 bits
+     * @return the number of bytes written
+     * @throws InvalidFileException if the tree is malformed or the bitstream ends early
+     */
+    static int decode(ByteBuffer input, byte[] output, int length, int dataSize) throws InvalidFileException {
+        if (dataSize != 8 && dataSize != 4) {
+            throw new InvalidFileException("Unhandled dataSize " + Integer.toHexString(dataSize));
+        }
+        ByteBuffer stream = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (!stream.hasRemaining()) {
+            throw new InvalidFileException("Incomplete Huffman tree");
+        }
+        int treeLength = ((stream.get(0) & 0xFF) + 1) * 2;
+        if (stream.remaining() < treeLength) {
+            throw new InvalidFileException("Incomplete Huffman tree");
+        }
+        byte[] tree = new byte[treeLength];
+        stream.get(tree);
+
+        HuffDecoder decoder = new HuffDecoder(tree, dataSize);
+        int written = (dataSize == 8) ? decoder.decode8(stream, output, length) : decoder.decode4(stream, output, length);
+        input.position(input.position() + stream.position());
+        return written;
+    }
+
+    private int decode8(ByteBuffer stream, byte[] output, int length) throws InvalidFileException {
+        for (int pos = 0; pos < length; pos++) {
+            output[pos] = (byte) nextSymbol(stream);
+        }
+        return length;
+    }
+
+    private int decode4(ByteBuffer stream, byte[] output, int length) throws InvalidFileException {
+        for (int pos = 0; pos < length; pos++) {
+            int low = nextSymbol(stream);
+            output[pos] = (byte) (low | (nextSymbol(stream) << 4)); // first nibble goes in the lower 4 bits
+        }
+        return length;
+    }
+
+    private int nextSymbol(ByteBuffer stream) throws InvalidFileException {
+        if (bitCount < LOOKUP_BITS) {
+            refill(stream);
+        }
+        int entry = lookup[(int) (bitBuffer >>> (64 - LOOKUP_BITS))];
+        if ((entry & LEAF) != 0) {
+            int codeLength = (entry >> 8) & 0xFF;
+            if (codeLength <= bitCount) {
+                consume(codeLength);
+                return entry & 0xFF;
+            }
+        } else if (bitCount >= LOOKUP_BITS) {
+            consume(LOOKUP_BITS);
+            return walk(stream, entry);
+        }
+        return walk(stream, ROOT);
+    }
+
+    private int walk(ByteBuffer stream, int node) throws InvalidFileException {
+        for (int steps = 0; steps < children.length; steps++) {
+            if (bitCount == 0) {
+                refill(stream);
+                if (bitCount == 0) {
+                    throw new InvalidFileException("Not enough Huffman data");
+                }
+            }
+            int child = children[node * 2 + (int) (bitBuffer >>> 63)];
+            consume(1);
+            if ((child & LEAF) != 0) {
+                return child & 0xFF;
+            }
+            node = child;
+        }
+        throw new InvalidFileException("Huffman code does not terminate");
+    }
+
+    private void refill(ByteBuffer stream) {
+        while (bitCount <= 32 && stream.hasRemaining()) {
+            long word;
+            if (stream.remaining() >= 4) {
+                word = stream.getInt() & 0xFFFFFFFFL;
+            } else {
+                word = 0; // the stream should be padded to 32 bits, but use what is there
+                for (int shift = 0; stream.hasRemaining(); shift += 8) {
+                    word |= (long) (stream.get() & 0xFF) << shift;
+                }
+            }
+            bitBuffer |= word << (32 - bitCount);
+            bitCount += 32;
+        }
+    }
+
+    private void consume(int bits) {
+        bitBuffer <<= bits;
+        bitCount -= bits;
+    }
+}
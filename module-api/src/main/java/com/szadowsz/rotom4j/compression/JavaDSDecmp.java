@@ -1,21 +1,28 @@
 package com.szadowsz.rotom4j.compression;
 
 import com.szadowsz.rotom4j.exception.InvalidFileException;
+import com.szadowsz.rotom4j.binary.io.reader.HexBufferReader;
 import com.szadowsz.rotom4j.binary.io.reader.HexInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.EOFException;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class JavaDSDecmp {
     static Logger LOGGER = LoggerFactory.getLogger(JavaDSDecmp.class);
 
+    /**
+     * @deprecated use {@link #supports(HexBufferReader)}
+     */
+    @Deprecated
     public static CompFormat supports(HexInputStream his) throws IOException {
         int magic = his.peekU8();
         switch(magic){
             case 0x10: return CompFormat.LZ77_10;
-            //case 0x11: return Decompress11LZ(his);
+            case 0x11: return CompFormat.LZ77_11;
             case 0x24:
             case 0x28: return CompFormat.HUFFMAN;
             case 0x30: return CompFormat.RLE;
@@ -23,315 +30,280 @@ public class JavaDSDecmp {
         }
     }
 
-	public static int[] decompress(HexInputStream his) throws IOException {
-        int magic = his.readU8();
-        switch(magic){
-		case 0x10: return decompress10LZ(his);
-		//case 0x11: return Decompress11LZ(his);
-		case 0x24:
-		case 0x28: return decompressHuff(his);
-		case 0x30: return decompressRLE(his);
-		default: return null;
-		}
-	}
-	
-	private static int getLength(HexInputStream his) throws IOException {
-		int length = 0;
-		for(int i = 0; i < 3; i++)
-			length = length | (his.readU8() << (i * 8));
-		if(length == 0) // 0 length? then length is next 4 bytes
-			length = his.readlS32();
-		return length;
-	}
-	
-	
-	private static int[] decompress10LZ(HexInputStream his) throws IOException {
-        LOGGER.info("Using LZ77 0x10");
-		int[] outData = new int[getLength(his)];
-		
-		int curr_size = 0;
-		int flags;
-		boolean flag;
-		int disp, n, b, cdest;
-		
-		while (curr_size < outData.length)
-        {
-            try { flags = his.readU8(); }
-            catch (EOFException ex) { break; }
-            for (int i = 0; i < 8; i++)
-            {
-                flag = (flags & (0x80 >> i)) > 0;
-                if (flag)
-                {
-                    disp = 0;
-                    try { b = his.readU8(); }
-                    catch (EOFException ex) { throw new InvalidFileException("Incomplete data"); }
-                    n = b >> 4;
-                    disp = (b & 0x0F) << 8;
-                    try { disp |= his.readU8(); }
-                    catch (EOFException ex) { throw new InvalidFileException("Incomplete data"); }
-                    n += 3;
-                    cdest = curr_size;
-                    //Console.WriteLine("disp: 0x{0:x}", disp);
-                    if (disp > curr_size)
-                        throw new InvalidFileException("Cannot go back more than already written");
-                    for (int j = 0; j < n; j++)
-                    	outData[curr_size++] = outData[cdest - disp - 1 + j];
-                    
-                    if (curr_size > outData.length)
-                        break;
-                }
-                else
-                {
-                    try { b = his.readU8(); }
-                    catch (EOFException ex) { break;}// throw new Exception("Incomplete data"); }
-                    try { outData[curr_size++] = b; }
-                    catch (ArrayIndexOutOfBoundsException ex) { if (b == 0) break; }
-
-                    if (curr_size > outData.length)
-                        break;
-                }
-            }
+    /**
+     * Detect the compression used by the data from the byte at the current position of a reader, without consuming it
+     *
+     * @param reader the possibly compressed data
+     * @return the compression format, NONE if it is not recognised
+     */
+    public static CompFormat supports(HexBufferReader reader) {
+        return supports(reader.remaining());
+    }
 
+    /**
+     * Detect the compression used by the data from its first byte
+     *
+     * @param data the possibly compressed data
+     * @return the compression format, NONE if it is not recognised
+     */
+    public static CompFormat supports(byte[] data) {
+        if (data.length == 0) {
+            return CompFormat.NONE;
         }
-		return outData;
-	}
-	
-	private static int[] Decompress11LZ(HexInputStream his) throws IOException {
-        LOGGER.info("Using LZ77 0x11");
-        int[] outData = new int[getLength(his)];
-		
-		int curr_size = 0;
-		int flags;
-		boolean flag;
-		int b1, bt, b2, b3, len, disp, cdest;
-		
-		while (curr_size < outData.length) {
-            try {
-                flags = his.readU8();
-            } catch (EOFException ex) {
-                throw new IOException("Unexpected End Of File");
-            }
-
-            for (int i = 0; i < 8 && curr_size < outData.length; i++) {
-                flag = (flags & (0x80 >> i)) > 0;
-                if (flag) {
-                    try {
-                        b1 = his.readU8();
-                    } catch (EOFException ex) {
-                        throw new InvalidFileException("Incomplete data");
-                    }
-
-                    switch (b1 >> 4) {
-                        case 0:
-                            // ab cd ef
-                            // =>
-                            // len = abc + 0x11 = bc + 0x11
-                            // disp = def
-
-                            len = b1 << 4;
-                            try { bt = his.readU8(); }
-                            catch (EOFException ex) { throw new InvalidFileException("Incomplete data"); }
-                            len |= bt >> 4;
-                            len += 0x11;
+        return supports(ByteBuffer.wrap(data));
+    }
 
-                            disp = (bt & 0x0F) << 8;
-                            try { b2 = his.readU8(); }
-                            catch (EOFException ex) { throw new InvalidFileException("Incomplete data"); }
-                            disp |= b2;
-                            break;
+    /**
+     * Detect the compression used by the data from the byte at its current position, without consuming it
+     *
+     * @param data the possibly compressed data
+     * @return the compression format, NONE if it is not recognised
+     */
+    public static CompFormat supports(ByteBuffer data) {
+        if (!data.hasRemaining()) {
+            return CompFormat.NONE;
+        }
+        switch (data.get(data.position()) & 0xFF) {
+            case 0x10: return CompFormat.LZ77_10;
+            case 0x11: return CompFormat.LZ77_11;
+            case 0x24:
+            case 0x28: return CompFormat.HUFFMAN;
+            case 0x30: return CompFormat.RLE;
+            default: return CompFormat.NONE;
+        }
+    }
 
-                        case 1:
-                            // ab cd ef gh
-                            // => 
-                            // len = bcde + 0x111
-                            // disp = fgh
-                            // 10 04 92 3F => disp = 0x23F, len = 0x149 + 0x11 = 0x15A
+    /**
+     * Read the decompressed size from the compression header at the current position, without consuming it
+     *
+     * @param data the compressed data
+     * @return the size of the data once decompressed
+     * @throws InvalidFileException if the header is incomplete
+     */
+    public static int getDecompressedLength(ByteBuffer data) throws InvalidFileException {
+        return getLength(data.duplicate());
+    }
 
-                            try { bt = his.readU8(); b2 = his.readU8(); b3 = his.readU8(); }
-                            catch (EOFException ex) { throw new InvalidFileException("Incomplete data"); }
+    /**
+     * Decompress data into a new array
+     *
+     * @param data the compressed data, starting with its compression header
+     * @return the decompressed data
+     * @throws IOException if the data is not in a supported format, or is corrupt
+     */
+    public static byte[] decompress(byte[] data) throws IOException {
+        ByteBuffer input = ByteBuffer.wrap(data);
+        byte[] output = new byte[getDecompressedLength(input)];
+        decompress(input, output);
+        return output;
+    }
 
-                            len = (b1 & 0xF) << 12; // len = b000
-                            len |= bt << 4; // len = bcd0
-                            len |= (b2 >> 4); // len = bcde
-                            len += 0x111; // len = bcde + 0x111
-                            disp = (b2 & 0x0F) << 8; // disp = f
-                            disp |= b3; // disp = fgh
-                            break;
+    /**
+     * Decompress data into a caller supplied array, which may be reused between calls.
+     * <p>
+     * Decompression stops once the output is full, so an array shorter than the decompressed size only receives the
+     * start of the data.
+     *
+     * @param input the compressed data, starting at its compression header, which is consumed
+     * @param output the array to decompress into, from index 0
+     * @return the number of bytes written
+     * @throws IOException if the data is not in a supported format, or is corrupt
+     */
+    public static int decompress(ByteBuffer input, byte[] output) throws IOException {
+        try {
+            int magic = input.get(input.position()) & 0xFF;
+            int length = Math.min(getLength(input), output.length);
+            switch (magic) {
+                case 0x10: return decompress10LZ(input, output, length);
+                case 0x11: return decompress11LZ(input, output, length);
+                case 0x24:
+                case 0x28: return HuffDecoder.decode(input, output, length, magic & 0x0F);
+                case 0x30: return decompressRLE(input, output, length);
+                default: throw new InvalidFileException("Unsupported compression format: 0x" + Integer.toHexString(magic));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new InvalidFileException("Incomplete data", e);
+        }
+    }
 
-                        default:
-                            // ab cd
-                            // =>
-                            // len = a + threshold = a + 1
-                            // disp = bcd
+    /**
+     * Read the compression header, leaving the input at the start of the compressed data
+     *
+     * @param input the compressed data
+     * @return the size of the data once decompressed
+     */
+    private static int getLength(ByteBuffer input) throws InvalidFileException {
+        if (input.remaining() < 4) {
+            throw new InvalidFileException("Incomplete compression header");
+        }
+        input.get(); // compression type
+        int length = readLength(input, 3);
+        if (length == 0) { // 0 length? then length is next 4 bytes
+            if (input.remaining() < 4) {
+                throw new InvalidFileException("Incomplete compression header");
+            }
+            length = readLength(input, 4);
+        }
+        if (length < 0) {
+            throw new InvalidFileException("Unsupported decompressed size: " + Integer.toUnsignedString(length));
+        }
+        return length;
+    }
 
-                            len = (b1 >> 4) + 1;
+    private static int readLength(ByteBuffer input, int bytes) {
+        int length = 0;
+        for (int i = 0; i < bytes; i++) {
+            length |= (input.get() & 0xFF) << (i * 8);
+        }
+        return length;
+    }
 
-                            disp = (b1 & 0x0F) << 8;
-                            try { b2 = his.readU8(); }
-                            catch (EOFException ex) { throw new InvalidFileException("Incomplete data"); }
-                            disp |= b2;
-                            break;
-                    }
+    /**
+     * Copy an LZ back-reference within the output. When the source overlaps the destination the copy repeats the last
+     * distance bytes, so it is done in chunks that double in size rather than byte by byte.
+     *
+     * @param output the output array
+     * @param pos the position to copy to
+     * @param distance how far back the source starts
+     * @param length the number of bytes to copy
+     * @return the position after the copy
+     */
+    private static int copyBackReference(byte[] output, int pos, int distance, int length) {
+        int src = pos - distance;
+        int copied = 0;
+        while (copied < length) {
+            int chunk = Math.min(distance + copied, length - copied);
+            System.arraycopy(output, src, output, pos + copied, chunk);
+            copied += chunk;
+        }
+        return pos + length;
+    }
 
-                    if (disp > curr_size)
+    private static int decompress10LZ(ByteBuffer input, byte[] output, int length) throws InvalidFileException {
+        LOGGER.debug("Using LZ77 0x10");
+        int pos = 0;
+        while (pos < length && input.hasRemaining()) {
+            int flags = input.get() & 0xFF;
+            for (int i = 0; i < 8 && pos < length; i++) {
+                if ((flags & (0x80 >> i)) != 0) {
+                    int b = input.get() & 0xFF;
+                    int n = (b >> 4) + 3;
+                    int disp = (((b & 0x0F) << 8) | (input.get() & 0xFF)) + 1;
+                    if (disp > pos) {
                         throw new InvalidFileException("Cannot go back more than already written");
-
-                    cdest = curr_size;
-
-                    for (int j = 0; j < len && curr_size < outData.length; j++)
-                        outData[curr_size++] = outData[cdest - disp - 1 + j];
-
-                    if (curr_size > outData.length)
-                        break;
-                } else {
-                    try {
-                        outData[curr_size++] = his.readU8();
-                    } catch (EOFException ex) {
-                        throw new IOException("Incomplete data");
                     }
-
-                    if (curr_size > outData.length)
+                    pos = copyBackReference(output, pos, disp, Math.min(n, length - pos));
+                } else {
+                    if (!input.hasRemaining()) {
                         break;
+                    }
+                    output[pos++] = input.get();
                 }
             }
-
         }
-		return outData;
-	}
-
-	// note: untested
-    private static int[] decompressRLE(HexInputStream his) throws IOException{
-        LOGGER.info("Using RLE");
-        int[] outData = new int[getLength(his)];
-        int curr_size = 0;
-        int i, rl;
-        int flag, b;
-        boolean compressed;
-
-        while (true)
-        {
-            // get tag
-            try { flag = his.readU8(); }
-            catch (EOFException ex) { break; }
-            compressed = (flag & 0x80) > 0;
-            rl = flag & 0x7F;
-            if (compressed)
-                rl += 3;
-            else
-                rl += 1;
-
-            if (compressed)
-            {
-                try { b = his.readU8(); }
-                catch (EOFException ex) { break; }
-                for (i = 0; i < rl; i++)
-                    outData[curr_size++] = b;
-            }
-            else
-                for (i = 0; i < rl; i++)
-                    try { outData[curr_size++] = his.readU8(); }
-                    catch (EOFException ex) { break; }
-
-            if (curr_size > outData.length)
-                throw new InvalidFileException("curr_size > decomp_size; "+curr_size+">"+outData.length);
-            if (curr_size == outData.length)
-                break;
-        }
-        return outData;
+        return pos;
     }
 
-    // note: untested
-    private static int[] decompressHuff(HexInputStream his) throws IOException{
-        LOGGER.info("Using Huffman");
-        his.skip(-1);
-    	
-        int firstByte = his.readU8();
-
-        int dataSize = firstByte & 0x0F;
-
-        if (dataSize != 8 && dataSize != 4)
-            throw new InvalidFileException("Unhandled dataSize "+Integer.toHexString(dataSize));
-
-        int decomp_size = getLength(his);
-
-        int treeSize = his.readU8();
-        HuffNode.maxInpos = 4 + (treeSize + 1) * 2;
-
-        HuffNode rootNode = new HuffNode();
-        rootNode.parseData(his);
-
-        his.setPosition(4 + (treeSize + 1) * 2); // go to start of coded bitstream.
-        // read all data
-        int[] indata = new int[(int)(his.available() - his.getPosition()) / 4];
-        for (int i = 0; i < indata.length; i++)
-            indata[i] = his.readS32();
-
-        int curr_size = 0;
-        decomp_size *= dataSize == 8 ? 1 : 2;
-        int[] outdata = new int[decomp_size];
-
-        int idx = -1;
-        String codestr = "";
-        NLinkedList<Integer> code = new NLinkedList<Integer>();
-        while (curr_size < decomp_size)
-        {
-            try
-            {
-                codestr += Integer.toBinaryString(indata[++idx]); 
-            }
-            catch (ArrayIndexOutOfBoundsException e)
-            {
-                throw new InvalidFileException("not enough data.", e);
-            }
-            while (codestr.length() > 0)
-            {
-                code.addFirst(Integer.parseInt(codestr.charAt(0)+""));
-                codestr = codestr.substring(1);
-                Pair<Boolean, Integer> attempt = rootNode.getValue(code.getLast());
-                if (attempt.getFirst())
-                {
-                    try
-                    {
-                        outdata[curr_size++] = attempt.getSecond();
+    private static int decompress11LZ(ByteBuffer input, byte[] output, int length) throws InvalidFileException {
+        LOGGER.debug("Using LZ77 0x11");
+        int pos = 0;
+        while (pos < length) {
+            int flags = input.get() & 0xFF;
+            for (int i = 0; i < 8 && pos < length; i++) {
+                if ((flags & (0x80 >> i)) != 0) {
+                    int b1 = input.get() & 0xFF;
+                    int len;
+                    int disp;
+                    switch (b1 >> 4) {
+                        case 0 -> {
+                            // ab cd ef => len = bc + 0x11, disp = def
+                            int bt = input.get() & 0xFF;
+                            len = ((b1 << 4) | (bt >> 4)) + 0x11;
+                            disp = ((bt & 0x0F) << 8) | (input.get() & 0xFF);
+                        }
+                        case 1 -> {
+                            // ab cd ef gh => len = bcde + 0x111, disp = fgh
+                            int bt = input.get() & 0xFF;
+                            int b2 = input.get() & 0xFF;
+                            len = (((b1 & 0x0F) << 12) | (bt << 4) | (b2 >> 4)) + 0x111;
+                            disp = ((b2 & 0x0F) << 8) | (input.get() & 0xFF);
+                        }
+                        default -> {
+                            // ab cd => len = a + 1, disp = bcd
+                            len = (b1 >> 4) + 1;
+                            disp = ((b1 & 0x0F) << 8) | (input.get() & 0xFF);
+                        }
                     }
-                    catch (ArrayIndexOutOfBoundsException ex)
-                    {
-                        if (code.getFirst().getValue() != 0)
-                            throw ex;
+                    disp += 1;
+                    if (disp > pos) {
+                        throw new InvalidFileException("Cannot go back more than already written");
                     }
-                    code.clear();
+                    pos = copyBackReference(output, pos, disp, Math.min(len, length - pos));
+                } else {
+                    output[pos++] = input.get();
                 }
             }
         }
-        if (codestr.length() > 0 || idx < indata.length-1)
-        {
-            while (idx < indata.length-1)
-                codestr += Integer.toBinaryString(indata[++idx]);
-            codestr = codestr.replace("0", "");
-            if (codestr.length() > 0)
-                System.out.println("too much data; str="+codestr+", idx="+idx+"/"+indata.length);
-        }
+        return pos;
+    }
 
-        int[] realout;
-        if (dataSize == 4)
-        {
-            realout = new int[decomp_size / 2];
-            for (int i = 0; i < decomp_size / 2; i++)
-            {
-                if ((outdata[i * 2] & 0xF0) > 0
-                    || (outdata[i * 2 + 1] & 0xF0) > 0)
-                    throw new InvalidFileException("first 4 bits of data should be 0 if dataSize = 4");
-                realout[i] = (byte)((outdata[i * 2] << 4) | outdata[i * 2 + 1]);
+    private static int decompressRLE(ByteBuffer input, byte[] output, int length) {
+        LOGGER.debug("Using RLE");
+        int pos = 0;
+        while (pos < length && input.hasRemaining()) {
+            int flag = input.get() & 0xFF;
+            if ((flag & 0x80) != 0) {
+                if (!input.hasRemaining()) {
+                    break;
+                }
+                int run = Math.min((flag & 0x7F) + 3, length - pos);
+                Arrays.fill(output, pos, pos + run, input.get());
+                pos += run;
+            } else {
+                int run = Math.min(Math.min((flag & 0x7F) + 1, length - pos), input.remaining());
+                input.get(output, pos, run);
+                pos += run;
             }
         }
-        else
-        {
-            realout = outdata;
-        }
-        return realout;
+        return pos;
     }
 
+    /**
+     * Decompress data from the current position of a reader, leaving the reader after the compressed data
+     *
+     * @param reader the compressed data, positioned at its compression header
+     * @return the decompressed data
+     * @throws IOException if the data is not in a supported format, or is corrupt
+     */
+    public static byte[] decompress(HexBufferReader reader) throws IOException {
+        ByteBuffer input = reader.remaining();
+        byte[] output = new byte[getDecompressedLength(input)];
+        decompress(input, output);
+        reader.skip(input.position());
+        return output;
+    }
 
+    /**
+     * Decompress a stream into an int per byte
+     *
+     * @deprecated use {@link #decompress(byte[])} or {@link #decompress(HexBufferReader)}, which work on bytes
+     */
+    @Deprecated
+	public static int[] decompress(HexInputStream his) throws IOException {
+        if (supports(his) == CompFormat.NONE) {
+            his.readU8();
+            return null;
+        }
+        int[] data = his.readAllBytes();
+        byte[] stream = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            stream[i] = (byte) data[i];
+        }
+        byte[] decoded = decompress(stream);
+        int[] outData = new int[decoded.length];
+        for (int i = 0; i < decoded.length; i++) {
+            outData[i] = decoded[i] & 0xFF;
+        }
+        return outData;
+    }
 }
-
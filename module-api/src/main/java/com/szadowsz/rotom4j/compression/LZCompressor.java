@@ -0,0 +1,286 @@
+package com.szadowsz.rotom4j.compression;
+
+import java.util.Arrays;
+
+/**
+ * Compressor for the LZ77 (0x10) and LZ11 (0x11) formats read by {@link JavaDSDecmp}.
+ * <p>
+ * Matches are found with hash chains over the 4 KiB window. FAST mode parses greedily with short chains, OPTIMAL mode
+ * searches every chain and then picks the cheapest sequence of literals and matches, in bits, with a backwards pass.
+ */
+public class LZCompressor {
+
+    /**
+     * Trade-off between compression speed and output size
+     */
+    public enum Mode {
+        FAST,
+        OPTIMAL
+    }
+
+    private static final int WINDOW = 0x1000;
+    private static final int MIN_MATCH = 3;
+    private static final int MAX_MATCH_10 = 0x12;
+    private static final int MAX_MATCH_11 = 0x10110;
+    private static final int HASH_BITS = 15;
+    private static final int FAST_CHAIN = 16;
+
+    private static final int LITERAL_BITS = 9; // flag bit and the byte
+    private static final int FLAT_COST_LENGTH = 0x110; // LZ11 matches longer than this all cost the same
+
+    private final byte[] data;
+    private final boolean lz11;
+    private final int maxMatch;
+    private final int[] head = new int[1 << HASH_BITS];
+    private final int[] chain = new int[WINDOW];
+
+    private int matchLength;
+    private int matchDistance;
+
+    private LZCompressor(byte[] data, boolean lz11) {
+        this.data = data;
+        this.lz11 = lz11;
+        this.maxMatch = lz11 ? MAX_MATCH_11 : MAX_MATCH_10;
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * Compress data in the given format
+     *
+     * @param format LZ77_10 or LZ77_11
+     * @param data the data to compress
+     * @param mode whether to favour speed or size
+     * @return the compressed data, including its header
+     */
+    public static byte[] compress(CompFormat format, byte[] data, Mode mode) {
+        return switch (format) {
+            case LZ77_10 -> compress10(data, mode);
+            case LZ77_11 -> compress11(data, mode);
+            default -> throw new IllegalArgumentException("Unsupported compression format: " + format);
+        };
+    }
+
+    /**
+     * Compress data in the LZ77 (0x10) format
+     *
+     * @param data the data to compress
+     * @param mode whether to favour speed or size
+     * @return the compressed data, including its header
+     */
+    public static byte[] compress10(byte[] data, Mode mode) {
+        return new LZCompressor(data, false).compress(mode);
+    }
+
+    /**
+     * Compress data in the LZ11 (0x11) format
+     *
+     * @param data the data to compress
+     * @param mode whether to favour speed or size
+     * @return the compressed data, including its header
+     */
+    public static byte[] compress11(byte[] data, Mode mode) {
+        return new LZCompressor(data, true).compress(mode);
+    }
+
+    private byte[] compress(Mode mode) {
+        int[] lengths = new int[data.length];
+        int[] distances = new int[data.length];
+        if (mode == Mode.OPTIMAL) {
+            parseOptimal(lengths, distances);
+        } else {
+            parseGreedy(lengths, distances);
+        }
+        return encode(lengths, distances);
+    }
+
+    /**
+     * Take the longest match at each position, skipping over the positions it covers
+     */
+    private void parseGreedy(int[] lengths, int[] distances) {
+        int pos = 0;
+        while (pos < data.length) {
+            findMatch(pos, FAST_CHAIN, maxMatch);
+            int length = (matchLength >= MIN_MATCH) ? matchLength : 1;
+            lengths[pos] = length;
+            distances[pos] = matchDistance;
+            for (int i = 0; i < length; i++) {
+                insert(pos + i);
+            }
+            pos += length;
+        }
+    }
+
+    /**
+     * Find the longest match at every position, then pick the cheapest token at each position working backwards, so
+     * each choice knows the cost of encoding the rest of the data.
+     * <p>
+     * Inside a long match the search is skipped: one byte on, the same distance still matches all but one byte of it,
+     * and while that stays in the flat cost bracket a longer match elsewhere would not be cheaper to encode. Without
+     * this, every position of a long run would compare up to 64 KiB. For the same reason the chain search stops at the
+     * first match that reaches the flat cost bracket.
+     */
+    private void parseOptimal(int[] lengths, int[] distances) {
+        int[] longest = new int[data.length];
+        int[] longestDistance = new int[data.length];
+        for (int pos = 0; pos < data.length; pos++) {
+            if (pos > 0 && longest[pos - 1] - 1 > FLAT_COST_LENGTH) {
+                extendMatch(pos, longest[pos - 1] - 1, longestDistance[pos - 1]);
+            } else {
+                findMatch(pos, WINDOW, FLAT_COST_LENGTH + 1);
+            }
+            longest[pos] = matchLength;
+            longestDistance[pos] = matchDistance;
+            insert(pos);
+        }
+
+        long[] cost = new long[data.length + 1];
+        for (int pos = data.length - 1; pos >= 0; pos--) {
+            cost[pos] = LITERAL_BITS + cost[pos + 1];
+            lengths[pos] = 1;
+            // any length up to the longest match is available at the same distance; past the last LZ11 length bracket
+            // the token cost is flat, so there only the longest match is worth considering
+            int longestHere = longest[pos];
+            for (int length = MIN_MATCH; length <= longestHere; length++) {
+                if (length > FLAT_COST_LENGTH && length < longestHere) {
+                    length = longestHere;
+                }
+                long candidate = matchBits(length) + cost[pos + length];
+                if (candidate < cost[pos]) {
+                    cost[pos] = candidate;
+                    lengths[pos] = length;
+                    distances[pos] = longestDistance[pos];
+                }
+            }
+        }
+    }
+
+    private int matchBits(int length) {
+        if (!lz11 || length <= 0x10) {
+            return 17;
+        }
+        return (length <= FLAT_COST_LENGTH) ? 25 : 33;
+    }
+
+    private int hash(int pos) {
+        int key = (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8) | ((data[pos + 2] & 0xFF) << 16);
+        return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    private void insert(int pos) {
+        if (pos + MIN_MATCH <= data.length) {
+            int h = hash(pos);
+            chain[pos & (WINDOW - 1)] = head[h];
+            head[h] = pos;
+        }
+    }
+
+    /**
+     * Find the longest, then nearest, match for the data at pos among earlier positions in the window
+     *
+     * @param pos the position to match
+     * @param chainLimit the number of earlier positions with the same hash to try
+     * @param goodLength a match length to stop searching at
+     */
+    private void findMatch(int pos, int chainLimit, int goodLength) {
+        matchLength = 0;
+        matchDistance = 0;
+        int limit = Math.min(maxMatch, data.length - pos);
+        if (limit < MIN_MATCH) {
+            return;
+        }
+        int candidate = head[hash(pos)];
+        while (candidate >= 0 && pos - candidate <= WINDOW && chainLimit-- > 0) {
+            if (data[candidate + matchLength] == data[pos + matchLength]) {
+                int length = 0;
+                while (length < limit && data[candidate + length] == data[pos + length]) {
+                    length++;
+                }
+                if (length > matchLength) {
+                    matchLength = length;
+                    matchDistance = pos - candidate;
+                    if (length == limit || length >= goodLength) {
+                        break;
+                    }
+                }
+            }
+            int next = chain[candidate & (WINDOW - 1)];
+            if (next >= candidate) {
+                break; // the slot has been reused by a newer position, the rest of the chain is gone
+            }
+            candidate = next;
+        }
+    }
+
+    /**
+     * Take a match known to be at least the given length at the given distance, and extend it as far as it goes
+     *
+     * @param pos the position to match
+     * @param length the length already known to match
+     * @param distance the distance of the match
+     */
+    private void extendMatch(int pos, int length, int distance) {
+        int limit = Math.min(maxMatch, data.length - pos);
+        while (length < limit && data[pos + length - distance] == data[pos + length]) {
+            length++;
+        }
+        matchLength = length;
+        matchDistance = distance;
+    }
+
+    private byte[] encode(int[] lengths, int[] distances) {
+        byte[] out = new byte[8 + data.length + (data.length + 7) / 8];
+        int outPos = 0;
+        out[outPos++] = (byte) (lz11 ? 0x11 : 0x10);
+        if (data.length > 0 && data.length < (1 << 24)) {
+            out[outPos++] = (byte) data.length;
+            out[outPos++] = (byte) (data.length >> 8);
+            out[outPos++] = (byte) (data.length >> 16);
+        } else { // 0 length, then the length as the next 4 bytes (a 0 size always means the size follows)
+            outPos += 3;
+            out[outPos++] = (byte) data.length;
+            out[outPos++] = (byte) (data.length >> 8);
+            out[outPos++] = (byte) (data.length >> 16);
+            out[outPos++] = (byte) (data.length >> 24);
+        }
+
+        int pos = 0;
+        while (pos < data.length) {
+            int flagPos = outPos++;
+            int flags = 0;
+            for (int i = 0; i < 8 && pos < data.length; i++) {
+                int length = lengths[pos];
+                if (length >= MIN_MATCH) {
+                    flags |= 0x80 >> i;
+                    outPos = writeMatch(out, outPos, length, distances[pos] - 1);
+                    pos += length;
+                } else {
+                    out[outPos++] = data[pos++];
+                }
+            }
+            out[flagPos] = (byte) flags;
+        }
+        return Arrays.copyOf(out, outPos);
+    }
+
+    private int writeMatch(byte[] out, int outPos, int length, int disp) {
+        if (!lz11) {
+            out[outPos++] = (byte) (((length - 3) << 4) | (disp >> 8));
+        } else if (length <= 0x10) {
+            // ab cd => len = a + 1, disp = bcd
+            out[outPos++] = (byte) (((length - 1) << 4) | (disp >> 8));
+        } else if (length <= 0x110) {
+            // ab cd ef => len = bc + 0x11, disp = def
+            int len = length - 0x11;
+            out[outPos++] = (byte) (len >> 4);
+            out[outPos++] = (byte) (((len & 0x0F) << 4) | (disp >> 8));
+        } else {
+            // ab cd ef gh => len = bcde + 0x111, disp = fgh
+            int len = length - 0x111;
+            out[outPos++] = (byte) (0x10 | (len >> 12));
+            out[outPos++] = (byte) (len >> 4);
+            out[outPos++] = (byte) (((len & 0x0F) << 4) | (disp >> 8));
+        }
+        out[outPos++] = (byte) disp;
+        return outPos;
+    }
+}
@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -47,7 +48,17 @@ public abstract class RotomFile extends ByteArrayCompressibleData {
     }
 
     public RotomFile(File file) throws InvalidFileException {
-        super(file);
+        this(file, readFile(file));
+    }
+
+    /**
+     * Constructor for files that have already been read into memory, so they are not read again
+     *
+     * @param file the file the content was read from
+     * @param compData the possibly compressed content of the file
+     */
+    public RotomFile(File file, ByteArrayEditableData compData) {
+        super(file, compData);
         if (fileFullName != null) {
             this.objName = stripExtFromFileName(fileFullName);
             String ext = extractExtFromFileName(fileFullName);
@@ -62,6 +73,24 @@ public abstract class RotomFile extends ByteArrayCompressibleData {
         this(new File(filePath));
     }
 
+    /**
+     * Constructor for files that are read in place, e.g. memory-mapped, rather than loaded into memory
+     *
+     * @param file the file the content is read from
+     * @param mapping the possibly compressed content of the file
+     * @param compression the compression used by the file
+     */
+    protected RotomFile(File file, ByteBuffer mapping, CompFormat compression) {
+        super(file, mapping, compression);
+        this.objName = stripExtFromFileName(fileFullName);
+        String ext = extractExtFromFileName(fileFullName);
+        this.magic = RotomFormat.valueOfExt(ext);
+        if (this.magic == null) {
+            this.magic = RotomFormat.BINARY;
+        }
+        this.extIndex = this.magic.getExtIndex(ext);
+    }
+
     /**
      * Removes the extension from the full file name
      *
@@ -34,11 +34,11 @@ public enum RotomFormat {
     // Data-related
     BINARY(new String[]{"BIN"},new String[]{"bin","dat", "spa", "resdat"}),
     // 2D-related
-    NCER(new String[]{"RECN"},new String[]{"NCER"}),
-    NCLR(new String[]{"RLCN"}, new String[]{"NCLR"}),
-    NSCR(new String[]{"RCSN"},new String[]{"NSCR"}),
-    NCGR(new String[]{"RGCN"}, new String[]{"NCGR","NCBR"}),
-    NANR(new String[]{"RNAN"}, new String[]{"NANR"}),
+    NCER(new String[]{"RECN", "NCER"},new String[]{"NCER"}),
+    NCLR(new String[]{"RLCN", "NCLR"}, new String[]{"NCLR"}),
+    NSCR(new String[]{"RCSN", "NSCR"},new String[]{"NSCR"}),
+    NCGR(new String[]{"RGCN", "NCGR"}, new String[]{"NCGR","NCBR"}),
+    NANR(new String[]{"RNAN", "NANR"}, new String[]{"NANR"}),
     NSBCA(new String[]{"BCA0"}, new String[]{"NSBCA"}),
     NSBMD(new String[]{"BMD0"}, new String[]{"NSBMD"});
 
@@ -66,7 +66,8 @@ public enum RotomFormat {
     /**
      * Nitro Format Enum Constructor
      *
-     * @param magic list of valid Nitro File Header encoding labels
+     * @param magic list of valid Nitro File Header encoding labels, the little endian form first followed by the big
+     *              endian form where it differs
      * @param extension list of valid Nitro File Header extensions
      */
     RotomFormat(String[] magic, String[] extension) {
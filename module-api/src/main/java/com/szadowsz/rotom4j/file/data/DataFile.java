@@ -23,7 +23,19 @@ public class DataFile extends RotomFile {
      * @param path    the path of the file
      */
     public DataFile(DataFormat subType, String path) throws InvalidFileException, InvalidDataException {
-        super(new File(path));
+        this(subType, new File(path), readFile(new File(path)));
+    }
+
+    /**
+     * Data File Constructor, for a file that has already been read into memory
+     *
+     * @param subType how to interpret the binary data
+     * @param file    the file the data was read from
+     * @param bytes   the raw data of the file
+     * @throws InvalidDataException
+     */
+    public DataFile(DataFormat subType, File file, ByteArrayEditableData bytes) throws InvalidDataException {
+        super(file, bytes);
         this.subType = subType;
         if (!this.magic.equals(RotomFormat.BINARY)) {
             throw new InvalidDataException("Unsupported File encoding: " + magic.getLabel()[0] + ", should be " + this.magic.getLabel()[0]);
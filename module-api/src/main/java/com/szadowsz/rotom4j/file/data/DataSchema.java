@@ -0,0 +1,272 @@
+package com.szadowsz.rotom4j.file.data;
+
+import com.szadowsz.rotom4j.exception.InvalidDataException;
+import com.szadowsz.rotom4j.file.data.evo.EvolutionGraph;
+import com.szadowsz.rotom4j.file.data.learnset.LearnsetNFSFile;
+import com.szadowsz.rotom4j.file.data.stats.PersonalTable;
+import com.szadowsz.rotom4j.file.data.stats.data.PersonalField;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * How the entries of a data Narc are laid out as rows of unsigned ints, for {@link DataTableIO}.
+ * <p>
+ * Personal and growth entries are one row each. Learnset and evolution entries are one row per move or evolution, so
+ * an entry may have no rows at all.
+ */
+public enum DataSchema {
+
+    PERSONAL(DataFormat.PERSONAL, personalColumns(), personalWidths()) {
+        private static final int TM_WORDS = PersonalTable.NUMBER_TM_HM_BITS / 32;
+        private static final int TM_OFFSET = 0x1C;
+
+        @Override
+        public void toRows(byte[] raw, int[] row, RowConsumer rows) throws IOException {
+            PersonalField[] fields = PersonalField.values();
+            for (PersonalField field : fields) {
+                row[field.ordinal()] = field.read(raw);
+            }
+            for (int w = 0; w < TM_WORDS; w++) {
+                row[fields.length + w] = (raw.length >= PersonalTable.ENTRY_SIZE) ? readU32(raw, TM_OFFSET + 4 * w) : 0;
+            }
+            rows.accept(row);
+        }
+
+        @Override
+        public byte[] toEntry(byte[] original, int[][] rows, int count) throws InvalidDataException {
+            if (count == 0) {
+                return null;
+            }
+            requireSingleRow(count);
+            byte[] raw = Arrays.copyOf(original, Math.max(original.length, PersonalTable.ENTRY_SIZE)); // as writeBack does
+            PersonalField[] fields = PersonalField.values();
+            for (PersonalField field : fields) {
+                field.write(raw, checkRange(field.getLabel(), rows[0][field.ordinal()], field.getMaxValue()));
+            }
+            for (int w = 0; w < TM_WORDS; w++) {
+                writeU32(raw, TM_OFFSET + 4 * w, rows[0][fields.length + w]);
+            }
+            return raw;
+        }
+    },
+
+    GROWTH(DataFormat.LEVEL_UP, growthColumns(), growthWidths()) {
+        @Override
+        public void toRows(byte[] raw, int[] row, RowConsumer rows) throws IOException {
+            for (int i = 0; i < GROWTH_LEVELS; i++) {
+                row[i] = (4 * i + 3 < raw.length) ? readU32(raw, 4 * i) : 0;
+            }
+            rows.accept(row);
+        }
+
+        @Override
+        public byte[] toEntry(byte[] original, int[][] rows, int count) throws InvalidDataException {
+            if (count == 0) {
+                return null;
+            }
+            requireSingleRow(count);
+            byte[] raw = Arrays.copyOf(original, Math.max(original.length, 4 * GROWTH_LEVELS));
+            for (int i = 0; i < GROWTH_LEVELS; i++) {
+                writeU32(raw, 4 * i, rows[0][i]);
+            }
+            return raw;
+        }
+    },
+
+    LEARNSET(DataFormat.MOVES, new String[]{"Move", "Level"}, new int[]{2, 1}) {
+        @Override
+        public void toRows(byte[] raw, int[] row, RowConsumer rows) throws IOException {
+            for (int entry : LearnsetNFSFile.readEntries(raw)) {
+                row[0] = LearnsetNFSFile.getMoveId(entry);
+                row[1] = LearnsetNFSFile.getLevelLearned(entry);
+                rows.accept(row);
+            }
+        }
+
+        @Override
+        public byte[] toEntry(byte[] original, int[][] rows, int count) throws InvalidDataException {
+            byte[] raw = new byte[(2 * count + 2 + 3) & ~3]; // terminated by 0xFFFF, padded to a multiple of 4
+            for (int i = 0; i < count; i++) {
+                int entry = checkRange("Move", rows[i][0], 0x1FF) | checkRange("Level", rows[i][1], 0x7F) << 9;
+                raw[2 * i] = (byte) entry;
+                raw[2 * i + 1] = (byte) (entry >> 8);
+            }
+            raw[2 * count] = (byte) 0xFF;
+            raw[2 * count + 1] = (byte) 0xFF;
+            return raw;
+        }
+    },
+
+    EVOLUTION(DataFormat.EVOLUTION, new String[]{"Method", "Requirement", "Species"}, new int[]{2, 2, 2}) {
+        private static final int RECORDS = 7;
+        private static final int ENTRY_SIZE = 0x2C; // 7 records and 2 bytes of padding
+
+        @Override
+        public void toRows(byte[] raw, int[] row, RowConsumer rows) throws IOException {
+            for (int r = 0; r + EvolutionGraph.RECORD_SIZE <= raw.length; r += EvolutionGraph.RECORD_SIZE) {
+                row[0] = readU16(raw, r);
+                if (row[0] != 0) { // EVO_NONE fills the unused records
+                    row[1] = readU16(raw, r + 2);
+                    row[2] = readU16(raw, r + 4);
+                    rows.accept(row);
+                }
+            }
+        }
+
+        @Override
+        public byte[] toEntry(byte[] original, int[][] rows, int count) throws InvalidDataException {
+            if (count > RECORDS) {
+                throw new InvalidDataException("An evolution entry holds at most " + RECORDS + " evolutions, found " + count);
+            }
+            byte[] raw = Arrays.copyOf(original, Math.max(original.length, ENTRY_SIZE));
+            Arrays.fill(raw, 0, RECORDS * EvolutionGraph.RECORD_SIZE, (byte) 0); // unused records are EVO_NONE
+            for (int i = 0; i < count; i++) {
+                for (int c = 0; c < 3; c++) {
+                    int value = checkRange(getColumns()[c], rows[i][c], 0xFFFF);
+                    raw[EvolutionGraph.RECORD_SIZE * i + 2 * c] = (byte) value;
+                    raw[EvolutionGraph.RECORD_SIZE * i + 2 * c + 1] = (byte) (value >> 8);
+                }
+            }
+            return raw;
+        }
+    };
+
+    /**
+     * Receives the rows of an entry. The row array is reused, so it must be copied if it is kept.
+     */
+    public interface RowConsumer {
+        void accept(int[] row) throws IOException;
+    }
+
+    private static final int GROWTH_LEVELS = 101; // levels 0 to 100
+
+    private final DataFormat format;
+    private final String[] columns;
+    private final int[] widths;
+
+    DataSchema(DataFormat format, String[] columns, int[] widths) {
+        this.format = format;
+        this.columns = columns;
+        this.widths = widths;
+    }
+
+    /**
+     * Split a raw entry into rows
+     *
+     * @param raw the raw entry
+     * @param row a reusable array with a slot for each column
+     * @param rows receives each row of the entry
+     * @throws IOException if the consumer fails
+     */
+    public abstract void toRows(byte[] raw, int[] row, RowConsumer rows) throws IOException;
+
+    /**
+     * Join the rows of an entry back into a raw entry
+     *
+     * @param original the raw entry being replaced, whose bytes outside the columns are kept where the layout allows
+     * @param rows the rows of the entry, each with a value for each column
+     * @param count the number of rows, which may be 0
+     * @return the raw entry, or null if an entry with no rows should be left unchanged
+     * @throws InvalidDataException if a value does not fit in its column or there are too many rows
+     */
+    public abstract byte[] toEntry(byte[] original, int[][] rows, int count) throws InvalidDataException;
+
+    public DataFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the names of the columns, not counting the entry index
+     */
+    public String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of bytes each column takes up in a columnar file: 1, 2 or 4
+     */
+    public int[] getWidths() {
+        return widths;
+    }
+
+    /**
+     * @param format the format of the data Narc
+     * @return the schema of the format, or null if it has none
+     */
+    public static DataSchema valueOfFormat(DataFormat format) {
+        for (DataSchema schema : values()) {
+            if (schema.format == format) {
+                return schema;
+            }
+        }
+        return null;
+    }
+
+    private static String[] personalColumns() {
+        PersonalField[] fields = PersonalField.values();
+        String[] columns = new String[fields.length + PersonalTable.NUMBER_TM_HM_BITS / 32];
+        for (PersonalField field : fields) {
+            columns[field.ordinal()] = field.getLabel();
+        }
+        for (int w = 0; w < columns.length - fields.length; w++) {
+            columns[fields.length + w] = "TM Bits " + (32 * w + 1) + "-" + (32 * w + 32);
+        }
+        return columns;
+    }
+
+    private static int[] personalWidths() {
+        PersonalField[] fields = PersonalField.values();
+        int[] widths = filled(fields.length + PersonalTable.NUMBER_TM_HM_BITS / 32, 4);
+        for (PersonalField field : fields) {
+            widths[field.ordinal()] = (field.getBits() > 8) ? 2 : 1;
+        }
+        return widths;
+    }
+
+    private static String[] growthColumns() {
+        String[] columns = new String[GROWTH_LEVELS];
+        for (int i = 0; i < GROWTH_LEVELS; i++) {
+            columns[i] = "Level " + i;
+        }
+        return columns;
+    }
+
+    private static int[] growthWidths() {
+        return filled(GROWTH_LEVELS, 4);
+    }
+
+    private static int[] filled(int length, int width) {
+        int[] widths = new int[length];
+        Arrays.fill(widths, width);
+        return widths;
+    }
+
+    private static void requireSingleRow(int count) throws InvalidDataException {
+        if (count != 1) {
+            throw new InvalidDataException("Expected a single row per entry, found " + count);
+        }
+    }
+
+    private static int checkRange(String column, int value, int max) throws InvalidDataException {
+        if (value < 0 || value > max) {
+            throw new InvalidDataException(column + " must be between 0 and " + max + ", was " + Integer.toUnsignedString(value));
+        }
+        return value;
+    }
+
+    private static int readU16(byte[] raw, int offset) {
+        return (raw[offset] & 0xFF) | (raw[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readU32(byte[] raw, int offset) {
+        return readU16(raw, offset) | readU16(raw, offset + 2) << 16;
+    }
+
+    private static void writeU32(byte[] raw, int offset, int value) {
+        raw[offset] = (byte) value;
+        raw[offset + 1] = (byte) (value >> 8);
+        raw[offset + 2] = (byte) (value >> 16);
+        raw[offset + 3] = (byte) (value >> 24);
+    }
+}
@@ -0,0 +1,402 @@
+package com.szadowsz.rotom4j.file.data;
+
+import com.szadowsz.rotom4j.exception.InvalidDataException;
+import com.szadowsz.rotom4j.file.nitro.n2d.narc.NARC;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Export and import of the entries of a data Narc as CSV, or as a compact columnar binary file.
+ * <p>
+ * Both formats start each row with the index of the entry it belongs to, followed by the columns of its
+ * {@link DataSchema}. Entries are streamed one at a time in both directions, and an import holds only the entries it
+ * changes, so memory use does not grow with the Narc.
+ * <p>
+ * A file imported into a Narc describes every entry of it: its rows must be in entry order, and an entry without rows
+ * is left unchanged for the personal and growth schemas, and emptied for the learnset and evolution schemas. The Narc
+ * is only changed once the whole file has been read, so an import that fails leaves it as it was.
+ * <p>
+ * The columnar file is the magic "RCOL", a version byte, the schema name, and the name and byte width of each column,
+ * followed by groups of up to 4096 rows. Each group is its row count as a u32, then the values of each column in turn,
+ * little endian. A group of 0 rows ends the file.
+ */
+public class DataTableIO {
+
+    public static final String ENTRY_COLUMN = "Entry";
+
+    private static final byte[] MAGIC = "RCOL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int ENTRY_WIDTH = 2;
+    private static final int ROW_GROUP = 4096;
+
+    private DataTableIO() {
+    }
+
+    /**
+     * Write every entry of a data Narc as CSV, with a header row of column names
+     *
+     * @param narc the data Narc
+     * @param schema the layout of its entries
+     * @param out where to write the CSV
+     * @throws IOException if the write failed
+     */
+    public static void writeCsv(NARC narc, DataSchema schema, Writer out) throws IOException {
+        Writer writer = (out instanceof BufferedWriter) ? out : new BufferedWriter(out);
+        writer.write(ENTRY_COLUMN);
+        for (String column : schema.getColumns()) {
+            writer.write(',');
+            writer.write(column);
+        }
+        writer.write('\n');
+
+        StringBuilder line = new StringBuilder();
+        int[] row = new int[schema.getColumns().length];
+        for (int i = 0; i < narc.getFileCount(); i++) {
+            int entry = i;
+            schema.toRows(narc.getRawFile(i), row, values -> {
+                line.setLength(0);
+                line.append(entry);
+                for (int value : values) {
+                    line.append(',');
+                    if (value >= 0) {
+                        line.append(value);
+                    } else {
+                        line.append(Integer.toUnsignedString(value));
+                    }
+                }
+                line.append('\n');
+                writer.append(line);
+            });
+        }
+        writer.flush();
+    }
+
+    /**
+     * Read CSV written by {@link #writeCsv} and possibly edited, replacing the entries of a data Narc that changed
+     *
+     * @param narc the data Narc to update
+     * @param schema the layout of its entries
+     * @param in the CSV to read
+     * @return the number of entries replaced
+     * @throws InvalidDataException if the CSV does not match the schema or the Narc
+     * @throws IOException if the read failed
+     */
+    public static int readCsv(NARC narc, DataSchema schema, Reader in) throws IOException {
+        BufferedReader reader = (in instanceof BufferedReader b) ? b : new BufferedReader(in);
+        String header = reader.readLine();
+        if (header == null) {
+            throw new InvalidDataException("The CSV is empty");
+        }
+        String expected = ENTRY_COLUMN + "," + String.join(",", schema.getColumns());
+        if (!header.replace("\uFEFF", "").replace("\"", "").equals(expected)) { // spreadsheets may add a BOM or quotes
+            throw new InvalidDataException("The CSV header does not match the " + schema + " schema: " + header);
+        }
+
+        EntryAssembler assembler = new EntryAssembler(narc, schema);
+        int[] values = new int[schema.getColumns().length + 1];
+        int lineNo = 1;
+        for (String line; (line = reader.readLine()) != null; ) {
+            lineNo++;
+            if (!line.isBlank()) {
+                parseLine(line, lineNo, values);
+                assembler.accept(values);
+            }
+        }
+        return assembler.finish();
+    }
+
+    /**
+     * Parse a CSV line of unsigned ints, ignoring spaces and quotes around them
+     */
+    private static void parseLine(String line, int lineNo, int[] values) throws InvalidDataException {
+        int column = 0;
+        long value = 0;
+        boolean digits = false;
+        for (int i = 0; i <= line.length(); i++) {
+            char c = (i < line.length()) ? line.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+                if (value > 0xFFFFFFFFL) {
+                    throw new InvalidDataException("Value too large on line " + lineNo);
+                }
+            } else if (c == ',') {
+                if (!digits || column == values.length) {
+                    throw new InvalidDataException("Expected " + values.length + " numbers on line " + lineNo + ": " + line);
+                }
+                values[column++] = (int) value;
+                value = 0;
+                digits = false;
+            } else if (c != ' ' && c != '"' && c != '\t') {
+                throw new InvalidDataException("Unexpected '" + c + "' on line " + lineNo + ": " + line);
+            }
+        }
+        if (column != values.length) {
+            throw new InvalidDataException("Expected " + values.length + " numbers on line " + lineNo + ": " + line);
+        }
+    }
+
+    /**
+     * Write every entry of a data Narc as a columnar binary file
+     *
+     * @param narc the data Narc
+     * @param schema the layout of its entries
+     * @param out where to write the file
+     * @throws IOException if the write failed
+     */
+    public static void writeColumnar(NARC narc, DataSchema schema, OutputStream out) throws IOException {
+        String[] columns = schema.getColumns();
+        int[] widths = withEntryWidth(schema);
+
+        ByteBuffer header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).put((byte) VERSION);
+        putName(header, schema.name());
+        header.putShort((short) widths.length);
+        for (int c = 0; c < widths.length; c++) {
+            if (header.remaining() < 256) {
+                header = ByteBuffer.allocate(header.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN).put(header.flip());
+            }
+            header.put((byte) widths[c]);
+            putName(header, (c == 0) ? ENTRY_COLUMN : columns[c - 1]);
+        }
+        out.write(header.array(), 0, header.position());
+
+        int rowBytes = Arrays.stream(widths).sum();
+        ByteBuffer group = ByteBuffer.allocate(4 + ROW_GROUP * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+        int[][] buffered = new int[widths.length][ROW_GROUP];
+        int[] size = new int[1];
+        int[] row = new int[columns.length];
+        for (int i = 0; i < narc.getFileCount(); i++) {
+            int entry = i;
+            schema.toRows(narc.getRawFile(i), row, values -> {
+                buffered[0][size[0]] = entry;
+                for (int c = 0; c < values.length; c++) {
+                    buffered[c + 1][size[0]] = values[c];
+                }
+                if (++size[0] == ROW_GROUP) {
+                    writeGroup(out, group, buffered, widths, size[0]);
+                    size[0] = 0;
+                }
+            });
+        }
+        if (size[0] > 0) {
+            writeGroup(out, group, buffered, widths, size[0]);
+        }
+        writeGroup(out, group, buffered, widths, 0);
+        out.flush();
+    }
+
+    private static void putName(ByteBuffer buf, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buf.put((byte) bytes.length).put(bytes);
+    }
+
+    private static int[] withEntryWidth(DataSchema schema) {
+        int[] widths = new int[schema.getWidths().length + 1];
+        widths[0] = ENTRY_WIDTH;
+        System.arraycopy(schema.getWidths(), 0, widths, 1, widths.length - 1);
+        return widths;
+    }
+
+    private static void writeGroup(OutputStream out, ByteBuffer group, int[][] columns, int[] widths, int rows) throws IOException {
+        group.clear();
+        group.putInt(rows);
+        for (int c = 0; c < widths.length; c++) {
+            int[] values = columns[c];
+            switch (widths[c]) {
+                case 1 -> {
+                    for (int r = 0; r < rows; r++) {
+                        group.put((byte) values[r]);
+                    }
+                }
+                case 2 -> {
+                    for (int r = 0; r < rows; r++) {
+                        group.putShort((short) values[r]);
+                    }
+                }
+                default -> {
+                    for (int r = 0; r < rows; r++) {
+                        group.putInt(values[r]);
+                    }
+                }
+            }
+        }
+        out.write(group.array(), 0, group.position());
+    }
+
+    /**
+     * Read a columnar binary file written by {@link #writeColumnar}, replacing the entries of a data Narc that changed
+     *
+     * @param narc the data Narc to update
+     * @param schema the layout of its entries
+     * @param in the file to read
+     * @return the number of entries replaced
+     * @throws InvalidDataException if the file does not match the schema or the Narc
+     * @throws IOException if the read failed
+     */
+    public static int readColumnar(NARC narc, DataSchema schema, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new InvalidDataException("Not a columnar data file");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new InvalidDataException("Unsupported columnar data file version " + version);
+        }
+        String name = readName(data);
+        if (!name.equals(schema.name())) {
+            throw new InvalidDataException("The file holds " + name + " data, not " + schema);
+        }
+        int[] widths = withEntryWidth(schema);
+        int columnCount = Short.reverseBytes(data.readShort()) & 0xFFFF;
+        if (columnCount != widths.length) {
+            throw new InvalidDataException("Expected " + widths.length + " columns for " + schema + ", found " + columnCount);
+        }
+        for (int c = 0; c < widths.length; c++) {
+            int width = data.readUnsignedByte();
+            String column = readName(data);
+            String expected = (c == 0) ? ENTRY_COLUMN : schema.getColumns()[c - 1];
+            if (width != widths[c] || !column.equals(expected)) {
+                throw new InvalidDataException("Column " + c + " is " + column + " (" + width + " bytes), expected "
+                        + expected + " (" + widths[c] + " bytes)");
+            }
+        }
+
+        EntryAssembler assembler = new EntryAssembler(narc, schema);
+        int rowBytes = Arrays.stream(widths).sum();
+        ByteBuffer group = ByteBuffer.allocate(ROW_GROUP * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+        int[][] columns = new int[widths.length][ROW_GROUP];
+        int[] values = new int[widths.length];
+        int rows;
+        while ((rows = Integer.reverseBytes(data.readInt())) != 0) {
+            if (rows < 0 || rows > ROW_GROUP) {
+                throw new InvalidDataException("Invalid row group of " + Integer.toUnsignedString(rows) + " rows");
+            }
+            group.clear().limit(rows * rowBytes);
+            data.readFully(group.array(), 0, rows * rowBytes);
+            for (int c = 0; c < widths.length; c++) {
+                int[] column = columns[c];
+                switch (widths[c]) {
+                    case 1 -> {
+                        for (int r = 0; r < rows; r++) {
+                            column[r] = group.get() & 0xFF;
+                        }
+                    }
+                    case 2 -> {
+                        for (int r = 0; r < rows; r++) {
+                            column[r] = group.getShort() & 0xFFFF;
+                        }
+                    }
+                    default -> {
+                        for (int r = 0; r < rows; r++) {
+                            column[r] = group.getInt();
+                        }
+                    }
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < widths.length; c++) {
+                    values[c] = columns[c][r];
+                }
+                assembler.accept(values);
+            }
+        }
+        return assembler.finish();
+    }
+
+    private static String readName(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readUnsignedByte()];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects the rows of each entry in turn, and the entries that change, which replace those in the Narc once every
+     * row has been read
+     */
+    private static class EntryAssembler {
+        private final NARC narc;
+        private final DataSchema schema;
+        private final TreeMap<Integer, byte[]> changed = new TreeMap<>();
+        private int[][] rows = new int[8][];
+        private int count;
+        private int entry = -1; // the entry whose rows are being collected
+
+        EntryAssembler(NARC narc, DataSchema schema) {
+            this.narc = narc;
+            this.schema = schema;
+        }
+
+        /**
+         * @param values the entry index followed by the values of a row
+         */
+        void accept(int[] values) throws InvalidDataException {
+            int next = values[0];
+            if (Integer.compareUnsigned(next, narc.getFileCount()) >= 0) { // values are unsigned, so this rejects "-1" too
+                throw new InvalidDataException("Entry " + Integer.toUnsignedString(next) + " is outside the "
+                        + narc.getFileCount() + " entries of the Narc");
+            } else if (next < entry) {
+                throw new InvalidDataException("Rows for entry " + next + " come after entry " + entry);
+            } else if (next != entry) {
+                completeUpTo(next);
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            if (rows[count] == null) {
+                rows[count] = new int[values.length - 1];
+            }
+            System.arraycopy(values, 1, rows[count++], 0, values.length - 1);
+        }
+
+        /**
+         * Replace the entry being collected and every entry before the given one, which have no rows
+         */
+        private void completeUpTo(int next) throws InvalidDataException {
+            if (entry >= 0) {
+                replace(entry);
+            }
+            for (int i = entry + 1; i < next; i++) {
+                replace(i);
+            }
+            entry = next;
+        }
+
+        private void replace(int index) throws InvalidDataException {
+            byte[] original = narc.getRawFile(index);
+            byte[] raw = schema.toEntry(original, rows, count);
+            count = 0;
+            if (raw != null && !Arrays.equals(raw, original)) {
+                changed.put(index, raw);
+            }
+        }
+
+        /**
+         * Complete the remaining entries, then replace every changed entry in the Narc
+         *
+         * @return the number of entries replaced
+         */
+        int finish() throws InvalidDataException {
+            completeUpTo(narc.getFileCount());
+            for (Map.Entry<Integer, byte[]> change : changed.entrySet()) {
+                narc.setRawFile(change.getKey(), change.getValue());
+            }
+            return changed.size();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.szadowsz.rotom4j.exception.InvalidDataException;
 import com.szadowsz.rotom4j.exception.InvalidFileException;
 import com.szadowsz.rotom4j.file.RotomFormat;
 
+import java.io.File;
+
 /**
  * Class to represent an empty file that exists in the Narc
  */
@@ -27,6 +29,17 @@ public class PlaceholderNFSFile extends DataFile {
     public PlaceholderNFSFile(String path, long datalength) throws InvalidDataException, InvalidFileException {
         super(DataFormat.PLACEHOLDER, path);
     }
+
+    /**
+     * Placeholder File Constructor, for a file that has already been read into memory
+     *
+     * @param file the file the data was read from
+     * @param bytes the raw data of the file
+     */
+    public PlaceholderNFSFile(File file, ByteArrayEditableData bytes) throws InvalidDataException {
+        super(DataFormat.PLACEHOLDER, file, bytes);
+    }
+
     /**
      * Set the name of file based on some external parsing method
      * <p>
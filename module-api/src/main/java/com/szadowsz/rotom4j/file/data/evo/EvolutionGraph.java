@@ -0,0 +1,381 @@
+package com.szadowsz.rotom4j.file.data.evo;
+
+import com.szadowsz.rotom4j.exception.InvalidDataException;
+import com.szadowsz.rotom4j.file.data.evo.data.EvoMethod;
+import com.szadowsz.rotom4j.file.nitro.n2d.narc.NARC;
+
+import java.util.Arrays;
+
+/**
+ * The evolutions of every species in an evolution Narc, as a graph from each species to the species it evolves into.
+ * <p>
+ * Edges are held in compressed sparse row form: the evolutions of species s are edges {@code getEdgeStart(s)} to
+ * {@code getEdgeEnd(s) - 1}, in the order of their records. Pre-evolutions, families and evolution depths are worked out
+ * once when the graph is built. Edges that point outside the Narc are kept but take no part in families, depths or
+ * pre-evolutions.
+ */
+public class EvolutionGraph {
+
+    public static final int RECORD_SIZE = 6;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int count;
+
+    private final int[] edgeOffsets; // count + 1 offsets into the edge arrays
+    private final int[] targets;
+    private final int[] methods;
+    private final int[] requirements;
+
+    private final int[] preOffsets; // count + 1 offsets into preSources
+    private final int[] preSources;
+
+    private final int[] family; // dense family id of each species
+    private final int[] familyOffsets; // familyCount + 1 offsets into familyMembers
+    private final int[] familyMembers;
+    private final int[] depth; // stages from the base form, -1 for species on or after a cycle
+
+    private final int[] dangling; // edges whose target is outside the Narc
+    private final int[] cyclic; // species on or after a cycle
+
+    /**
+     * Build the graph in one pass over an evolution Narc
+     *
+     * @param narc the evolution Narc, with one entry per species
+     */
+    public EvolutionGraph(NARC narc) {
+        count = narc.getFileCount();
+        byte[][] raw = new byte[count][];
+        edgeOffsets = new int[count + 1];
+        for (int s = 0; s < count; s++) {
+            raw[s] = narc.getRawFile(s);
+            edgeOffsets[s + 1] = edgeOffsets[s] + countRecords(raw[s]);
+        }
+        int edges = edgeOffsets[count];
+        targets = new int[edges];
+        methods = new int[edges];
+        requirements = new int[edges];
+        int[] preCounts = new int[count + 1];
+        int danglingCount = 0;
+        int e = 0;
+        for (int s = 0; s < count; s++) {
+            byte[] data = raw[s];
+            for (int r = 0; r + RECORD_SIZE <= data.length; r += RECORD_SIZE) {
+                int method = readU16(data, r);
+                if (method == 0) { // EVO_NONE fills the unused records
+                    continue;
+                }
+                methods[e] = method;
+                requirements[e] = readU16(data, r + 2);
+                targets[e] = readU16(data, r + 4);
+                if (targets[e] < count) {
+                    preCounts[targets[e] + 1]++;
+                } else {
+                    danglingCount++;
+                }
+                e++;
+            }
+        }
+
+        dangling = new int[danglingCount];
+        preOffsets = new int[count + 1];
+        for (int s = 0; s < count; s++) {
+            preOffsets[s + 1] = preOffsets[s] + preCounts[s + 1];
+        }
+        preSources = new int[preOffsets[count]];
+        int[] fill = Arrays.copyOf(preOffsets, count);
+        int d = 0;
+        for (int s = 0; s < count; s++) {
+            for (e = edgeOffsets[s]; e < edgeOffsets[s + 1]; e++) {
+                if (targets[e] < count) {
+                    preSources[fill[targets[e]]++] = s;
+                } else {
+                    dangling[d++] = e;
+                }
+            }
+        }
+
+        family = new int[count];
+        int familyCount = findFamilies();
+        familyOffsets = new int[familyCount + 1];
+        for (int s = 0; s < count; s++) {
+            familyOffsets[family[s] + 1]++;
+        }
+        for (int f = 0; f < familyCount; f++) {
+            familyOffsets[f + 1] += familyOffsets[f];
+        }
+        familyMembers = new int[count];
+        fill = Arrays.copyOf(familyOffsets, familyCount);
+        for (int s = 0; s < count; s++) {
+            familyMembers[fill[family[s]]++] = s;
+        }
+
+        depth = new int[count];
+        cyclic = findDepths();
+    }
+
+    private static int readU16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int countRecords(byte[] data) {
+        int n = 0;
+        for (int r = 0; r + RECORD_SIZE <= data.length; r += RECORD_SIZE) {
+            if (readU16(data, r) != 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Give each species the id of its family, numbering families in the order of their lowest species
+     *
+     * @return the number of families
+     */
+    private int findFamilies() {
+        int[] parent = new int[count];
+        for (int s = 0; s < count; s++) {
+            parent[s] = s;
+        }
+        for (int s = 0; s < count; s++) {
+            for (int e = edgeOffsets[s]; e < edgeOffsets[s + 1]; e++) {
+                if (targets[e] < count) {
+                    int a = root(parent, s);
+                    int b = root(parent, targets[e]);
+                    parent[Math.max(a, b)] = Math.min(a, b); // the root is always the lowest species of the family
+                }
+            }
+        }
+        int families = 0;
+        for (int s = 0; s < count; s++) {
+            int r = root(parent, s);
+            family[s] = (r == s) ? families++ : family[r];
+        }
+        return families;
+    }
+
+    private static int root(int[] parent, int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+
+    /**
+     * Work out the depth of each species with Kahn's algorithm
+     *
+     * @return the species that could not be ordered, which are on or after a cycle
+     */
+    private int[] findDepths() {
+        int[] inDegree = new int[count];
+        for (int s = 0; s < count; s++) {
+            inDegree[s] = preOffsets[s + 1] - preOffsets[s];
+        }
+        int[] queue = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int s = 0; s < count; s++) {
+            if (inDegree[s] == 0) {
+                queue[tail++] = s;
+            }
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            for (int e = edgeOffsets[s]; e < edgeOffsets[s + 1]; e++) {
+                int t = targets[e];
+                if (t < count) {
+                    depth[t] = Math.max(depth[t], depth[s] + 1);
+                    if (--inDegree[t] == 0) {
+                        queue[tail++] = t;
+                    }
+                }
+            }
+        }
+        if (tail == count) {
+            return EMPTY;
+        }
+        int[] unordered = new int[count - tail];
+        int u = 0;
+        for (int s = 0; s < count; s++) {
+            if (inDegree[s] > 0) {
+                depth[s] = -1;
+                unordered[u++] = s;
+            }
+        }
+        return unordered;
+    }
+
+    /**
+     * @return the number of species in the graph
+     */
+    public int getSpeciesCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of evolutions across every species
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @return the first edge of the species' evolutions
+     */
+    public int getEdgeStart(int species) {
+        return edgeOffsets[species];
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @return one past the last edge of the species' evolutions
+     */
+    public int getEdgeEnd(int species) {
+        return edgeOffsets[species + 1];
+    }
+
+    /**
+     * @param edge the index of the evolution
+     * @return the species that evolves
+     */
+    public int getSource(int edge) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo < hi) { // the last species whose edges start at or before the edge
+            int mid = (lo + hi + 1) >>> 1;
+            if (edgeOffsets[mid] <= edge) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param edge the index of the evolution
+     * @return the species it evolves into
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @param edge the index of the evolution
+     * @return the raw evolution method
+     */
+    public int getMethodId(int edge) {
+        return methods[edge];
+    }
+
+    /**
+     * @param edge the index of the evolution
+     * @return the way to evolve, or null if the method is not one of {@link EvoMethod}
+     */
+    public EvoMethod getMethod(int edge) {
+        EvoMethod[] values = EvoMethod.values();
+        return (methods[edge] < values.length) ? values[methods[edge]] : null;
+    }
+
+    /**
+     * @param edge the index of the evolution
+     * @return the item, level or other value the method requires
+     */
+    public int getRequirement(int edge) {
+        return requirements[edge];
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @return the species it evolves into, in the order of its records
+     */
+    public int[] getEvolutions(int species) {
+        return Arrays.copyOfRange(targets, edgeOffsets[species], edgeOffsets[species + 1]);
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @return the species that evolve into it, in ascending order
+     */
+    public int[] getPreEvolutions(int species) {
+        return Arrays.copyOfRange(preSources, preOffsets[species], preOffsets[species + 1]);
+    }
+
+    /**
+     * Follow the first pre-evolution of a species back to the start of its line
+     *
+     * @param species the index of the species' entry in the Narc
+     * @return the base form, or the species itself if nothing evolves into it
+     */
+    public int getBaseForm(int species) {
+        for (int steps = 0; steps < count && preOffsets[species] < preOffsets[species + 1]; steps++) {
+            species = preSources[preOffsets[species]];
+        }
+        return species;
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @return the number of evolutions from the base form, or -1 if the species is on or after a cycle
+     */
+    public int getDepth(int species) {
+        return depth[species];
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @return the id of the species' family, families being numbered in the order of their lowest species
+     */
+    public int getFamily(int species) {
+        return family[species];
+    }
+
+    /**
+     * @return the number of families, species with no evolutions forming a family of their own
+     */
+    public int getFamilyCount() {
+        return familyOffsets.length - 1;
+    }
+
+    /**
+     * @param family the id of the family
+     * @return the species in the family, in ascending order
+     */
+    public int[] getFamilyMembers(int family) {
+        return Arrays.copyOfRange(familyMembers, familyOffsets[family], familyOffsets[family + 1]);
+    }
+
+    /**
+     * @return the edges whose target is outside the Narc
+     */
+    public int[] getDanglingEdges() {
+        return dangling.clone();
+    }
+
+    /**
+     * @return the species that are on a cycle of evolutions, or that a cycle evolves into
+     */
+    public int[] getCyclicSpecies() {
+        return cyclic.clone();
+    }
+
+    /**
+     * Check that every evolution targets a species in the Narc and that no species evolves back into itself
+     *
+     * @throws InvalidDataException describing the first problems found
+     */
+    public void validate() throws InvalidDataException {
+        if (dangling.length > 0) {
+            int e = dangling[0];
+            throw new InvalidDataException(dangling.length + " evolutions target species outside the " + count
+                    + " entries, the first from species " + getSource(e) + " to " + targets[e]);
+        }
+        if (cyclic.length > 0) {
+            throw new InvalidDataException(cyclic.length + " species are on or after an evolution cycle, the first is "
+                    + cyclic[0]);
+        }
+    }
+}
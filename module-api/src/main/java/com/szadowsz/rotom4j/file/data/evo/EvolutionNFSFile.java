@@ -38,7 +38,7 @@ public class EvolutionNFSFile extends DataFile {
      * Process the raw data into ways to evolve
      */
     protected void processEntries() {
-        MemBuf dataBuf = MemBuf.create(data);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
 
         for (int i = 0; i < getDataSize() / 6; i++) {
@@ -0,0 +1,213 @@
+package com.szadowsz.rotom4j.file.data.learnset;
+
+import com.szadowsz.rotom4j.file.nitro.n2d.narc.NARC;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The species that learn each move by level up, across every learnset of a learnset Narc.
+ * <p>
+ * Each move has an array of learners packed as {@code species << 16 | level}, kept sorted so that the learners of a
+ * move come out in species order and a species' lowest level for a move is found by binary search. The index is not
+ * thread safe while it is being updated.
+ */
+public class LearnsetIndex {
+
+    public static final int MOVE_COUNT = 0x200; // move ids are 9 bits
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int[][] learners = new int[MOVE_COUNT][];
+    private final int[] sizes = new int[MOVE_COUNT];
+    private int[][] entries; // the learnset entries of each species, as read, to remove them on update
+
+    /**
+     * Build the index in one pass over a learnset Narc
+     *
+     * @param narc the learnset Narc, with one entry per species
+     */
+    public LearnsetIndex(NARC narc) {
+        int count = narc.getFileCount();
+        entries = new int[count][];
+        for (int s = 0; s < count; s++) {
+            entries[s] = LearnsetNFSFile.readEntries(narc.getRawFile(s));
+            for (int entry : entries[s]) {
+                sizes[LearnsetNFSFile.getMoveId(entry)]++;
+            }
+        }
+        for (int m = 0; m < MOVE_COUNT; m++) {
+            learners[m] = (sizes[m] > 0) ? new int[sizes[m]] : EMPTY;
+            sizes[m] = 0;
+        }
+        for (int s = 0; s < count; s++) {
+            for (int entry : entries[s]) {
+                int m = LearnsetNFSFile.getMoveId(entry);
+                learners[m][sizes[m]++] = pack(s, LearnsetNFSFile.getLevelLearned(entry));
+            }
+        }
+        for (int m = 0; m < MOVE_COUNT; m++) {
+            Arrays.sort(learners[m], 0, sizes[m]); // species are in order already, a species' levels may not be
+        }
+    }
+
+    private static int pack(int species, int level) {
+        return species << 16 | level;
+    }
+
+    /**
+     * @param packed a learner of a move
+     * @return the species of the learner
+     */
+    public static int getSpecies(int packed) {
+        return packed >>> 16;
+    }
+
+    /**
+     * @param packed a learner of a move
+     * @return the level the learner learns the move at
+     */
+    public static int getLevel(int packed) {
+        return packed & 0xFFFF;
+    }
+
+    /**
+     * @return the number of learnsets in the index
+     */
+    public int getSpeciesCount() {
+        return entries.length;
+    }
+
+    /**
+     * Get the species that learn a move, and at what level
+     *
+     * @param move the move id
+     * @return the learners, packed as {@code species << 16 | level}, in ascending order
+     */
+    public int[] getLearners(int move) {
+        return Arrays.copyOf(learners[move], sizes[move]);
+    }
+
+    /**
+     * @param move the move id
+     * @return the number of times the move occurs across every learnset
+     */
+    public int getLearnerCount(int move) {
+        return sizes[move];
+    }
+
+    /**
+     * Get the lowest level a species learns a move at
+     *
+     * @param species the index of the species' learnset in the Narc
+     * @param move the move id
+     * @return the level, or -1 if the species does not learn the move by level up
+     */
+    public int getLevel(int species, int move) {
+        int[] packed = learners[move];
+        int i = lowerBound(packed, sizes[move], pack(species, 0));
+        return (i < sizes[move] && getSpecies(packed[i]) == species) ? getLevel(packed[i]) : -1;
+    }
+
+    /**
+     * @param species the index of the species' learnset in the Narc
+     * @param move the move id
+     * @return whether the species learns the move by level up
+     */
+    public boolean learns(int species, int move) {
+        return getLevel(species, move) >= 0;
+    }
+
+    /**
+     * A filter for the species that learn a move by a level, for e.g. {@code SpeciesQuery.where(IntPredicate)}
+     *
+     * @param move the move id
+     * @param level the highest level to accept
+     * @return a predicate over species indices
+     */
+    public IntPredicate learnsBy(int move, int level) {
+        return species -> {
+            int learnt = getLevel(species, move);
+            return learnt >= 0 && learnt <= level;
+        };
+    }
+
+    /**
+     * Replace the learnset of a species in the index, after it has been edited
+     *
+     * @param species the index of the species' learnset in the Narc
+     * @param raw the new raw learnset data
+     */
+    public void update(int species, byte[] raw) {
+        update(species, LearnsetNFSFile.readEntries(raw));
+    }
+
+    /**
+     * Replace the learnset of a species in the index, after it has been edited
+     *
+     * @param species the index of the species' learnset in the Narc
+     * @param learnset the new learnset
+     */
+    public void update(int species, LearnsetNFSFile learnset) {
+        int[] updated = new int[learnset.getNumMoves()];
+        for (int i = 0; i < updated.length; i++) {
+            updated[i] = learnset.getMove(i) | learnset.getLevel(i) << 9;
+        }
+        update(species, updated);
+    }
+
+    private void update(int species, int[] updated) {
+        if (species >= entries.length) {
+            int oldLength = entries.length;
+            entries = Arrays.copyOf(entries, species + 1);
+            Arrays.fill(entries, oldLength, entries.length, EMPTY);
+        }
+        for (int entry : entries[species]) {
+            remove(LearnsetNFSFile.getMoveId(entry), species);
+        }
+        for (int entry : updated) {
+            insert(LearnsetNFSFile.getMoveId(entry), pack(species, LearnsetNFSFile.getLevelLearned(entry)));
+        }
+        entries[species] = updated;
+    }
+
+    /**
+     * Remove every learner of a move that is the given species
+     */
+    private void remove(int move, int species) {
+        int[] packed = learners[move];
+        int from = lowerBound(packed, sizes[move], pack(species, 0));
+        int to = lowerBound(packed, sizes[move], pack(species + 1, 0));
+        System.arraycopy(packed, to, packed, from, sizes[move] - to);
+        sizes[move] -= to - from;
+    }
+
+    private void insert(int move, int value) {
+        int size = sizes[move];
+        int[] packed = learners[move];
+        if (size == packed.length) {
+            packed = learners[move] = Arrays.copyOf(packed, Math.max(8, size * 2));
+        }
+        int i = lowerBound(packed, size, value);
+        System.arraycopy(packed, i, packed, i + 1, size - i);
+        packed[i] = value;
+        sizes[move] = size + 1;
+    }
+
+    /**
+     * @return the index of the first of the first size values that is not less than key
+     */
+    private static int lowerBound(int[] values, int size, int key) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
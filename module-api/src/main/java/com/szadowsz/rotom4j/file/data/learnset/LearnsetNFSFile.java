@@ -31,19 +31,37 @@ public class LearnsetNFSFile extends DataFile {
         processEntries();
     }
 
-    private int getMoveId(short x) {
+    public static int getMoveId(int x) {
         return x & 0x1FF;
     }
 
-    private int getLevelLearned(short x) {
+    public static int getLevelLearned(int x) {
         return (x >> 9) & 0x7F;
     }
 
+    /**
+     * Read the learnset entries of raw learnset data, without building a file obj
+     *
+     * @param raw the raw learnset data
+     * @return each entry as its u16 value, the move in the low 9 bits and the level in the high 7
+     */
+    public static int[] readEntries(byte[] raw) {
+        int n = 0;
+        while (2 * n + 1 < raw.length && ((raw[2 * n] & 0xFF) | (raw[2 * n + 1] & 0xFF) << 8) != 0xFFFF) {
+            n++;
+        }
+        int[] entries = new int[n];
+        for (int i = 0; i < n; i++) {
+            entries[i] = (raw[2 * i] & 0xFF) | (raw[2 * i + 1] & 0xFF) << 8;
+        }
+        return entries;
+    }
+
     /**
      * Process the raw data into ways to learnset
      */
     protected void processEntries() {
-        MemBuf dataBuf = MemBuf.create(data);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
 
         short combinedValue;
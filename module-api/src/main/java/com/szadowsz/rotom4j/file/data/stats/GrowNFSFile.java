@@ -43,7 +43,7 @@ public class GrowNFSFile extends DataFile {
      * Process the raw data into XP Required for Levels
      */
     protected void processEntries() {
-        MemBuf dataBuf = MemBuf.create(data);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
         reader.skip(8);
         xp[0]=0;
@@ -0,0 +1,228 @@
+package com.szadowsz.rotom4j.file.data.stats;
+
+import com.szadowsz.rotom4j.file.data.stats.data.PersonalField;
+import com.szadowsz.rotom4j.file.nitro.n2d.narc.NARC;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The personal data of every species in a personal Narc, held as one primitive column per field.
+ * <p>
+ * Reading a field is an array access rather than a {@link StatsNFSFile} per species, so whole columns can be scanned
+ * cheaply. Changes are kept in the columns until {@link #writeBack()} patches them into the Narc's entries.
+ */
+public class PersonalTable {
+
+    public static final int ENTRY_SIZE = 0x2C;
+    public static final int NUMBER_TM_HM_BITS = 128;
+
+    private static final int TM_OFFSET = 0x1C;
+    private static final PersonalField[] FIELDS = PersonalField.values();
+
+    private final NARC narc;
+    private final int count;
+
+    private final byte[][] byteColumns; // indexed by field ordinal, null for fields wider than a byte
+    private final short[][] shortColumns; // indexed by field ordinal, null for fields that fit in a byte
+    private final long[] tms; // two words per species, TM n is bit n % 64 of word n / 64
+
+    private final BitSet dirty;
+
+    /**
+     * Decode every entry of a personal Narc into columns
+     *
+     * @param narc the personal Narc. Its entries are read as stored, without checking for compression headers, since a
+     *             base HP of e.g. 0x10 looks like one
+     */
+    public PersonalTable(NARC narc) {
+        this.narc = narc;
+        this.count = narc.getFileCount();
+        this.byteColumns = new byte[FIELDS.length][];
+        this.shortColumns = new short[FIELDS.length][];
+        for (PersonalField field : FIELDS) {
+            if (field.getBits() > 8) {
+                shortColumns[field.ordinal()] = new short[count];
+            } else {
+                byteColumns[field.ordinal()] = new byte[count];
+            }
+        }
+        this.tms = new long[count * 2];
+        this.dirty = new BitSet(count);
+
+        for (int i = 0; i < count; i++) {
+            readEntry(i, narc.getRawFile(i));
+        }
+    }
+
+    private void readEntry(int species, byte[] raw) {
+        for (PersonalField field : FIELDS) {
+            int value = field.read(raw);
+            if (field.getBits() > 8) {
+                shortColumns[field.ordinal()][species] = (short) value;
+            } else {
+                byteColumns[field.ordinal()][species] = (byte) value;
+            }
+        }
+        if (raw.length >= ENTRY_SIZE) { // shorter entries have no TM compatibility, as in StatsNFSFile
+            for (int b = 0; b < NUMBER_TM_HM_BITS / 8; b++) {
+                tms[species * 2 + b / 8] |= (raw[TM_OFFSET + b] & 0xFFL) << ((b % 8) * 8);
+            }
+        }
+    }
+
+    /**
+     * @return the number of species in the table
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public NARC getNarc() {
+        return narc;
+    }
+
+    /**
+     * Get the value of a field for a species
+     *
+     * @param species the index of the species' entry in the Narc
+     * @param field the field to read
+     * @return the unsigned value of the field
+     */
+    public int get(int species, PersonalField field) {
+        return get(species, field.ordinal());
+    }
+
+    /**
+     * Get the value of a field for a species
+     *
+     * @param species the index of the species' entry in the Narc
+     * @param ordinal the ordinal of the {@link PersonalField} to read
+     * @return the unsigned value of the field
+     */
+    public int get(int species, int ordinal) {
+        byte[] bytes = byteColumns[ordinal];
+        return (bytes != null) ? bytes[species] & 0xFF : shortColumns[ordinal][species] & 0xFFFF;
+    }
+
+    /**
+     * @return the column of a field that fits in a byte, or null if it is stored in a short column
+     */
+    byte[] getByteColumn(int ordinal) {
+        return byteColumns[ordinal];
+    }
+
+    /**
+     * @return the column of a field wider than a byte, or null if it is stored in a byte column
+     */
+    short[] getShortColumn(int ordinal) {
+        return shortColumns[ordinal];
+    }
+
+    /**
+     * Copy a whole column of the table
+     *
+     * @param field the field to read
+     * @param dst the array to copy the unsigned values into, one per species
+     * @return dst
+     */
+    public int[] getColumn(PersonalField field, int[] dst) {
+        byte[] bytes = byteColumns[field.ordinal()];
+        if (bytes != null) {
+            for (int i = 0; i < count; i++) {
+                dst[i] = bytes[i] & 0xFF;
+            }
+        } else {
+            short[] shorts = shortColumns[field.ordinal()];
+            for (int i = 0; i < count; i++) {
+                dst[i] = shorts[i] & 0xFFFF;
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Set the value of a field for a species. The Narc is unchanged until {@link #writeBack()} is called.
+     *
+     * @param species the index of the species' entry in the Narc
+     * @param field the field to change
+     * @param value the new unsigned value
+     * @throws IllegalArgumentException if the value does not fit in the field
+     */
+    public void set(int species, PersonalField field, int value) {
+        if (value < 0 || value > field.getMaxValue()) {
+            throw new IllegalArgumentException(field.getLabel() + " must be between 0 and " + field.getMaxValue() + ", was " + value);
+        }
+        if (field.getBits() > 8) {
+            shortColumns[field.ordinal()][species] = (short) value;
+        } else {
+            byteColumns[field.ordinal()][species] = (byte) value;
+        }
+        dirty.set(species);
+    }
+
+    /**
+     * @param species the index of the species' entry in the Narc
+     * @param tm the TM/HM bit, 0 to 127
+     * @return whether the species can learn the TM/HM
+     * @throws IndexOutOfBoundsException if the bit is not a TM/HM bit
+     */
+    public boolean hasTm(int species, int tm) {
+        checkTm(tm);
+        return (tms[species * 2 + (tm >> 6)] & (1L << tm)) != 0;
+    }
+
+    /**
+     * Set whether a species can learn a TM/HM. The Narc is unchanged until {@link #writeBack()} is called.
+     *
+     * @param species the index of the species' entry in the Narc
+     * @param tm the TM/HM bit, 0 to 127
+     * @param compatible whether the species can learn it
+     * @throws IndexOutOfBoundsException if the bit is not a TM/HM bit
+     */
+    public void setTm(int species, int tm, boolean compatible) {
+        checkTm(tm);
+        if (compatible) {
+            tms[species * 2 + (tm >> 6)] |= 1L << tm;
+        } else {
+            tms[species * 2 + (tm >> 6)] &= ~(1L << tm);
+        }
+        dirty.set(species);
+    }
+
+    private static void checkTm(int tm) {
+        if (tm < 0 || tm >= NUMBER_TM_HM_BITS) {
+            throw new IndexOutOfBoundsException("TM/HM bit " + tm + " is out of range");
+        }
+    }
+
+    /**
+     * @return whether any species has been changed since the table was read or last written back
+     */
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Patch the changed species into their Narc entries, keeping any bytes the table does not know about
+     *
+     * @return the number of entries written
+     */
+    public int writeBack() {
+        int written = 0;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            byte[] original = narc.getRawFile(i);
+            byte[] raw = Arrays.copyOf(original, Math.max(original.length, ENTRY_SIZE));
+            for (PersonalField field : FIELDS) {
+                field.write(raw, get(i, field.ordinal()));
+            }
+            for (int b = 0; b < NUMBER_TM_HM_BITS / 8; b++) {
+                raw[TM_OFFSET + b] = (byte) (tms[i * 2 + b / 8] >>> ((b % 8) * 8));
+            }
+            narc.setRawFile(i, raw);
+            written++;
+        }
+        dirty.clear();
+        return written;
+    }
+}
@@ -0,0 +1,347 @@
+package com.szadowsz.rotom4j.file.data.stats;
+
+import com.szadowsz.rotom4j.file.data.stats.data.PersonalField;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * A filter over the species of a {@link PersonalTable}, for questions like "all Fire types with base speed over 100".
+ * <p>
+ * The selection is a bitset with one bit per species. Each condition narrows it by scanning a primitive column 64
+ * species at a time, skipping words that are already empty, so chaining conditions gets cheaper as the selection shrinks.
+ * Conditions that are not about personal data, e.g. a learnset lookup, can be added with {@link #where(IntPredicate)}.
+ */
+public final class SpeciesQuery {
+
+    /**
+     * How a field is compared with a value
+     */
+    public enum Comparison {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    private static final int CHUNK_WORDS = 64; // 4096 species per parallel task
+
+    private final PersonalTable table;
+    private final int count;
+    private final long[] selected;
+    private boolean parallel;
+
+    /**
+     * Create a query that selects every species in the table
+     *
+     * @param table the personal data to query
+     */
+    public SpeciesQuery(PersonalTable table) {
+        this.table = table;
+        this.count = table.getCount();
+        this.selected = new long[(count + 63) >>> 6];
+        reset();
+    }
+
+    /**
+     * Select every species again
+     *
+     * @return this query
+     */
+    public SpeciesQuery reset() {
+        Arrays.fill(selected, -1L);
+        if ((count & 63) != 0) {
+            selected[selected.length - 1] = (1L << count) - 1; // the shift only uses the low 6 bits of count
+        }
+        return this;
+    }
+
+    /**
+     * Split the scans of large tables across the common fork join pool. A Gen IV table is too small to gain from it.
+     *
+     * @param parallel whether to scan in parallel
+     * @return this query
+     */
+    public SpeciesQuery parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Keep the species whose field compares as given with a value
+     *
+     * @param field the field to test
+     * @param comparison how to compare it
+     * @param value the value to compare it with
+     * @return this query
+     */
+    public SpeciesQuery where(PersonalField field, Comparison comparison, int value) {
+        return whereBetween(field, field, comparison, value, false);
+    }
+
+    /**
+     * Keep the species where either of two fields compares as given with a value, e.g. either type is Fire. NE keeps
+     * the species where neither field has the value.
+     *
+     * @param first the first field to test
+     * @param second the second field to test
+     * @param comparison how to compare them
+     * @param value the value to compare them with
+     * @return this query
+     */
+    public SpeciesQuery whereEither(PersonalField first, PersonalField second, Comparison comparison, int value) {
+        return whereBetween(first, second, comparison, value, true);
+    }
+
+    /**
+     * Keep the species whose field is within a range
+     *
+     * @param field the field to test
+     * @param min the smallest value to keep
+     * @param max the largest value to keep
+     * @return this query
+     */
+    public SpeciesQuery whereRange(PersonalField field, int min, int max) {
+        if (min > max) {
+            Arrays.fill(selected, 0L);
+            return this;
+        }
+        scan(field, field, min, max, false, false);
+        return this;
+    }
+
+    /**
+     * Keep the species that can learn a TM/HM
+     *
+     * @param tm the TM/HM bit, 0 to 127
+     * @return this query
+     * @throws IndexOutOfBoundsException if the bit is not a TM/HM bit, even if no species is selected
+     */
+    public SpeciesQuery whereTm(int tm) {
+        if (tm < 0 || tm >= PersonalTable.NUMBER_TM_HM_BITS) {
+            throw new IndexOutOfBoundsException("TM/HM bit " + tm + " is out of range");
+        }
+        return where(species -> table.hasTm(species, tm));
+    }
+
+    /**
+     * Keep the species that match a predicate
+     *
+     * @param predicate tested with the index of each species still selected, from several threads if the query is
+     *                  parallel
+     * @return this query
+     */
+    public SpeciesQuery where(IntPredicate predicate) {
+        forEachChunk((from, to) -> {
+            for (int w = from; w < to; w++) {
+                long word = selected[w];
+                long keep = word;
+                while (word != 0) {
+                    long bit = word & -word;
+                    if (!predicate.test((w << 6) + Long.numberOfTrailingZeros(bit))) {
+                        keep &= ~bit;
+                    }
+                    word ^= bit;
+                }
+                selected[w] = keep;
+            }
+        });
+        return this;
+    }
+
+    private SpeciesQuery whereBetween(PersonalField first, PersonalField second, Comparison comparison, int value, boolean either) {
+        int max = Math.max(first.getMaxValue(), second.getMaxValue());
+        switch (comparison) {
+            case EQ -> scan(first, second, value, value, either, false);
+            case NE -> scan(first, second, value, value, either, true);
+            case LT -> scan(first, second, 0, value - 1, either, false);
+            case LE -> scan(first, second, 0, value, either, false);
+            case GT -> scan(first, second, value + 1, max, either, false);
+            case GE -> scan(first, second, value, max, either, false);
+        }
+        return this;
+    }
+
+    /**
+     * Narrow the selection to the species with a field in [lo, hi], or outside it if exclude is set
+     */
+    private void scan(PersonalField first, PersonalField second, int lo, int hi, boolean either, boolean exclude) {
+        if (lo > hi) { // e.g. less than 0: matches nothing
+            if (!exclude) {
+                Arrays.fill(selected, 0L);
+            }
+            return;
+        }
+        int span = hi - lo;
+        forEachChunk((from, to) -> {
+            for (int w = from; w < to; w++) {
+                long word = selected[w];
+                if (word == 0) {
+                    continue;
+                }
+                long match = match(first, w, lo, span);
+                if (either) {
+                    match |= match(second, w, lo, span);
+                }
+                selected[w] = word & (exclude ? ~match : match);
+            }
+        });
+    }
+
+    /**
+     * @return a word with a bit set for each of its 64 species whose field is in [lo, lo + span]
+     */
+    private long match(PersonalField field, int w, int lo, int span) {
+        int base = w << 6;
+        int end = Math.min(64, count - base);
+        long match = 0;
+        byte[] bytes = table.getByteColumn(field.ordinal());
+        if (bytes != null) {
+            for (int b = 0; b < end; b++) {
+                int x = (bytes[base + b] & 0xFF) - lo;
+                match |= (Integer.compareUnsigned(x, span) <= 0 ? 1L : 0L) << b;
+            }
+        } else {
+            short[] shorts = table.getShortColumn(field.ordinal());
+            for (int b = 0; b < end; b++) {
+                int x = (shorts[base + b] & 0xFFFF) - lo;
+                match |= (Integer.compareUnsigned(x, span) <= 0 ? 1L : 0L) << b;
+            }
+        }
+        return match;
+    }
+
+    private interface WordRange {
+        void apply(int from, int to);
+    }
+
+    private void forEachChunk(WordRange range) {
+        int words = selected.length;
+        if (parallel && words > CHUNK_WORDS) {
+            IntStream.range(0, (words + CHUNK_WORDS - 1) / CHUNK_WORDS).parallel()
+                    .forEach(c -> range.apply(c * CHUNK_WORDS, Math.min(words, (c + 1) * CHUNK_WORDS)));
+        } else {
+            range.apply(0, words);
+        }
+    }
+
+    /**
+     * @return the number of species selected
+     */
+    public int count() {
+        int n = 0;
+        for (long word : selected) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+
+    /**
+     * @return the index of each species selected, in ascending order
+     */
+    public int[] species() {
+        int[] species = new int[count()];
+        int i = 0;
+        for (int w = 0; w < selected.length; w++) {
+            long word = selected[w];
+            while (word != 0) {
+                species[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return species;
+    }
+
+    /**
+     * @return a copy of the selection
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(selected);
+    }
+
+    /**
+     * Read fields of the species selected
+     *
+     * @param fields the fields to read
+     * @return one array per field, holding the values of the selected species in ascending order
+     */
+    public int[][] project(PersonalField... fields) {
+        int[] species = species();
+        int[][] columns = new int[fields.length][species.length];
+        for (int f = 0; f < fields.length; f++) {
+            int ordinal = fields[f].ordinal();
+            for (int i = 0; i < species.length; i++) {
+                columns[f][i] = table.get(species[i], ordinal);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Order the species selected by a field, ties broken by ascending index
+     *
+     * @param field the field to sort by
+     * @param descending whether the largest values come first
+     * @return the index of each species selected, in order
+     */
+    public int[] sortBy(PersonalField field, boolean descending) {
+        int[] species = species();
+        int ordinal = field.ordinal();
+        long[] keys = new long[species.length];
+        for (int i = 0; i < species.length; i++) {
+            int value = table.get(species[i], ordinal);
+            keys[i] = ((long) (descending ? field.getMaxValue() - value : value) << 32) | species[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            species[i] = (int) keys[i];
+        }
+        return species;
+    }
+
+    /**
+     * Count the species selected with each value of a field
+     *
+     * @param field the field to count by
+     * @return the count for each value, indexed by value
+     */
+    public int[] countBy(PersonalField field) {
+        int ordinal = field.ordinal();
+        int[] counts = new int[field.getMaxValue() + 1];
+        for (int s : species()) {
+            counts[table.get(s, ordinal)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Group the species selected by the value of a field
+     *
+     * @param field the field to group by
+     * @return the index of each species selected, in ascending order, keyed by the values that occur, in ascending order
+     */
+    public Map<Integer, int[]> groupBy(PersonalField field) {
+        int ordinal = field.ordinal();
+        int[] species = species();
+        int[] counts = countBy(field);
+        int[][] byValue = new int[counts.length][];
+        for (int v = 0; v < counts.length; v++) {
+            if (counts[v] > 0) {
+                byValue[v] = new int[counts[v]];
+                counts[v] = 0;
+            }
+        }
+        for (int s : species) {
+            int v = table.get(s, ordinal);
+            byValue[v][counts[v]++] = s;
+        }
+        Map<Integer, int[]> groups = new TreeMap<>();
+        for (int v = 0; v < byValue.length; v++) {
+            if (byValue[v] != null) {
+                groups.put(v, byValue[v]);
+            }
+        }
+        return groups;
+    }
+}
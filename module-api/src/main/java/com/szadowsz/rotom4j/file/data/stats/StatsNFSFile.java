@@ -64,7 +64,7 @@ public class StatsNFSFile extends DataFile {
     public StatsNFSFile(String path) throws InvalidFileException, InvalidDataException {
         super(DataFormat.PERSONAL,path);
 
-        MemBuf dataBuf = MemBuf.create(data);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
 
 
@@ -0,0 +1,122 @@
+package com.szadowsz.rotom4j.file.data.stats.data;
+
+/**
+ * The fields of a personal entry, in the order of {@code StatsNFSFile.fields}, with where each is stored in the entry
+ */
+public enum PersonalField {
+
+    HP("HP", 0x00, 0, 8),
+    ATTACK("Attack", 0x01, 0, 8),
+    DEFENCE("Defence", 0x02, 0, 8),
+    SPECIAL_ATTACK("Special Attack", 0x04, 0, 8),
+    SPECIAL_DEFENCE("Special Defence", 0x05, 0, 8),
+    SPEED("Speed", 0x03, 0, 8),
+    TYPE_1("Type 1", 0x06, 0, 8),
+    TYPE_2("Type 2", 0x07, 0, 8),
+    CATCH_RATE("Catch Rate", 0x08, 0, 8),
+    BASE_EXP("Base Exp", 0x09, 0, 8),
+    HP_YIELD("HP Yield", 0x0A, 0, 2),
+    ATTACK_YIELD("Attack Yield", 0x0A, 2, 2),
+    DEFENCE_YIELD("Defence Yield", 0x0A, 4, 2),
+    SPECIAL_ATTACK_YIELD("Special Attack Yield", 0x0A, 8, 2),
+    SPECIAL_DEFENCE_YIELD("Special Defence Yield", 0x0A, 10, 2),
+    SPEED_YIELD("Speed Yield", 0x0A, 6, 2),
+    UNCOMMON_ITEM("Uncommon Item", 0x0C, 0, 16),
+    RARE_ITEM("Rare Item", 0x0E, 0, 16),
+    GENDER_RATIO("Gender Ratio", 0x10, 0, 8),
+    EGG_CYCLES("Egg Cycles", 0x11, 0, 8),
+    BASE_HAPPINESS("Base Happiness", 0x12, 0, 8),
+    EXP_RATE("Exp Rate", 0x13, 0, 8),
+    EGG_GROUP_1("Egg Group 1", 0x14, 0, 8),
+    EGG_GROUP_2("Egg Group 2", 0x15, 0, 8),
+    ABILITY_1("Ability 1", 0x16, 0, 8),
+    ABILITY_2("Ability 2", 0x17, 0, 8),
+    RUN_CHANCE("Run Chance", 0x18, 0, 8),
+    DEX_COLOUR("Dex Colour", 0x19, 0, 7),
+    FLIP("Flip", 0x19, 7, 1);
+
+    private final String label;
+    private final int offset; // byte offset of the field in the entry, little endian if it spans two bytes
+    private final int shift; // bit position of the field in its byte or u16
+    private final int bits;
+
+    PersonalField(String label, int offset, int shift, int bits) {
+        this.label = label;
+        this.offset = offset;
+        this.shift = shift;
+        this.bits = bits;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getShift() {
+        return shift;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * @return the largest value the field can hold
+     */
+    public int getMaxValue() {
+        return (1 << bits) - 1;
+    }
+
+    /**
+     * @return whether the field is stored in a u16 rather than a u8
+     */
+    public boolean isWide() {
+        return shift + bits > 8;
+    }
+
+    /**
+     * Read the field from a raw personal entry
+     *
+     * @param raw the raw entry
+     * @return the unsigned value of the field, 0 if the entry is too short to hold it
+     */
+    public int read(byte[] raw) {
+        int word;
+        if (isWide()) {
+            word = (offset + 1 < raw.length) ? (raw[offset] & 0xFF) | (raw[offset + 1] & 0xFF) << 8 : 0;
+        } else {
+            word = (offset < raw.length) ? raw[offset] & 0xFF : 0;
+        }
+        return (word >> shift) & getMaxValue();
+    }
+
+    /**
+     * Write the field into a raw personal entry, keeping the other bits of its byte or u16
+     *
+     * @param raw the raw entry
+     * @param value the unsigned value of the field, which must fit in it
+     */
+    public void write(byte[] raw, int value) {
+        int mask = getMaxValue() << shift;
+        if (isWide()) {
+            int word = (raw[offset] & 0xFF) | (raw[offset + 1] & 0xFF) << 8;
+            word = (word & ~mask) | (value << shift);
+            raw[offset] = (byte) word;
+            raw[offset + 1] = (byte) (word >> 8);
+        } else {
+            raw[offset] = (byte) ((raw[offset] & ~mask) | (value << shift));
+        }
+    }
+
+    public static PersonalField valueOfLabel(String label) {
+        for (PersonalField field : values()) {
+            if (field.label.equals(label)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
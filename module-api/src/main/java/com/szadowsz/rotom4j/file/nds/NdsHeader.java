@@ -0,0 +1,248 @@
+package com.szadowsz.rotom4j.file.nds;
+
+import com.szadowsz.rotom4j.exception.InvalidFileException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The cartridge header at the start of an NDS ROM image.
+ * <p>
+ * Only the fields needed to locate the ARM binaries, overlay tables and NitroFS are kept, along with the ones that
+ * identify the game. All offsets are from the start of the ROM image.
+ */
+public class NdsHeader {
+
+    public static final int SIZE = 0x200;
+    public static final int HEADER_CRC_OFFSET = 0x15E; // CRC16 of bytes 0x000 - 0x15D
+    public static final int ROM_SIZE_OFFSET = 0x80;
+    public static final int FAT_OFFSET = 0x48;
+    public static final int DEVICE_CAPACITY_OFFSET = 0x14;
+
+    protected String gameTitle;
+    protected String gameCode;
+    protected String makerCode;
+    protected int unitCode;
+    protected int deviceCapacity;
+    protected int romVersion;
+
+    protected long arm9RomOffset;
+    protected long arm9EntryAddress;
+    protected long arm9RamAddress;
+    protected long arm9Size;
+    protected long arm7RomOffset;
+    protected long arm7EntryAddress;
+    protected long arm7RamAddress;
+    protected long arm7Size;
+
+    protected long fntOffset;
+    protected long fntSize;
+    protected long fatOffset;
+    protected long fatSize;
+    protected long arm9OverlayOffset;
+    protected long arm9OverlaySize;
+    protected long arm7OverlayOffset;
+    protected long arm7OverlaySize;
+
+    protected long iconBannerOffset;
+    protected long romSize; // total used rom size, excluding any padding
+    protected long headerSize;
+    protected int headerCrc;
+
+    /**
+     * Read the header from the start of a ROM image
+     *
+     * @param rom the ROM image, whose position and byte order are left untouched
+     * @throws InvalidFileException if the image is too small to hold a header
+     */
+    public NdsHeader(ByteBuffer rom) throws InvalidFileException {
+        if (rom.limit() < SIZE) {
+            throw new InvalidFileException("NDS ROM of " + rom.limit() + " bytes is too small to hold a header");
+        }
+        ByteBuffer header = rom.slice(0, SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        gameTitle = readString(header, 0x00, 12);
+        gameCode = readString(header, 0x0C, 4);
+        makerCode = readString(header, 0x10, 2);
+        unitCode = header.get(0x12) & 0xFF;
+        deviceCapacity = header.get(DEVICE_CAPACITY_OFFSET) & 0xFF;
+        romVersion = header.get(0x1E) & 0xFF;
+
+        arm9RomOffset = readUInt32(header, 0x20);
+        arm9EntryAddress = readUInt32(header, 0x24);
+        arm9RamAddress = readUInt32(header, 0x28);
+        arm9Size = readUInt32(header, 0x2C);
+        arm7RomOffset = readUInt32(header, 0x30);
+        arm7EntryAddress = readUInt32(header, 0x34);
+        arm7RamAddress = readUInt32(header, 0x38);
+        arm7Size = readUInt32(header, 0x3C);
+
+        fntOffset = readUInt32(header, 0x40);
+        fntSize = readUInt32(header, 0x44);
+        fatOffset = readUInt32(header, FAT_OFFSET);
+        fatSize = readUInt32(header, 0x4C);
+        arm9OverlayOffset = readUInt32(header, 0x50);
+        arm9OverlaySize = readUInt32(header, 0x54);
+        arm7OverlayOffset = readUInt32(header, 0x58);
+        arm7OverlaySize = readUInt32(header, 0x5C);
+
+        iconBannerOffset = readUInt32(header, 0x68);
+        romSize = readUInt32(header, ROM_SIZE_OFFSET);
+        headerSize = readUInt32(header, 0x84);
+        headerCrc = header.getShort(HEADER_CRC_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Calculate the CRC16 used by the cartridge header, i.e. CRC-16/MODBUS: reflected polynomial 0xA001 and initial
+     * value 0xFFFF
+     *
+     * @param data the buffer to read, whose position is left untouched
+     * @param offset the offset of the first byte to include
+     * @param length the number of bytes to include
+     * @return the 16 bit checksum
+     */
+    public static int crc16(ByteBuffer data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= data.get(i) & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 1) != 0) ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+        }
+        return crc;
+    }
+
+    private static long readUInt32(ByteBuffer header, int offset) {
+        return header.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private static String readString(ByteBuffer header, int offset, int length) {
+        byte[] bytes = new byte[length];
+        header.get(offset, bytes);
+        int end = 0;
+        while (end < length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    public String getGameTitle() {
+        return gameTitle;
+    }
+
+    public String getGameCode() {
+        return gameCode;
+    }
+
+    public String getMakerCode() {
+        return makerCode;
+    }
+
+    public int getUnitCode() {
+        return unitCode;
+    }
+
+    /**
+     * Get the cartridge capacity, as the power of two of the size in units of 128 KiB
+     *
+     * @return the device capacity
+     */
+    public int getDeviceCapacity() {
+        return deviceCapacity;
+    }
+
+    public int getRomVersion() {
+        return romVersion;
+    }
+
+    public long getArm9RomOffset() {
+        return arm9RomOffset;
+    }
+
+    public long getArm9EntryAddress() {
+        return arm9EntryAddress;
+    }
+
+    public long getArm9RamAddress() {
+        return arm9RamAddress;
+    }
+
+    public long getArm9Size() {
+        return arm9Size;
+    }
+
+    public long getArm7RomOffset() {
+        return arm7RomOffset;
+    }
+
+    public long getArm7EntryAddress() {
+        return arm7EntryAddress;
+    }
+
+    public long getArm7RamAddress() {
+        return arm7RamAddress;
+    }
+
+    public long getArm7Size() {
+        return arm7Size;
+    }
+
+    public long getFntOffset() {
+        return fntOffset;
+    }
+
+    public long getFntSize() {
+        return fntSize;
+    }
+
+    public long getFatOffset() {
+        return fatOffset;
+    }
+
+    public long getFatSize() {
+        return fatSize;
+    }
+
+    public long getArm9OverlayOffset() {
+        return arm9OverlayOffset;
+    }
+
+    public long getArm9OverlaySize() {
+        return arm9OverlaySize;
+    }
+
+    public long getArm7OverlayOffset() {
+        return arm7OverlayOffset;
+    }
+
+    public long getArm7OverlaySize() {
+        return arm7OverlaySize;
+    }
+
+    public long getIconBannerOffset() {
+        return iconBannerOffset;
+    }
+
+    /**
+     * Get the size of the used part of the ROM, which any padding follows
+     *
+     * @return the used ROM size
+     */
+    public long getRomSize() {
+        return romSize;
+    }
+
+    public long getHeaderSize() {
+        return headerSize;
+    }
+
+    public int getHeaderCrc() {
+        return headerCrc;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s%s) v%d", gameTitle, gameCode, makerCode, romVersion);
+    }
+}
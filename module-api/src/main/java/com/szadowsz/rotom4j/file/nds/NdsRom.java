@@ -0,0 +1,355 @@
+package com.szadowsz.rotom4j.file.nds;
+
+import com.szadowsz.rotom4j.NFSFactory;
+import com.szadowsz.rotom4j.exception.InvalidFileException;
+import com.szadowsz.rotom4j.exception.NitroException;
+import com.szadowsz.rotom4j.file.RotomFile;
+import com.szadowsz.rotom4j.file.nitro.n2d.narc.data.Fnt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An object representation of an NDS ROM image, read in place from a memory mapping.
+ * <p>
+ * Opening a ROM only parses the cartridge header, the overlay tables, the filename table and the file allocation
+ * table. The files of the NitroFS are exposed as read-only views over the mapped image, and are only decompressed and
+ * parsed into a {@link RotomFile} the first time they are requested.
+ */
+public class NdsRom {
+    static Logger LOGGER = LoggerFactory.getLogger(NdsRom.class);
+
+    protected final Path path;
+    protected final ByteBuffer rom; // read-only, little endian, covers the whole image
+    protected final NdsHeader header;
+    protected final List<Overlay> arm9Overlays;
+    protected final List<Overlay> arm7Overlays;
+    protected final Fnt.Folder filenames; // represents the root folder of the NitroFS
+    protected final int[] fileOffsets; // start and end offset pairs for each file, as read from the FAT
+    protected final String[] filePaths; // the path of each file id, "/" separated
+    protected final AtomicReferenceArray<RotomFile> decoded; // null until a file is first requested
+
+    /**
+     * Open an NDS ROM by memory-mapping it
+     *
+     * @param path a String containing the path to a .nds file on disk
+     * @return an NdsRom object
+     * @throws IOException if the file could not be mapped or is not a valid ROM
+     */
+    public static NdsRom map(String path) throws IOException {
+        return map(Paths.get(path));
+    }
+
+    /**
+     * Open an NDS ROM by memory-mapping it
+     *
+     * @param path the path to a .nds file on disk
+     * @return an NdsRom object
+     * @throws IOException if the file could not be mapped or is not a valid ROM
+     */
+    public static NdsRom map(Path path) throws IOException {
+        ByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after the channel closes
+        }
+        return new NdsRom(path, mapping);
+    }
+
+    /**
+     * Read the tables of an NDS ROM image held in a buffer
+     *
+     * @param path the file the image was read from, used to name it
+     * @param image the ROM image, from position 0 to its limit
+     * @throws NitroException if the image is not a valid ROM
+     */
+    protected NdsRom(Path path, ByteBuffer image) throws NitroException {
+        this.path = path;
+        this.rom = image.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        this.header = new NdsHeader(rom);
+        LOGGER.debug("Opening NDS ROM {}, {}", path, header);
+
+        ByteBuffer fat = section("FAT", header.getFatOffset(), header.getFatSize());
+        int fileCount = (int) (header.getFatSize() / 8);
+        fileOffsets = new int[fileCount * 2];
+        for (int i = 0; i < fileOffsets.length; i += 2) {
+            long start = fat.getInt(i * 4) & 0xFFFFFFFFL;
+            long end = fat.getInt(i * 4 + 4) & 0xFFFFFFFFL;
+            if (start > end || end > rom.limit()) {
+                throw new InvalidFileException("NDS ROM file " + (i / 2) + " at [" + start + ", " + end + ") is outside of the ROM");
+            }
+            fileOffsets[i] = (int) start;
+            fileOffsets[i + 1] = (int) end;
+        }
+
+        arm9Overlays = readOverlays(section("ARM9 overlay table", header.getArm9OverlayOffset(), header.getArm9OverlaySize()));
+        arm7Overlays = readOverlays(section("ARM7 overlay table", header.getArm7OverlayOffset(), header.getArm7OverlaySize()));
+
+        ByteBuffer fnt = section("FNT", header.getFntOffset(), header.getFntSize());
+        byte[] fntBytes = new byte[fnt.remaining()];
+        fnt.get(0, fntBytes);
+        filenames = (fntBytes.length > 0) ? Fnt.load(fntBytes) : new Fnt.Folder();
+
+        filePaths = new String[fileCount];
+        for (Overlay overlay : arm9Overlays) {
+            nameOverlay(overlay, "overlay9_");
+        }
+        for (Overlay overlay : arm7Overlays) {
+            nameOverlay(overlay, "overlay7_");
+        }
+        nameFiles(filenames, "");
+        decoded = new AtomicReferenceArray<>(fileCount);
+        LOGGER.debug("Read {} files and {} overlays from {}", fileCount, arm9Overlays.size() + arm7Overlays.size(), path);
+    }
+
+    private ByteBuffer section(String name, long offset, long size) throws InvalidFileException {
+        if (offset + size > rom.limit()) {
+            throw new InvalidFileException("NDS ROM " + name + " at [" + offset + ", " + (offset + size) + ") is outside of the ROM");
+        }
+        return rom.slice((int) offset, (int) size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static List<Overlay> readOverlays(ByteBuffer table) {
+        List<Overlay> overlays = new ArrayList<>();
+        for (int offset = 0; offset + Overlay.ENTRY_SIZE <= table.limit(); offset += Overlay.ENTRY_SIZE) {
+            overlays.add(new Overlay(table, offset));
+        }
+        return Collections.unmodifiableList(overlays);
+    }
+
+    private void nameOverlay(Overlay overlay, String prefix) {
+        if (overlay.getFileId() >= 0 && overlay.getFileId() < filePaths.length) {
+            filePaths[overlay.getFileId()] = String.format("%s%04d.bin", prefix, overlay.getId());
+        }
+    }
+
+    private void nameFiles(Fnt.Folder folder, String prefix) {
+        List<String> files = folder.getFiles();
+        for (int i = 0; i < files.size(); i++) {
+            int id = folder.getFirstId() + i;
+            if (id < filePaths.length) {
+                filePaths[id] = prefix + files.get(i);
+            }
+        }
+        for (Map.Entry<String, Fnt.Folder> sub : folder.getFolders().entrySet()) {
+            nameFiles(sub.getValue(), prefix + sub.getKey() + "/");
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public NdsHeader getHeader() {
+        return header;
+    }
+
+    public List<Overlay> getArm9Overlays() {
+        return arm9Overlays;
+    }
+
+    public List<Overlay> getArm7Overlays() {
+        return arm7Overlays;
+    }
+
+    /**
+     * Get the root folder of the NitroFS
+     *
+     * @return the root folder
+     */
+    public Fnt.Folder getFilenames() {
+        return filenames;
+    }
+
+    /**
+     * Get a read-only view of the ARM9 binary
+     *
+     * @return the ARM9 binary
+     * @throws InvalidFileException if the header places it outside of the ROM
+     */
+    public ByteBuffer getArm9() throws InvalidFileException {
+        return section("ARM9 binary", header.getArm9RomOffset(), header.getArm9Size());
+    }
+
+    /**
+     * Get a read-only view of the ARM7 binary
+     *
+     * @return the ARM7 binary
+     * @throws InvalidFileException if the header places it outside of the ROM
+     */
+    public ByteBuffer getArm7() throws InvalidFileException {
+        return section("ARM7 binary", header.getArm7RomOffset(), header.getArm7Size());
+    }
+
+    /**
+     * Get the number of files in the FAT, including overlays
+     *
+     * @return the number of files
+     */
+    public int getFileCount() {
+        return fileOffsets.length / 2;
+    }
+
+    /**
+     * Get the path of a file in the NitroFS. Overlays are named as ndstool extracts them.
+     *
+     * @param id the file id
+     * @return the "/" separated path of the file, or null if the file has no name
+     */
+    public String getFilePath(int id) {
+        return filePaths[id];
+    }
+
+    /**
+     * Find the id of a file in the NitroFS
+     *
+     * @param path the "/" separated path of the file, e.g. "a/0/0/4"
+     * @return the file id, or -1 if not found
+     */
+    public int getFileId(String path) {
+        return filenames.getIdOf(path);
+    }
+
+    /**
+     * Get the offset of a file in the ROM image
+     *
+     * @param id the file id
+     * @return the offset of the file's first byte
+     */
+    public int getFileOffset(int id) {
+        return fileOffsets[2 * id];
+    }
+
+    /**
+     * Get the size of a file in the ROM image
+     *
+     * @param id the file id
+     * @return the size in bytes
+     */
+    public int getFileSize(int id) {
+        return fileOffsets[2 * id + 1] - fileOffsets[2 * id];
+    }
+
+    /**
+     * Get a read-only view of the raw, possibly compressed, contents of a file, without copying it
+     *
+     * @param id the file id
+     * @return a little endian buffer over the file
+     */
+    public ByteBuffer getFileBuffer(int id) {
+        return rom.slice(getFileOffset(id), getFileSize(id)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Return a copy of the raw, possibly compressed, contents of a file
+     *
+     * @param id the file id
+     * @return a byte[] containing the contents of the file
+     */
+    public byte[] getRawFile(int id) {
+        byte[] raw = new byte[getFileSize(id)];
+        rom.get(getFileOffset(id), raw);
+        return raw;
+    }
+
+    /**
+     * Return a copy of the raw, possibly compressed, contents of the file with the given path
+     *
+     * @param path the "/" separated path of the file
+     * @return a byte[] containing the contents of the file
+     * @exception RuntimeException if file with given name is not found
+     */
+    public byte[] getRawFile(String path) {
+        return getRawFile(requireFileId(path));
+    }
+
+    /**
+     * Get a file of the NitroFS, decompressing and parsing it the first time it is requested. Different files can be
+     * decoded concurrently. If two threads request the same new file at once, both decode it and the first to finish
+     * wins, so every caller gets the same object.
+     *
+     * @param id the file id
+     * @return the parsed file
+     * @throws NitroException if the file could not be parsed
+     */
+    public RotomFile getFile(int id) throws NitroException {
+        RotomFile file = decoded.get(id);
+        if (file == null) {
+            file = NFSFactory.fromBinary(getFileNameWithoutExt(id), getRawFile(id));
+            if (!decoded.compareAndSet(id, null, file)) {
+                file = decoded.get(id);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Get the file of the NitroFS with the given path, decompressing and parsing it the first time it is requested
+     *
+     * @param path the "/" separated path of the file
+     * @return the parsed file
+     * @throws NitroException if the file could not be parsed
+     * @exception RuntimeException if file with given name is not found
+     */
+    public RotomFile getFile(String path) throws NitroException {
+        return getFile(requireFileId(path));
+    }
+
+    /**
+     * Get every file of the NitroFS as a list, whose entries are decompressed and parsed on first access
+     *
+     * @return the files, by file id
+     */
+    public List<RotomFile> getFiles() {
+        return new AbstractList<>() {
+            @Override
+            public RotomFile get(int index) {
+                try {
+                    return getFile(index);
+                } catch (NitroException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public int size() {
+                return getFileCount();
+            }
+        };
+    }
+
+    private int requireFileId(String path) {
+        int id = getFileId(path);
+        if (id == -1) {
+            throw new RuntimeException("Couldn't find file ID of \"" + path + "\".");
+        }
+        return id;
+    }
+
+    private String getFileNameWithoutExt(int id) {
+        String path = filePaths[id];
+        if (path == null) {
+            return "file_" + id;
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int ext = name.lastIndexOf('.');
+        return (ext > 0) ? name.substring(0, ext) : name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NDS ROM %s with %d files", header, getFileCount());
+    }
+}
@@ -0,0 +1,350 @@
+package com.szadowsz.rotom4j.file.nds;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Patches the NitroFS files of an NDS ROM image in place.
+ * <p>
+ * Only the files replaced through this writer are written. A file that is no larger than before is written over its
+ * old data, and a file that has grown is moved into the smallest gap between the ROM's other contents that holds it,
+ * or after the end of the used ROM if there is none. The FAT entries of the changed files, the used ROM size and the
+ * header CRC16 are then updated. Everything else in the image is left untouched, so no other file is read or written.
+ * <p>
+ * Overlays are replaced through {@link #setOverlay}, which also updates the compressed size and flag of their overlay
+ * table entry. Data past the used ROM size, such as the RSA signature, is kept where it is and grown files are placed
+ * after it.
+ */
+public class NdsRomWriter {
+    static Logger LOGGER = LoggerFactory.getLogger(NdsRomWriter.class);
+
+    private static final int FILE_ALIGNMENT = 0x200;
+    private static final int ARM9_FOOTER_SIZE = 0x0C; // nitrocode footer that follows the ARM9 binary of most games
+    private static final int DEFAULT_BANNER_SIZE = 0x840;
+    private static final long MIN_DEVICE_SIZE = 0x20000L; // device capacity 0, i.e. 128 KiB
+    private static final int OVERLAY_INFO_OFFSET = 0x1C; // compressed size and flags of an overlay table entry
+    private static final int MAX_OVERLAY_SIZE = 0xFFFFFF;
+
+    private final NdsRom rom;
+    private final TreeMap<Integer, byte[]> dirtyFiles = new TreeMap<>();
+    private final Map<Overlay, Boolean> dirtyOverlays = new IdentityHashMap<>(); // whether each is now compressed
+
+    /**
+     * @param rom the ROM image to patch
+     */
+    public NdsRomWriter(NdsRom rom) {
+        this.rom = rom;
+    }
+
+    /**
+     * Replace the raw, possibly compressed, contents of a file
+     *
+     * @param id the file id
+     * @param data a byte[] containing the new contents
+     * @exception IllegalArgumentException if the file holds an overlay, which must be replaced with {@link #setOverlay}
+     */
+    public void setRawFile(int id, byte[] data) {
+        if (id < 0 || id >= rom.getFileCount()) {
+            throw new IndexOutOfBoundsException("File ID " + id + " is outside of the " + rom.getFileCount() + " files in the ROM");
+        }
+        Overlay overlay = findOverlay(id);
+        if (overlay != null) {
+            throw new IllegalArgumentException("File ID " + id + " holds " + overlay + ", replace it with setOverlay");
+        }
+        dirtyFiles.put(id, data);
+    }
+
+    /**
+     * Replace the contents of an overlay and update its overlay table entry to match. Its RAM address and size, BSS
+     * size and static initialisers are kept, so the new code must still fit them.
+     *
+     * @param overlay an overlay of the ROM, from {@link NdsRom#getArm9Overlays()} or {@link NdsRom#getArm7Overlays()}
+     * @param data a byte[] containing the new contents
+     * @param compressed whether the data is compressed with the backwards LZ used by overlays
+     * @exception IllegalArgumentException if the overlay is not one of the ROM's, or compressed data is too large for
+     *                                     the overlay table entry
+     */
+    public void setOverlay(Overlay overlay, byte[] data, boolean compressed) {
+        if (!rom.getArm9Overlays().contains(overlay) && !rom.getArm7Overlays().contains(overlay)) {
+            throw new IllegalArgumentException(overlay + " is not an overlay of the ROM");
+        }
+        if (compressed && data.length > MAX_OVERLAY_SIZE) {
+            throw new IllegalArgumentException("Compressed overlay of " + data.length + " bytes is too large for the overlay table");
+        }
+        if (overlay.getFileId() < 0 || overlay.getFileId() >= rom.getFileCount()) {
+            throw new IndexOutOfBoundsException("File ID " + overlay.getFileId() + " of " + overlay + " is outside of the " + rom.getFileCount() + " files in the ROM");
+        }
+        dirtyFiles.put(overlay.getFileId(), data);
+        dirtyOverlays.put(overlay, compressed);
+    }
+
+    private Overlay findOverlay(int id) {
+        for (Overlay overlay : rom.getArm9Overlays()) {
+            if (overlay.getFileId() == id) {
+                return overlay;
+            }
+        }
+        for (Overlay overlay : rom.getArm7Overlays()) {
+            if (overlay.getFileId() == id) {
+                return overlay;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the raw, possibly compressed, contents of the file with the given path
+     *
+     * @param path the "/" separated path of the file
+     * @param data a byte[] containing the new contents
+     * @exception RuntimeException if file with given name is not found
+     */
+    public void setRawFileByName(String path, byte[] data) {
+        int id = rom.getFileId(path);
+        if (id == -1) {
+            throw new RuntimeException("Couldn't find file ID of \"" + path + "\".");
+        }
+        setRawFile(id, data);
+    }
+
+    public boolean isDirty() {
+        return !dirtyFiles.isEmpty();
+    }
+
+    /**
+     * Patch the changed files into the ROM image the NdsRom was mapped from. The NdsRom still describes the old file
+     * allocation table afterward, so it should be mapped again to read the patched image.
+     *
+     * @return the used ROM size after patching
+     * @throws IOException if the file could not be written
+     */
+    public long write() throws IOException {
+        return write(rom.getPath());
+    }
+
+    /**
+     * Patch the changed files into a ROM image. If the target is not the file the NdsRom was mapped from, that file is
+     * copied to the target first.
+     *
+     * @param path the ROM image to write
+     * @return the used ROM size after patching
+     * @throws IOException if the file could not be written
+     */
+    public long write(Path path) throws IOException {
+        if (!Files.exists(path) || !Files.isSameFile(path, rom.getPath())) {
+            Files.copy(rom.getPath(), path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            return write(channel);
+        }
+    }
+
+    /**
+     * Patch the changed files into a channel holding a copy of the ROM image
+     *
+     * @param channel the channel to write to, with the ROM image at position 0
+     * @return the used ROM size after patching
+     * @throws IOException if the channel could not be written to
+     */
+    public long write(FileChannel channel) throws IOException {
+        int count = rom.getFileCount();
+        int[] offsets = Arrays.copyOf(rom.fileOffsets, rom.fileOffsets.length);
+
+        // everything that isn't being moved stays where it is, grown files are placed around it
+        List<long[]> used = reservedRegions();
+        List<Integer> grown = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            byte[] data = dirtyFiles.get(id);
+            if (data != null && data.length > rom.getFileSize(id)) {
+                grown.add(id);
+            } else {
+                used.add(new long[]{offsets[2 * id], offsets[2 * id + 1]});
+            }
+        }
+        used.sort((a, b) -> Long.compare(a[0], b[0]));
+        long end = rom.getHeader().getRomSize();
+        for (long[] region : used) {
+            end = Math.max(end, region[1]);
+        }
+        List<long[]> gaps = findGaps(used, end);
+
+        // place the largest files first, they are the hardest to fit in a gap
+        grown.sort((a, b) -> Integer.compare(dirtyFiles.get(b).length, dirtyFiles.get(a).length));
+        int moved = 0;
+        for (int id : grown) {
+            int length = dirtyFiles.get(id).length;
+            long start = takeGap(gaps, length);
+            if (start < 0) {
+                start = align(end);
+                end = start + length;
+            }
+            if (start + length > 0xFFFFFFFFL) {
+                throw new IOException("NDS ROM of " + (start + length) + " bytes is too large to be written");
+            }
+            LOGGER.debug("Moving file {} from 0x{} to 0x{}", id, Integer.toHexString(offsets[2 * id]), Long.toHexString(start));
+            offsets[2 * id] = (int) start;
+            moved++;
+        }
+
+        for (Map.Entry<Integer, byte[]> entry : dirtyFiles.entrySet()) {
+            int id = entry.getKey();
+            byte[] data = entry.getValue();
+            offsets[2 * id + 1] = offsets[2 * id] + data.length;
+            writeFully(channel, ByteBuffer.wrap(data), offsets[2 * id] & 0xFFFFFFFFL);
+        }
+
+        // the used ROM size covers the files, but not the data after it that was reserved
+        NdsHeader header = rom.getHeader();
+        long romSize = header.getRomSize();
+        for (int id = 0; id < count; id++) {
+            romSize = Math.max(romSize, offsets[2 * id + 1] & 0xFFFFFFFFL);
+        }
+
+        ByteBuffer fat = ByteBuffer.allocate(offsets.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        fat.asIntBuffer().put(offsets);
+        writeFully(channel, fat, header.getFatOffset());
+        for (Map.Entry<Overlay, Boolean> entry : dirtyOverlays.entrySet()) {
+            writeOverlayInfo(channel, entry.getKey(), entry.getValue());
+        }
+
+        writeFully(channel, patchHeader(romSize), 0);
+        LOGGER.info("Patched {} files into NDS ROM {}, {} of them moved", dirtyFiles.size(), rom.getPath(), moved);
+        return romSize;
+    }
+
+    /**
+     * Find the end of whatever follows the used ROM size in the image, such as the RSA signature or DSi data, ignoring
+     * the 0xFF or 0x00 padding up to the cartridge size
+     *
+     * @return the offset after the last byte to keep, at least the used ROM size
+     */
+    private long trailingDataEnd() {
+        long romSize = rom.getHeader().getRomSize();
+        int end = rom.rom.limit();
+        while (end > romSize && (rom.rom.get(end - 1) == (byte) 0xFF || rom.rom.get(end - 1) == 0)) {
+            end--;
+        }
+        return Math.max(romSize, end);
+    }
+
+    private void writeOverlayInfo(FileChannel channel, Overlay overlay, boolean compressed) throws IOException {
+        NdsHeader header = rom.getHeader();
+        int index = rom.getArm9Overlays().indexOf(overlay);
+        long table = header.getArm9OverlayOffset();
+        if (index < 0) {
+            index = rom.getArm7Overlays().indexOf(overlay);
+            table = header.getArm7OverlayOffset();
+        }
+        int size = dirtyFiles.get(overlay.getFileId()).length & MAX_OVERLAY_SIZE;
+        int flags = compressed ? overlay.getFlags() | Overlay.FLAG_COMPRESSED : overlay.getFlags() & ~Overlay.FLAG_COMPRESSED;
+        ByteBuffer info = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, flags << 24 | size);
+        writeFully(channel, info, table + (long) index * Overlay.ENTRY_SIZE + OVERLAY_INFO_OFFSET);
+    }
+
+    private List<long[]> reservedRegions() {
+        NdsHeader header = rom.getHeader();
+        List<long[]> regions = new ArrayList<>();
+        regions.add(new long[]{0, Math.max(NdsHeader.SIZE, header.getHeaderSize())});
+        regions.add(region(header.getArm9RomOffset(), header.getArm9Size() + ARM9_FOOTER_SIZE));
+        regions.add(region(header.getArm7RomOffset(), header.getArm7Size()));
+        regions.add(region(header.getFntOffset(), header.getFntSize()));
+        regions.add(region(header.getFatOffset(), header.getFatSize()));
+        regions.add(region(header.getArm9OverlayOffset(), header.getArm9OverlaySize()));
+        regions.add(region(header.getArm7OverlayOffset(), header.getArm7OverlaySize()));
+        if (header.getIconBannerOffset() != 0) {
+            regions.add(region(header.getIconBannerOffset(), bannerSize(header.getIconBannerOffset())));
+        }
+        regions.add(new long[]{header.getRomSize(), trailingDataEnd()});
+        return regions;
+    }
+
+    private static long[] region(long offset, long size) {
+        return new long[]{offset, offset + size};
+    }
+
+    private long bannerSize(long offset) {
+        if (offset + 2 > rom.rom.limit()) {
+            return DEFAULT_BANNER_SIZE;
+        }
+        return switch (rom.rom.getShort((int) offset) & 0xFFFF) {
+            case 0x0002 -> 0x940; // chinese title
+            case 0x0003 -> 0xA40; // korean title
+            case 0x0103 -> 0x23C0; // animated DSi icon
+            default -> DEFAULT_BANNER_SIZE;
+        };
+    }
+
+    private static List<long[]> findGaps(List<long[]> used, long end) {
+        List<long[]> gaps = new ArrayList<>();
+        long free = 0;
+        for (long[] region : used) {
+            if (region[0] > free) {
+                gaps.add(new long[]{free, region[0]});
+            }
+            free = Math.max(free, region[1]);
+        }
+        if (end > free) {
+            gaps.add(new long[]{free, end});
+        }
+        return gaps;
+    }
+
+    /**
+     * Find the smallest gap that can hold an aligned file and remove the space it takes from the gap
+     *
+     * @return the offset of the file, or -1 if no gap is large enough
+     */
+    private static long takeGap(List<long[]> gaps, int length) {
+        long[] best = null;
+        for (long[] gap : gaps) {
+            long start = align(gap[0]);
+            if (start + length <= gap[1] && (best == null || gap[1] - gap[0] < best[1] - best[0])) {
+                best = gap;
+            }
+        }
+        if (best == null) {
+            return -1;
+        }
+        long start = align(best[0]);
+        best[0] = start + length;
+        return start;
+    }
+
+    private ByteBuffer patchHeader(long romSize) {
+        ByteBuffer header = ByteBuffer.allocate(NdsHeader.HEADER_CRC_OFFSET + 2).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(0, rom.rom, 0, NdsHeader.HEADER_CRC_OFFSET);
+        header.putInt(NdsHeader.ROM_SIZE_OFFSET, (int) romSize);
+        int capacity = rom.getHeader().getDeviceCapacity();
+        while ((MIN_DEVICE_SIZE << capacity) < romSize) {
+            capacity++;
+        }
+        header.put(NdsHeader.DEVICE_CAPACITY_OFFSET, (byte) capacity);
+        header.putShort(NdsHeader.HEADER_CRC_OFFSET, (short) NdsHeader.crc16(header, 0, NdsHeader.HEADER_CRC_OFFSET));
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + FILE_ALIGNMENT - 1) & -FILE_ALIGNMENT;
+    }
+}
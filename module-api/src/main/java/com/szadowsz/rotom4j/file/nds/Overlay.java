@@ -0,0 +1,97 @@
+package com.szadowsz.rotom4j.file.nds;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An entry of an ARM9 or ARM7 overlay table: where an overlay is loaded in RAM, and the NitroFS file holding it.
+ */
+public class Overlay {
+
+    public static final int ENTRY_SIZE = 0x20;
+
+    static final int FLAG_COMPRESSED = 0x01;
+
+    protected final int id;
+    protected final long ramAddress;
+    protected final long ramSize;
+    protected final long bssSize;
+    protected final long staticInitStart;
+    protected final long staticInitEnd;
+    protected final int fileId;
+    protected final int compressedSize;
+    protected final int flags;
+
+    /**
+     * Read an overlay table entry
+     *
+     * @param table the overlay table, in little endian order
+     * @param offset the offset of the entry in the table
+     */
+    public Overlay(ByteBuffer table, int offset) {
+        id = table.getInt(offset);
+        ramAddress = table.getInt(offset + 0x04) & 0xFFFFFFFFL;
+        ramSize = table.getInt(offset + 0x08) & 0xFFFFFFFFL;
+        bssSize = table.getInt(offset + 0x0C) & 0xFFFFFFFFL;
+        staticInitStart = table.getInt(offset + 0x10) & 0xFFFFFFFFL;
+        staticInitEnd = table.getInt(offset + 0x14) & 0xFFFFFFFFL;
+        fileId = table.getInt(offset + 0x18);
+        int info = table.getInt(offset + 0x1C); // compressed size in the lower 24 bits, flags in the upper 8
+        compressedSize = info & 0xFFFFFF;
+        flags = info >>> 24;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getRamAddress() {
+        return ramAddress;
+    }
+
+    public long getRamSize() {
+        return ramSize;
+    }
+
+    public long getBssSize() {
+        return bssSize;
+    }
+
+    public long getStaticInitStart() {
+        return staticInitStart;
+    }
+
+    public long getStaticInitEnd() {
+        return staticInitEnd;
+    }
+
+    /**
+     * Get the NitroFS file id that holds the overlay's code
+     *
+     * @return the file id
+     */
+    public int getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Get the size of the overlay file when it is compressed, with the backwards LZ used by overlays
+     *
+     * @return the compressed size, or 0 if it is not compressed
+     */
+    public int getCompressedSize() {
+        return isCompressed() ? compressedSize : 0;
+    }
+
+    public boolean isCompressed() {
+        return (flags & FLAG_COMPRESSED) != 0;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Overlay %d (file %d) @ 0x%08X", id, fileId, ramAddress);
+    }
+}
@@ -3,19 +3,20 @@ package com.szadowsz.rotom4j.file.nitro;
 import com.szadowsz.rotom4j.binary.array.ByteArrayData;
 import com.szadowsz.rotom4j.binary.array.ByteArrayEditableData;
 import com.szadowsz.rotom4j.compression.CompFormat;
-import com.szadowsz.rotom4j.compression.JavaDSDecmp;
+import com.szadowsz.rotom4j.compression.DecodeCache;
 import com.szadowsz.rotom4j.binary.Endianness;
 import com.szadowsz.rotom4j.exception.InvalidDataException;
 import com.szadowsz.rotom4j.exception.InvalidFileException;
 import com.szadowsz.rotom4j.exception.NitroException;
-import com.szadowsz.rotom4j.binary.io.reader.HexInputStream;
 import com.szadowsz.rotom4j.binary.io.reader.MemBuf;
 import com.szadowsz.rotom4j.file.RotomFile;
 import com.szadowsz.rotom4j.file.RotomFormat;
+import com.szadowsz.rotom4j.utils.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
@@ -80,9 +81,20 @@ public abstract class BaseNFSFile extends RotomFile {
      * @param filePath      the path of the file
      */
     public BaseNFSFile(RotomFormat expectedMagic, String filePath) throws InvalidFileException {
-        super(filePath);
+        this(expectedMagic, new File(filePath), readFile(new File(filePath)));
+    }
+
+    /**
+     * Constructor to Use after reading the file into memory and assessing its contents, so it is not read again
+     *
+     * @param expectedMagic the file type
+     * @param file          the file the content was read from
+     * @param compData      the possibly compressed content of the file
+     */
+    public BaseNFSFile(RotomFormat expectedMagic, File file, ByteArrayEditableData compData) throws InvalidFileException {
+        super(file, compData);
         this.isCompressed = compression != CompFormat.NONE;
-        LOGGER.info("compressed=" + this.isCompressed);
+        LOGGER.debug("compressed={}", this.isCompressed);
         if (magic != expectedMagic){
             throw new InvalidFileException("Invalid magic for " + filePath);
         }
@@ -97,7 +109,22 @@ public abstract class BaseNFSFile extends RotomFile {
     public BaseNFSFile(RotomFormat expectedMagic, String name, ByteArrayEditableData compData) throws InvalidFileException {
         super(name,compData);
         this.isCompressed = compression != CompFormat.NONE;
-        LOGGER.info("compressed=" + this.isCompressed);
+        LOGGER.debug("compressed={}", this.isCompressed);
+        if (magic != expectedMagic){
+            throw new InvalidFileException("Invalid magic for " + filePath);
+        }
+    }
+
+    /**
+     * Constructor for uncompressed files that are read in place, e.g. memory-mapped, rather than loaded into memory
+     *
+     * @param expectedMagic the file type
+     * @param file          the file the content is read from
+     * @param mapping       the content of the file
+     */
+    protected BaseNFSFile(RotomFormat expectedMagic, File file, ByteBuffer mapping) throws InvalidFileException {
+        super(file, mapping, CompFormat.NONE);
+        this.isCompressed = false;
         if (magic != expectedMagic){
             throw new InvalidFileException("Invalid magic for " + filePath);
         }
@@ -125,19 +152,13 @@ public abstract class BaseNFSFile extends RotomFile {
      * @return decompressed data
      */
     protected byte[] decompress(byte[] data) {
-        LOGGER.info("Decompressing");
+        LOGGER.debug("Decompressing");
         byte[] decompressByte = new byte[0];
         try {
-            ByteArrayInputStream input = new ByteArrayInputStream(data);
-            HexInputStream hexInput = new HexInputStream(input);
-            int[] decompressInt = JavaDSDecmp.decompress(hexInput);
-            decompressByte = new byte[decompressInt.length];
-            for (int i = 0; i < decompressInt.length; i++) {
-                decompressByte[i] = (byte) decompressInt[i];
-            }
-            LOGGER.info("Successful Decompression");
+            decompressByte = DecodeCache.decompress(data);
+            LOGGER.debug("Successful Decompression");
         } catch (Exception e) {
-            LOGGER.info("Failed Decompression");
+            LOGGER.debug("Failed Decompression");
         }
 
         return decompressByte;
@@ -174,7 +195,7 @@ public abstract class BaseNFSFile extends RotomFile {
     public int findBlockBySignature(MemBuf.MemBufReader reader, String sig) {
         int sig32 = 0;
         for (int i = 0; i < 4; i++) {
-            int shift = 8 * ((endiannessOfBeginning == Endianness.EndiannessType.LITTLE) ? (3 - i) : i);
+            int shift = 8 * (3 - i); // the reader already matches the file's byte order
             sig32 |= (sig.charAt(i) & 0xFF) << shift;
         }
 
@@ -187,21 +208,27 @@ public abstract class BaseNFSFile extends RotomFile {
      * see Also the docs on the byte format
      *
      * @param reader the buffer to extrac the data from
+     * @return the reader to use for the rest of the file, in the byte order given by its BOM
      * @throws NitroException if the read of the header is unsuccessful
      */
-    protected void readGenericNtrHeaderCommon(MemBuf.MemBufReader reader) throws NitroException {
+    protected MemBuf.MemBufReader readGenericNtrHeaderCommon(MemBuf.MemBufReader reader) throws NitroException {
         //  0x4 - BOM - Read Endian format
         bom = reader.readUInt16();
 
-        // 0x6 - Read Version Constant
-        version = reader.readUInt16();
-
         // some games use big endian, some use little - NSMB uses big for example, but Spirit Tracks uses little
         if (bom == 0xFFFE) {
             endiannessOfBeginning = Endianness.EndiannessType.BIG;
+            if (magic != RotomFormat.NARC) { // NARCs have a big endian BOM but are stored little endian
+                reader = reader.withOrder(endiannessOfBeginning.toByteOrder());
+            }
+        }
+
+        // 0x6 - Read Version Constant
+        version = reader.readUInt16();
+        if (bom == 0xFFFE && magic == RotomFormat.NARC) {
             version = (version & 0xFF) << 8 | version >> 8;
         }
-        LOGGER.info("Bom: 0x" + Integer.toHexString(this.bom));
+        LOGGER.debug("Bom: 0x{}", Integer.toHexString(this.bom));
         // TODO
 //        if (version != 1 && version != 2){
 //            version = (version & 0xFF) << 8 | version >> 8;
@@ -209,7 +236,7 @@ public abstract class BaseNFSFile extends RotomFile {
 //                throw new InvalidDataException("Unsupported Version number: " + version);
 //            }
 //        }
-        LOGGER.info("Version: " + this.version);
+        LOGGER.debug("Version: {}", this.version);
 
         // 0x8 - Read File size
         fileSize = reader.readUInt32();
@@ -219,14 +246,30 @@ public abstract class BaseNFSFile extends RotomFile {
         if (headerSize != NTR_HEADER_SIZE) {
             throw new InvalidDataException("Unsupported File header size: " + headerSize);
         }
-        LOGGER.info("Header Size: " + Integer.toHexString(this.headerSize));
+        LOGGER.debug("Header Size: {}", Integer.toHexString(this.headerSize));
 
         // 0xE - Read number of sections
         numBlocks = reader.readUInt16();
-        LOGGER.info("Number Of Sections: " + Integer.toHexString(this.numBlocks));
+        LOGGER.debug("Number Of Sections: {}", Integer.toHexString(this.numBlocks));
 
         // if file size = total block size plus header size, file is old NNS G2D
         isOld = headerSize + numBlocks * 8 == fileSize;
+        traceSection("HEADER", 0, headerSize);
+        return reader;
+    }
+
+    /**
+     * Report a section to the parse trace listener, if one is set in the Configuration
+     *
+     * @param section the section's magic, as stored in the file
+     * @param offset the offset of the section from the start of the file
+     * @param size the size of the section in bytes
+     */
+    protected void traceSection(String section, long offset, long size) {
+        ParseTraceListener listener = Configuration.getParseTraceListener();
+        if (listener != null) {
+            listener.section(getFileName(), section, offset, size);
+        }
     }
 
     /**
@@ -235,19 +278,20 @@ public abstract class BaseNFSFile extends RotomFile {
      * see Also the docs on the byte format
      *
      * @param reader the buffer to extrac the data from
+     * @return the reader to use for the rest of the file, in the byte order given by its BOM
      * @throws NitroException if the read of the header is unsuccessful
      */
-    protected void readGenericNtrHeader(MemBuf.MemBufReader reader) throws NitroException {
+    protected MemBuf.MemBufReader readGenericNtrHeader(MemBuf.MemBufReader reader) throws NitroException {
         // 0x0 - Magic ID - Identifies the file format.
         byte[] magicBytes = reader.readBytes(4);
         RotomFormat magic = RotomFormat.valueOfLabel(new String(magicBytes, StandardCharsets.UTF_8));
         if (!this.magic.equals(magic)) {
             throw new InvalidDataException("Unsupported File encoding: " + magic.getLabel()[0] + ", should be " + this.magic.getLabel()[0]);
         }
-        LOGGER.info("Supported File encoding: " + this.magic.getLabel()[0]);
+        LOGGER.debug("Supported File encoding: {}", this.magic.getLabel()[0]);
 
         // Read the rest of the header in a common header method
-        readGenericNtrHeaderCommon(reader);
+        return readGenericNtrHeaderCommon(reader);
     }
 
 
@@ -258,9 +302,10 @@ public abstract class BaseNFSFile extends RotomFile {
      *
      * @param expectedMagic the magic we expect to read back to us
      * @param reader        the buffer to extract the data from
+     * @return the reader to use for the rest of the file, in the byte order given by its BOM
      * @throws NitroException if the read of the header is unsuccessful
      */
-    protected void readGenericNtrHeader(RotomFormat expectedMagic, MemBuf.MemBufReader reader) throws NitroException {
+    protected MemBuf.MemBufReader readGenericNtrHeader(RotomFormat expectedMagic, MemBuf.MemBufReader reader) throws NitroException {
         // Magic ID - Identifies the file format.
         byte[] magicBytes = reader.readBytes(4);
         RotomFormat magic = RotomFormat.valueOfLabel(new String(magicBytes, StandardCharsets.UTF_8));
@@ -268,10 +313,10 @@ public abstract class BaseNFSFile extends RotomFile {
             throw new InvalidDataException("Unsupported File encoding: " + magic.getLabel()[0] + ", should be " + expectedMagic.getLabel()[0]);
         }
         this.magic = magic;
-        LOGGER.info("Supported File encoding: " + this.magic.getLabel()[0]);
+        LOGGER.debug("Supported File encoding: {}", this.magic.getLabel()[0]);
 
         // Read the rest of the header in a common header method
-        readGenericNtrHeaderCommon(reader);
+        return readGenericNtrHeaderCommon(reader);
     }
 
     /**
@@ -0,0 +1,19 @@
+package com.szadowsz.rotom4j.file.nitro;
+
+/**
+ * Receives the location of each section as Nitro files are parsed, so a file's layout can be inspected without turning
+ * on field-by-field logging. Set with {@link com.szadowsz.rotom4j.utils.Configuration#setParseTraceListener}.
+ */
+@FunctionalInterface
+public interface ParseTraceListener {
+
+    /**
+     * A section has been read
+     *
+     * @param fileName the name of the file being parsed
+     * @param section the section's magic, as stored in the file, or HEADER for the generic file header
+     * @param offset the offset of the section from the start of the file
+     * @param size the size of the section in bytes, as given by the file
+     */
+    void section(String fileName, String section, long offset, long size);
+}
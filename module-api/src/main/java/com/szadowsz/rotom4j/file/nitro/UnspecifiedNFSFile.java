@@ -8,6 +8,8 @@ import com.szadowsz.rotom4j.exception.NitroException;
 import com.szadowsz.rotom4j.binary.io.reader.MemBuf;
 import com.szadowsz.rotom4j.file.RotomFormat;
 
+import java.io.File;
+
 /**
  * Class to hold the data of Nitro files that are not supported specifically yet
  */
@@ -20,12 +22,23 @@ public class UnspecifiedNFSFile extends BaseNFSFile {
      * @param filePath  the path of the file
      */
     public UnspecifiedNFSFile(RotomFormat magic, String filePath) throws NitroException {
-        super(magic,filePath);
+        this(magic, new File(filePath), readFile(new File(filePath)));
+    }
+
+    /**
+     * Constructor to Use after reading the file into memory and assessing its contents
+     *
+     * @param magic     the file type
+     * @param file      the file the content was read from
+     * @param compData  the possibly compressed content of the file
+     */
+    public UnspecifiedNFSFile(RotomFormat magic, File file, ByteArrayEditableData compData) throws NitroException {
+        super(magic, file, compData);
 
-        MemBuf buf = MemBuf.create(data);
+        MemBuf buf = MemBuf.wrap(data);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
@@ -36,10 +49,10 @@ public class UnspecifiedNFSFile extends BaseNFSFile {
 
     public UnspecifiedNFSFile(RotomFormat magic, String name, ByteArrayEditableData compData) throws NitroException {
         super(magic, name, compData);
-        MemBuf buf = MemBuf.create(data);
+        MemBuf buf = MemBuf.wrap(data);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
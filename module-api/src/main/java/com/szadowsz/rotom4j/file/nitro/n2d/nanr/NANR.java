@@ -5,6 +5,7 @@ import com.szadowsz.rotom4j.NFSFactory;
 import com.szadowsz.rotom4j.file.nitro.DrawableWithGraphic;
 import com.szadowsz.rotom4j.file.RotomFormat;
 import com.szadowsz.rotom4j.file.nitro.n2d.nanr.anime.AnimeSequence;
+import com.szadowsz.rotom4j.file.nitro.n2d.nanr.anime.AnimeTimeline;
 import com.szadowsz.rotom4j.file.nitro.n2d.nanr.anime.FrameData;
 import com.szadowsz.rotom4j.exception.NitroException;
 import com.szadowsz.rotom4j.file.nitro.BaseNFSFile;
@@ -17,10 +18,12 @@ import com.szadowsz.rotom4j.utils.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 public class NANR extends BaseNFSFile implements DrawableWithGraphic {
     private static final Logger logger = LoggerFactory.getLogger(NANR.class);
@@ -28,6 +31,8 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
     protected static final int BACKGROUND_WIDTH = 512;
     protected static final int BACKGROUND_HEIGHT = 256;
 
+    public static final int DEFAULT_FRAME_CACHE_SIZE = 64; // 512 KiB a frame
+
     // ABNK
 
     // header
@@ -43,6 +48,12 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
     private byte[] padding1;
 
     private AnimeSequence[] sequences;  //animation sequences
+    private AnimeTimeline[] timelines;  //frame shown at each tick of each sequence
+
+    // rendered frames, keyed by sequence and frame index, least recently used first
+    private final LinkedHashMap<Long, BufferedImage> frameCache = new LinkedHashMap<>(16, 0.75f, true);
+    private int frameCacheSize = DEFAULT_FRAME_CACHE_SIZE;
+    private boolean frameCacheTransparent;
 
     private NCER ncer;
 
@@ -77,18 +88,28 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
     }
 
     public NANR(String path) throws NitroException {
-        super(RotomFormat.NANR, path);
-        MemBuf dataBuf = MemBuf.create(data);
+        this(new File(path), readFile(new File(path)));
+    }
+
+    /**
+     * Generates an object representation of a NANR file that has already been read into memory
+     *
+     * @param file the file the content was read from
+     * @param compData the possibly compressed content of the file
+     */
+    public NANR(File file, ByteArrayEditableData compData) throws NitroException {
+        super(RotomFormat.NANR, file, compData);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
         int fileSize = dataBuf.writer().getPosition();
-        logger.debug("\nNANR file, " + fileFullName + ", initialising with size of " + fileSize + " bytes");
+        logger.debug("\nNANR file, {}, initialising with size of {} bytes", fileFullName, fileSize);
 
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
 
-        File[] ncers = new File(path).getParentFile().listFiles(f -> f.getName().endsWith(".NCER")  &&
+        File[] ncers = file.getAbsoluteFile().getParentFile().listFiles(f -> f.getName().endsWith(".NCER")  &&
                 f.getName().substring(0, f.getName().lastIndexOf('.')).equals(this.objName));
         if (ncers != null && ncers.length > 0) {
-            logger.debug("Found corresponding NCER file, " + ncers[0]);
+            logger.debug("Found corresponding NCER file, {}", ncers[0]);
             this.ncer = NCER.fromFile(ncers[0]);
             logger.debug("Read NCER file\n");
         }
@@ -99,12 +120,12 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
 
     public NANR(String fileName, ByteArrayEditableData compData) throws NitroException {
         super(RotomFormat.NANR, fileName, compData);
-        MemBuf dataBuf = MemBuf.create(data);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
         int fileSize = dataBuf.writer().getPosition();
-        logger.debug("\nNANR file, " + fileName + ", initialising with size of " + fileSize + " bytes");
+        logger.debug("\nNANR file, {}, initialising with size of {} bytes", fileName, fileSize);
 
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
 
         // reader position is now 0x10
         readFile(reader);
@@ -119,35 +140,35 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
             reader.setPosition(frame.headerPos);
 
             frame.dataOffset = reader.readUInt32();
-            logger.info("Animation " + aniNum + " Frame " + j + " Data Offset: " + frame.dataOffset);
+            logger.trace("Animation {} Frame {} Data Offset: {}", aniNum, j, frame.dataOffset);
 
             frame.frameDuration = reader.readUInt16();
-            logger.info("Animation " + aniNum + " Frame " + j + " Duration: " + frame.frameDuration);
+            logger.trace("Animation {} Frame {} Duration: {}", aniNum, j, frame.frameDuration);
 
             frame.constant = reader.readUInt16();
-            logger.info("Animation " + aniNum + " Frame " + j + " Constant: " + frame.constant);
+            logger.trace("Animation {} Frame {} Constant: {}", aniNum, j, frame.constant);
 
             // Frame Data
             reader.setPosition(frameDataStart + frame.dataOffset);
 
             frame.cellIndex = reader.readUInt16();
-            logger.info("Animation " + aniNum + " Frame " + j + " Cell: " + frame.cellIndex);
+            logger.trace("Animation {} Frame {} Cell: {}", aniNum, j, frame.cellIndex);
 
             int og = reader.getPosition();
             int tmp = reader.readUInt16();
             if (tmp == 52428) { // 0xCCCC
                 frame.type = 0;
-                logger.info("Animation " + aniNum + " Frame " + j + " Type: 0");
+                logger.trace("Animation {} Frame {} Type: 0", aniNum, j);
                 frame.garbage = tmp;
             } else if (tmp == 48879) { // 0xBEEF
                 frame.type = 2;
-                logger.info("Animation " + aniNum + " Frame " + j + " Type: 2");
+                logger.trace("Animation {} Frame {} Type: 2", aniNum, j);
                 frame.xDisplace = reader.readUInt16();
                 frame.yDisplace = reader.readUInt16();
             } else {
                 reader.setPosition(og);
                 frame.type = 1;
-                logger.info("Animation " + aniNum + " Frame " + j + " Type: 1");
+                logger.trace("Animation {} Frame {} Type: 1", aniNum, j);
                 frame.rotation = reader.readUInt16();
                 frame.scaleX = reader.readInt();
                 frame.scaleY = reader.readInt();
@@ -156,53 +177,54 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
             }
 
             if (frame.type>0){
-                logger.info("Animation " + aniNum + " Frames " + j + " xDisplace: " + frame.xDisplace);
-                logger.info("Animation " + aniNum + " Frames " + j + " yDisplace: " + frame.yDisplace);
+                logger.trace("Animation {} Frames {} xDisplace: {}", aniNum, j, frame.xDisplace);
+                logger.trace("Animation {} Frames {} yDisplace: {}", aniNum, j, frame.yDisplace);
             }
         }
     }
 
     @Override
     protected void readFile(MemBuf.MemBufReader reader) throws NitroException {
-        abnkMagic = reader.readString(4);
+        abnkMagic = reader.readMagic();
         if (!abnkMagic.equals("KNBA")) {
             throw new RuntimeException("Not a valid NANR file.");
         }
         abnkSectionSize = reader.readUInt32();
 
         int start = reader.getPosition();
-        logger.info("ABNK offset start @ " + start);
+        traceSection(abnkMagic, start - 8, abnkSectionSize);
+        logger.debug("ABNK offset start @ {}", start);
 
         int labl = findBlockBySignature(reader, "LABL");
-        logger.info("Found LABL section @ " + labl);
+        logger.debug("Found LABL section @ {}", labl);
         int uext = findBlockBySignature(reader, "UEXT");
-        logger.info("Found UEXT section @ " + uext);
+        logger.debug("Found UEXT section @ {}", uext);
 
         nAnimations = reader.readUInt16();
         // options->sequenceCount = data[0x18] | (data[0x19] << 8);
-        logger.info("ABNK Animations Count: " + nAnimations);
+        logger.debug("ABNK Animations Count: {}", nAnimations);
 
         nTotalFrames = reader.readUInt16();
         //    options->frameCount = data[0x1A] | (data[0x1B] << 8);
-        logger.info("ABNK Frame Count: " + nTotalFrames);
+        logger.debug("ABNK Frame Count: {}", nTotalFrames);
 
         animationsOffset = reader.readInt();
-        logger.info("ABNK Animations Offset: " + animationsOffset);
+        logger.debug("ABNK Animations Offset: {}", animationsOffset);
         int aniStart = start + animationsOffset;
-        logger.info("ABNK Animations Pos: " + aniStart);
+        logger.debug("ABNK Animations Pos: {}", aniStart);
 
         framesHeaderOffset = reader.readInt();
-        logger.info("ABNK Frame Header Offset: " + framesHeaderOffset);
+        logger.debug("ABNK Frame Header Offset: {}", framesHeaderOffset);
         int frameHeadStart = start + framesHeaderOffset;
-        logger.info("ABNK Frame Header Pos: " + frameHeadStart);
+        logger.debug("ABNK Frame Header Pos: {}", frameHeadStart);
 
         framesDataOffset = reader.readInt();
-        logger.info("ABNK Frame Data Offset: " + framesDataOffset);
+        logger.debug("ABNK Frame Data Offset: {}", framesDataOffset);
         int frameDataStart = start + framesDataOffset;
-        logger.info("ABNK Frame Data Pos: " + frameDataStart);
+        logger.debug("ABNK Frame Data Pos: {}", frameDataStart);
 
         padding1 = reader.readBytes(8);
-        logger.info("Current Position " + reader.getPosition());
+        logger.debug("Current Position {}", reader.getPosition());
 
         // Animations
         sequences = new AnimeSequence[nAnimations];
@@ -212,55 +234,65 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
             // options->sequenceData[i]->frameCount = data[offset] | (data[offset + 1] << 8);
             ani.nFrames = reader.readUInt16(); // 0x0 (0-2) sequenceArray[i].nFrames = byteBuffer.getShort(sequenceArrayOffset + i * 12);
             ani.frames = new FrameData[ani.nFrames];
-            logger.info("Animation " + i + " Frames: " + ani.nFrames);
+            logger.debug("Animation {} Frames: {}", i, ani.nFrames);
 
             // options->sequenceData[i]->loopStartFrame = data[offset + 2] | (data[offset + 3] << 8);
             ani.loopStartFrame = reader.readUInt16(); // 0x4 (0-2) sequenceArray[i].startFrameIndex = byteBuffer.getShort(sequenceArrayOffset + i * 12 + 2);
 
             // options->sequenceData[i]->animationElement = data[offset + 4] | (data[offset + 5] << 8);
             ani.animationElement = reader.readUInt16(); // 0x4 (0-2) sequenceArray[i].startFrameIndex = byteBuffer.getShort(sequenceArrayOffset + i * 12 + 2);
-            logger.info("Animation " + i + " Element: " + ani.animationElement);
+            logger.debug("Animation {} Element: {}", i, ani.animationElement);
 
             // options->sequenceData[i]->animationType = data[offset + 6] | (data[offset + 7] << 8);
             ani.animationType = reader.readUInt16(); // 0x6 (0-2) sequenceArray[i].type = byteBuffer.getInt(sequenceArrayOffset + i * 12 + 4);
-            logger.info("Animation " + i + " Type: " + ani.animationType);
+            logger.debug("Animation {} Type: {}", i, ani.animationType);
 
             // options->sequenceData[i]->playbackMode = data[offset + 8] | (data[offset + 9] << 8) | (data[offset + 10] << 16) | (data[offset + 11] << 24);
             ani.playbackMode = reader.readInt(); // 0x8 (0-4) sequenceArray[i].mode = byteBuffer.getInt(sequenceArrayOffset + i * 12 + 8);
-            logger.info("Animation " + i + " Playback Mode: " + ani.playbackMode);
+            logger.debug("Animation {} Playback Mode: {}", i, ani.playbackMode);
 
             // frameOffsets[i] = data[offset + 12] | (data[offset + 13] << 8) | (data[offset + 14] << 16) | (data[offset + 15] << 24);
             ani.startFrameOffset = reader.readInt();  // 0xC (0-4)
-            logger.info("Animation " + i + " startFrameOffset: " + ani.startFrameOffset);
+            logger.debug("Animation {} startFrameOffset: {}", i, ani.startFrameOffset);
             int framePos = start + framesHeaderOffset + ani.startFrameOffset;
-            logger.info("Animation " + i + " Start Frame Index: " + framePos);
+            logger.debug("Animation {} Start Frame Index: {}", i, framePos);
 
             int aniPos = reader.getPosition();
-            logger.info("Animation " + i + " Current Pos: " + aniPos);
+            logger.debug("Animation {} Current Pos: {}", i, aniPos);
             reader.setPosition(framePos);
-            logger.info("Animation " + i + " Frame 0 Pos: " + reader.getPosition());
+            logger.debug("Animation {} Frame 0 Pos: {}", i, reader.getPosition());
 
             // Read Frames
             readFrames(reader, ani, frameHeadStart, i, frameDataStart);
             reader.setPosition(aniPos);
         }
 
+        timelines = new AnimeTimeline[nAnimations];
+        for (int i = 0; i < nAnimations; i++) {
+            timelines[i] = buildTimeline(sequences[i]);
+        }
+
         if (labl != -1){
-            logger.debug("Reading LABL section @ " + labl);
+            logger.debug("Reading LABL section @ {}", labl);
             reader.setPosition(labl);
-            lablID = reader.readString(4);
+            lablID = reader.readMagic();
             lablSectionSize = reader.readUInt32();
-            logger.debug("LABL section size " + lablSectionSize + " bytes");
+            traceSection(lablID, labl, lablSectionSize);
+            logger.debug("LABL section size {} bytes", lablSectionSize);
             int sectionSize = (int) (lablSectionSize-8);
             labels = reader.readBytes(sectionSize);
-            logger.debug("Labels " + new String(labels, StandardCharsets.UTF_8));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Labels {}", new String(labels, StandardCharsets.UTF_8));
+            }
         }
 
         if (uext != -1) {
-            logger.debug("Reading UEXT section @ " + uext);
-            uextID = reader.readString(4);
+            logger.debug("Reading UEXT section @ {}", uext);
+            reader.setPosition(uext);
+            uextID = reader.readMagic();
             uextSectionSize = reader.readUInt32();
-            logger.debug("UEXT section size " + uextSectionSize + " bytes");
+            traceSection(uextID, uext, uextSectionSize);
+            logger.debug("UEXT section size {} bytes", uextSectionSize);
             int sectionSize = (int) (uextSectionSize-8);
             uextData = reader.readBytes(sectionSize);
         }
@@ -315,20 +347,72 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
         return sequence.nFrames - 1;
     }
 
-    protected Color[] drawFrame(int sequenceIndex, int frame, int ofsX, int ofsY) throws NitroException {
+    /**
+     * Work out the frame shown at each tick of a sequence, up to the point where its play mode starts repeating
+     *
+     * @param sequence the sequence
+     * @return the timeline of the sequence
+     */
+    protected AnimeTimeline buildTimeline(AnimeSequence sequence) {
+        if (sequence.nFrames == 0) {
+            return new AnimeTimeline(new int[]{0}, 0);
+        }
+        int length;
+        int loopStart;
+        switch (sequence.playbackMode) {
+            case 2 -> { // forward loop, cycles every nFrames ticks
+                length = sequence.nFrames;
+                loopStart = 0;
+            }
+            case 4 -> { // reverse loop, cycles every nCycleFrames ticks
+                int nCycleFrames = sequence.nFrames * 2 - sequence.frames[sequence.nFrames - 1].frameDuration - sequence.frames[0].frameDuration;
+                length = Math.max(nCycleFrames, 1);
+                loopStart = 0;
+            }
+            default -> { // forward, reverse and invalid modes stop on a single frame by 2 * nFrames ticks
+                length = Math.max(sequence.nFrames * 2 + 2 - sequence.startFrameOffset, 1);
+                loopStart = length - 1;
+            }
+        }
+        int[] frames = new int[length];
+        for (int tick = 0; tick < length; tick++) {
+            frames[tick] = getAnimationFrameFromFrame(sequence, getDrawFrameIndex(sequence, tick));
+        }
+        return new AnimeTimeline(frames, loopStart);
+    }
+
+    /**
+     * Get the timeline of a sequence, the frame it shows at each tick
+     *
+     * @param sequenceIndex the sequence
+     * @return the timeline of the sequence
+     */
+    public AnimeTimeline getTimeline(int sequenceIndex) {
+        return timelines[sequenceIndex];
+    }
+
+    /**
+     * Draw a frame of an animation sequence
+     *
+     * @return the ARGB pixels of the frame, in the NCER's reusable surface, or null if there is nothing to draw with
+     */
+    protected int[] drawFrame(int sequenceIndex, int frame, int ofsX, int ofsY) throws NitroException {
+        // frame is not referring to the frame index, but rather the current frame of animation
+        return drawAnimationFrame(sequenceIndex, timelines[sequenceIndex].getFrameAt(frame), ofsX, ofsY);
+    }
+
+    /**
+     * Draw an animation frame of a sequence
+     *
+     * @return the ARGB pixels of the frame, in the NCER's reusable surface, or null if there is nothing to draw with
+     */
+    protected int[] drawAnimationFrame(int sequenceIndex, int frameIndex, int ofsX, int ofsY) throws NitroException {
         if (ncer == null || ncer.getNCGR() == null){
             return null;
         }
-        Color[] frameBuffer;
+        int[] frameBuffer;
         AnimeSequence sequence = sequences[sequenceIndex];
         int animType = sequence.animationType & 0xFFFF;
-
-        // frame is not referring to the frame index, but rather the current frame of animation
-        // using play mode, clamp drawFrameIndex to the range [0, nTotalFrames)
-        int drawFrameIndex = getDrawFrameIndex(sequence, frame);
-
-        //next, determine the animation frame that contains drawFrameIndex.
-        int frameIndex = getAnimationFrameFromFrame(sequence, drawFrameIndex);
         FrameData frameData = sequence.frames[frameIndex];
 
         //now, determine the type of frame and how to draw it.
@@ -408,40 +492,175 @@ public class NANR extends BaseNFSFile implements DrawableWithGraphic {
         return getImage(0,0);
     }
 
+    /**
+     * Get the image shown at a tick of a sequence. Rendered frames are cached, so the image may be shared with earlier
+     * and later calls and must not be modified.
+     *
+     * @param sequence the sequence
+     * @param frame the number of ticks since the sequence started
+     * @return the 512x256 image of the frame
+     */
     public BufferedImage getImage(int sequence,int frame) {
-        BufferedImage image = new BufferedImage(BACKGROUND_WIDTH, BACKGROUND_HEIGHT, BufferedImage.TYPE_INT_ARGB);;
-        if (sequences[sequence].nFrames > 0) {
-            try {
-                Color[] frameBuffer = drawFrame(sequence, frame, 0, 0);
-                if (frameBuffer != null) {
-                    int[] bits = new int[frameBuffer.length];
-                    for (int i = 0; i < bits.length; i++) {
-                        bits[i] = frameBuffer[i].getRGB();
-                    }
-                    image.setRGB(0, 0, BACKGROUND_WIDTH, BACKGROUND_HEIGHT, bits, 0, BACKGROUND_WIDTH);
-                }
-            } catch (NitroException n){
+        if (sequences[sequence].nFrames == 0) {
+            return new BufferedImage(BACKGROUND_WIDTH, BACKGROUND_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        }
+        int frameIndex = timelines[sequence].getFrameAt(frame);
+        long key = ((long) sequence << 32) | frameIndex;
+        BufferedImage image = getCachedFrame(key);
+        if (image != null) {
+            return image;
+        }
 
+        image = new BufferedImage(BACKGROUND_WIDTH, BACKGROUND_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        try {
+            int[] frameBuffer = drawAnimationFrame(sequence, frameIndex, 0, 0);
+            if (frameBuffer != null) {
+                int[] bits = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                System.arraycopy(frameBuffer, 0, bits, 0, bits.length);
+                cacheFrame(key, image);
             }
+        } catch (NitroException n){
+
         }
         return image;
     }
 
+    private synchronized BufferedImage getCachedFrame(long key) {
+        if (frameCacheTransparent != Configuration.isRenderTransparent()) {
+            frameCache.clear();
+            frameCacheTransparent = Configuration.isRenderTransparent();
+        }
+        return frameCache.get(key);
+    }
+
+    private synchronized void cacheFrame(long key, BufferedImage image) {
+        if (frameCacheSize == 0) {
+            return;
+        }
+        frameCache.put(key, image);
+        Iterator<Long> it = frameCache.keySet().iterator(); // iterates from least recently used
+        while (frameCache.size() > frameCacheSize) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Forget the rendered frames, so they are drawn again with the current cells, graphics and palette
+     */
+    public synchronized void clearFrameCache() {
+        frameCache.clear();
+    }
+
+    /**
+     * Set how many rendered frames to keep, the least recently shown are dropped first
+     *
+     * @param frames the maximum number of frames, 0 disables the cache
+     */
+    public synchronized void setFrameCacheSize(int frames) {
+        frameCacheSize = frames;
+        frameCache.clear();
+    }
+
+    /**
+     * Start playing a sequence from its first tick
+     *
+     * @param sequence the sequence to play
+     * @return the playback, which steps one tick per frame it returns
+     */
+    public Playback playback(int sequence) {
+        return new Playback(sequence);
+    }
+
+    /**
+     * Set the cells the frames are drawn from. The rendered frames are only forgotten if the cells are different ones,
+     * as this is called again whenever the view is zoomed or laid out; edits made in place need
+     * {@link #clearFrameCache()}.
+     *
+     * @param ncer the cells to draw
+     */
     public void setNCER(NCER ncer) {
-        this.ncer = ncer;
+        if (this.ncer != ncer) {
+            this.ncer = ncer;
+            clearFrameCache();
+        }
     }
 
     @Override
     public void setNCGR(NCGR ncgr) {
         if (ncer != null) {
+            boolean changed = ncer.getNCGR() != ncgr;
             this.ncer.setNCGR(ncgr);
+            if (changed) {
+                clearFrameCache();
+            }
         }
     }
 
     @Override
     public void setNCLR(NCLR nclr) throws NitroException {
         if (ncer != null) {
+            boolean changed = ncer.getNCLR() != nclr;
             ncer.setNCLR(nclr);
+            if (changed) {
+                clearFrameCache();
+            }
+        }
+    }
+
+    /**
+     * Plays a sequence a tick at a time, the frames are looked up from the timeline and the frame cache
+     */
+    public class Playback implements Iterator<BufferedImage> {
+        private final int sequence;
+        private int tick;
+
+        private Playback(int sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Get the image of the current tick and move on to the next tick
+         *
+         * @return the image of the frame, which must not be modified
+         */
+        public BufferedImage nextFrame() {
+            return getImage(sequence, tick++);
+        }
+
+        /**
+         * A sequence can always be played on, the one-shot play modes keep showing their last frame
+         */
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public BufferedImage next() {
+            return nextFrame();
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the tick the next frame is taken from
+         */
+        public int getTick() {
+            return tick;
+        }
+
+        /**
+         * @return the index in the sequence of the frame the next tick shows
+         */
+        public int getFrameIndex() {
+            return timelines[sequence].getFrameAt(tick);
+        }
+
+        public void reset() {
+            tick = 0;
         }
     }
 }
@@ -0,0 +1,46 @@
+package com.szadowsz.rotom4j.file.nitro.n2d.nanr.anime;
+
+/**
+ * The animation frame shown at each tick of a sequence, worked out once for its play mode.
+ * <p>
+ * Every play mode settles into a cycle, a single frame for the one-shot modes, so the timeline stores the ticks up to
+ * the end of the first cycle and wraps later ticks back into it.
+ */
+public class AnimeTimeline {
+
+    private final int[] frames;
+    private final int loopStart;
+
+    /**
+     * @param frames the animation frame index shown at each tick, up to the end of the first cycle
+     * @param loopStart the tick the cycle starts at, the last tick for a sequence that stops on its last frame
+     */
+    public AnimeTimeline(int[] frames, int loopStart) {
+        this.frames = frames;
+        this.loopStart = loopStart;
+    }
+
+    /**
+     * Get the animation frame shown at a tick
+     *
+     * @param tick the number of ticks since the sequence started
+     * @return the index of the frame in the sequence
+     */
+    public int getFrameAt(int tick) {
+        if (tick < frames.length) {
+            return frames[Math.max(tick, 0)];
+        }
+        return frames[loopStart + (tick - loopStart) % (frames.length - loopStart)];
+    }
+
+    /**
+     * @return the number of ticks stored, after which the timeline repeats from its loop start
+     */
+    public int getLength() {
+        return frames.length;
+    }
+
+    public int getLoopStart() {
+        return loopStart;
+    }
+}
@@ -21,6 +21,8 @@ package com.szadowsz.rotom4j.file.nitro.n2d.narc;
 
 import com.szadowsz.rotom4j.NFSFactory;
 import com.szadowsz.rotom4j.binary.array.ByteArrayEditableData;
+import com.szadowsz.rotom4j.compression.CompFormat;
+import com.szadowsz.rotom4j.compression.LZCompressor;
 import com.szadowsz.rotom4j.exception.NitroException;
 import com.szadowsz.rotom4j.file.RotomFile;
 import com.szadowsz.rotom4j.file.RotomFormat;
@@ -31,18 +33,31 @@ import com.szadowsz.rotom4j.file.index.LstFile;
 import com.szadowsz.rotom4j.file.index.NaixFile;
 import com.szadowsz.rotom4j.file.index.ScrFile;
 import com.szadowsz.rotom4j.binary.io.reader.MemBuf;
-import com.szadowsz.rotom4j.utils.StringFormatter;
-import com.szadowsz.rotom4j.binary.io.writer.BinaryWriter;
+import com.szadowsz.rotom4j.utils.XXHash64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
 
 /**
  * An object representation of a NARC file (Nitro-Archive)
@@ -54,8 +69,44 @@ public class NARC extends BaseNFSFile {
     public static final int FIMG_HEADER_SIZE = 8;
     public static final int FNTB_HEADER_SIZE = 8;
     protected Fnt.Folder filenames; // represents the root folder of the filesystem
-    protected ArrayList<byte[]> rawFiles;
-    protected ArrayList<RotomFile> files;
+    protected MemBuf fimg; // view of the file image block, which the FATB offsets are relative to
+    protected int[] entryOffsets; // start and end offset pairs for each file, as read from the FATB
+    protected ArrayList<byte[]> rawFiles; // null for entries that are only held by the file image block
+    protected List<RotomFile> files;
+    protected long[] decodedChecksums; // of each decoded compressed file's data, to find files changed through getFiles()
+    protected boolean mapped; // whether entries are decoded on first access rather than when the NARC is read
+    protected Executor loadExecutor; // decodes entries concurrently when set
+
+    /**
+     * Progress callback for unpacking a Narc
+     */
+    public interface UnpackListener {
+
+        /**
+         * A file has been written
+         *
+         * @param file the path the file was written to
+         * @param completed the number of files written so far
+         * @param total the number of files being unpacked
+         */
+        void fileUnpacked(Path file, int completed, int total);
+    }
+
+    /**
+     * Bounded pool used for parallel loading when no executor is given
+     */
+    private static final class LoadPool {
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Get the default executor for parallel loading and unpacking, a ForkJoinPool bounded to the number of available processors
+     *
+     * @return the default load executor
+     */
+    public static Executor getDefaultLoadExecutor() {
+        return LoadPool.INSTANCE;
+    }
 
     /**
      * Read NARC data, and create a filename table and a list of files.
@@ -64,10 +115,22 @@ public class NARC extends BaseNFSFile {
      * @throws NitroException if there are issues reading the data/file
      */
     public NARC(String path) throws NitroException {
+        this(path, (Executor) null);
+    }
+
+    /**
+     * Read NARC data, and create a filename table and a list of files, decoding the files concurrently.
+     *
+     * @param path file path
+     * @param executor the executor to decode the files on, or null to decode them on the calling thread
+     * @throws NitroException if there are issues reading the data/file
+     */
+    public NARC(String path, Executor executor) throws NitroException {
         super(RotomFormat.NARC, path);
-        MemBuf buf = MemBuf.create(data);
+        this.loadExecutor = executor;
+        MemBuf buf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(RotomFormat.NARC,reader);
+        reader = readGenericNtrHeader(RotomFormat.NARC,reader);
         readFile(reader);
     }
 
@@ -80,9 +143,25 @@ public class NARC extends BaseNFSFile {
      */
     public NARC(String name, ByteArrayEditableData compData) throws NitroException {
         super(RotomFormat.NARC, name, compData);
-        MemBuf buf = MemBuf.create(data);
+        MemBuf buf = MemBuf.wrap(data);
+        MemBuf.MemBufReader reader = buf.reader();
+        reader = readGenericNtrHeader(RotomFormat.NARC,reader);
+        readFile(reader);
+    }
+
+    /**
+     * Read NARC data in place from a memory-mapped file, without decoding its files.
+     *
+     * @param file the NARC file
+     * @param mapping the mapped content of the file
+     * @throws NitroException if there are issues reading the data/file
+     */
+    protected NARC(File file, ByteBuffer mapping) throws NitroException {
+        super(RotomFormat.NARC, file, mapping);
+        this.mapped = true;
+        MemBuf buf = MemBuf.wrap(mapping);
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(RotomFormat.NARC,reader);
+        reader = readGenericNtrHeader(RotomFormat.NARC,reader);
         readFile(reader);
     }
 
@@ -104,16 +183,25 @@ public class NARC extends BaseNFSFile {
         long numFiles = reader.readUInt32();
 
         int fatbStart = reader.getPosition();
+        traceSection(fatbMagic, fatbStart - FATB_HEADER_SIZE, fatbSize);
 
         if (!fatbMagic.equals("BTAF")) {
             throw new RuntimeException("Incorrect NARC FATB magic: " + fatbMagic);
         }
 
+        entryOffsets = new int[(int) numFiles * 2];
+        int fimgLength = 0;
+        for (int i = 0; i < entryOffsets.length; i++) {
+            entryOffsets[i] = (int) reader.readUInt32();
+            fimgLength = Math.max(fimgLength, entryOffsets[i]);
+        }
+
         // read the file name block
         long fntbOffset = NTR_HEADER_SIZE + fatbSize;
         reader.setPosition(fntbOffset);
         String fntbMagic = reader.readString(4);
         long fntbSize = reader.readUInt32();
+        traceSection(fntbMagic, fntbOffset, fntbSize);
 
         if (!fntbMagic.equals("BTNF")) {
             throw new RuntimeException("Incorrect NARC FNTB magic: " + fntbMagic);
@@ -124,30 +212,29 @@ public class NARC extends BaseNFSFile {
         reader.setPosition(fimgOffset);
         String fimgMagic = reader.readString(4);
         long fimgSize = reader.readUInt32();
+        traceSection(fimgMagic, fimgOffset, fimgSize);
 
         if (!fimgMagic.equals("GMIF")) {
             throw new RuntimeException("Incorrect NARC FIMG magic: " + fimgMagic);
         }
 
-        int rawDataOffset = reader.getPosition(); // fimgOffset + 8
-        rawFiles = new ArrayList<>();
-        files = new ArrayList<>();
-
-        // read the files' contents
-        long startOffset;
-        long endOffset;
-        LOGGER.info("Parsing File Contents for " + getFileName());
-        for (int i = 0; i < numFiles; i++) {
-            LOGGER.info("Reading File index " + i + " of " + numFiles);
-            reader.setPosition(fatbStart + 8*i);
-            startOffset = reader.readUInt32();
-            endOffset = reader.readUInt32();
-            reader.setPosition(rawDataOffset + startOffset);
-            rawFiles.add(reader.readTo(rawDataOffset + endOffset));
-            try {
-               files.add(NFSFactory.fromNarc(getFileNameWithoutExt(),i,numFiles,rawFiles.get(i)));
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        fimg = reader.readSlice(fimgLength); // everything the FATB points at, so it does not matter if fimgSize is padded
+        rawFiles = new ArrayList<>(Collections.nCopies((int) numFiles, null));
+        decodedChecksums = new long[(int) numFiles];
+
+        if (mapped) {
+            files = new LazyFileList((int) numFiles);
+        } else {
+            // read the files' contents
+            LOGGER.debug("Parsing File Contents for {}", getFileName());
+            if (loadExecutor != null) {
+                files = new ArrayList<>(Arrays.asList(decodeFiles(0, (int) numFiles, loadExecutor)));
+            } else {
+                files = new ArrayList<>();
+                for (int i = 0; i < numFiles; i++) {
+                    LOGGER.trace("Reading File index {} of {}", i, numFiles);
+                    files.add(decodeFile(i));
+                }
             }
         }
 
@@ -156,6 +243,184 @@ public class NARC extends BaseNFSFile {
         filenames = Fnt.load(reader.readBytes((int) fntbSize));
     }
 
+    /**
+     * Decompress and parse one of the files contained within the Narc
+     *
+     * @param index the index of the file in the FATB
+     * @return the parsed file
+     */
+    protected RotomFile decodeFile(int index) {
+        RotomFile file;
+        try {
+            file = NFSFactory.fromNarc(getFileNameWithoutExt(), index, getFileCount(), getRawFile(index));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        if (!isStoredAsIs(file)) {
+            decodedChecksums[index] = XXHash64.hash(file.getData());
+        }
+        return file;
+    }
+
+    /**
+     * Whether a file's data is stored in its entry as it is, so a change to it can be found by comparing the two
+     */
+    private static boolean isStoredAsIs(RotomFile file) {
+        return file.getCompression() == CompFormat.NONE || file.getCompression() == CompFormat.UNKNOWN;
+    }
+
+    /**
+     * Get a file without decoding it
+     *
+     * @param index the index of the file in the FATB
+     * @return the file, or null if it belongs to a mapped Narc and has not been requested yet
+     */
+    protected RotomFile getDecodedFile(int index) {
+        return (files instanceof LazyFileList lazy) ? lazy.peek(index) : files.get(index);
+    }
+
+    /**
+     * Encode the files whose data has changed since they were decoded, or that have been replaced in
+     * {@link #getFiles()}, back into their raw entries, compressed the same way the files were read. This is done when
+     * the Narc is packed.
+     * <p>
+     * Uncompressed files are compared with their entries, and compressed files with a hash of their data taken when
+     * they were decoded, so nothing is re-encoded unless it has changed.
+     * <p>
+     * Only changes to a file's data are seen, so a format that keeps its contents in other fields must write them back
+     * to its data first.
+     *
+     * @return the number of entries that were updated
+     * @throws NitroException if a changed file uses a compression that cannot be encoded
+     */
+    public int syncFiles() throws NitroException {
+        int synced = 0;
+        for (int i = 0; i < getFileCount(); i++) {
+            RotomFile file = getDecodedFile(i);
+            if (file == null) {
+                continue;
+            }
+            byte[] raw = encodeIfChanged(i, file);
+            if (raw != null) {
+                rawFiles.set(i, raw);
+                if (!isStoredAsIs(file)) {
+                    decodedChecksums[i] = XXHash64.hash(file.getData());
+                }
+                synced++;
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * Encode a file again if its data has changed since it was decoded, without changing its raw entry
+     *
+     * @param index the index of the file in the FATB
+     * @param file the decoded file
+     * @return the file's new raw entry, or null if it has not changed
+     * @throws NitroException if the file has changed and uses a compression that cannot be encoded
+     */
+    private byte[] encodeIfChanged(int index, RotomFile file) throws NitroException {
+        byte[] data = file.getData();
+        boolean unchanged = isStoredAsIs(file)
+                ? getEntryBuffer(index).equals(ByteBuffer.wrap(data))
+                : XXHash64.hash(data) == decodedChecksums[index];
+        if (unchanged) {
+            return null;
+        }
+        LOGGER.debug("File {} of {} has changed since it was decoded", index, getFileName());
+        return encodeFile(index, file, data);
+    }
+
+    private byte[] encodeFile(int index, RotomFile file, byte[] data) throws NitroException {
+        return switch (file.getCompression()) {
+            case NONE, UNKNOWN -> Arrays.copyOf(data, data.length);
+            case LZ77_10, LZ77_11 -> LZCompressor.compress(file.getCompression(), data, LZCompressor.Mode.OPTIMAL);
+            default -> throw new NitroException("Cannot encode file " + index + " of " + getFileName() + " with " + file.getCompression() + " compression");
+        };
+    }
+
+    /**
+     * Decompress and parse a range of the files contained within the Narc concurrently.
+     * <p>
+     * The range is split into a few batches per thread, rather than a task per file, as most entries are small. Every
+     * file is attempted, and failures are reported in index order: the lowest failing index is thrown, with the others
+     * attached as suppressed exceptions.
+     *
+     * @param from the index of the first file to decode
+     * @param to the index after the last file to decode
+     * @param executor the executor to decode the files on
+     * @return the parsed files, in index order
+     */
+    protected RotomFile[] decodeFiles(int from, int to, Executor executor) {
+        int count = to - from;
+        RotomFile[] decoded = new RotomFile[count];
+        RuntimeException[] errors = new RuntimeException[count];
+        runInBatches(count, executor, i -> {
+            try {
+                decoded[i] = decodeFile(from + i);
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+        });
+
+        RuntimeException failure = null;
+        for (int i = 0; i < count; i++) {
+            if (errors[i] != null) {
+                RuntimeException indexed = new RuntimeException("Failed to decode file " + (from + i) + " of " + getFileName(), errors[i]);
+                if (failure == null) {
+                    failure = indexed;
+                } else {
+                    failure.addSuppressed(indexed);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return decoded;
+    }
+
+    /**
+     * Run a task for each index in [0, count), split into a few batches per thread rather than a task per index
+     *
+     * @param count the number of indices
+     * @param executor the executor to run the batches on, or null to run them on the calling thread
+     * @param task the task to run for each index, which should not throw
+     */
+    private static void runInBatches(int count, Executor executor, IntConsumer task) {
+        if (executor == null) {
+            for (int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        int batchSize = Math.max(1, count / (Runtime.getRuntime().availableProcessors() * 4));
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int start = 0; start < count; start += batchSize) {
+            int batchStart = start;
+            int batchEnd = Math.min(count, start + batchSize);
+            batches.add(CompletableFuture.runAsync(() -> {
+                for (int i = batchStart; i < batchEnd; i++) {
+                    task.accept(i);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Decode every file of a mapped Narc that has not been requested yet, so later access does not have to wait on it.
+     * Does nothing for Narcs that were loaded normally, as their files are decoded when they are read.
+     *
+     * @param executor the executor to decode the files on
+     */
+    public void preload(Executor executor) {
+        if (files instanceof LazyFileList lazy) {
+            lazy.fill(executor);
+        }
+    }
+
     /**
      * Load a NARC archive from a filesystem file
      * @param path a String containing the path to a NARC file on disk
@@ -165,6 +430,55 @@ public class NARC extends BaseNFSFile {
         return new NARC(path);
     }
 
+    /**
+     * Load a NARC archive from a filesystem file, decoding its files concurrently
+     *
+     * @param path a String containing the path to a NARC file on disk
+     * @param executor the executor to decode the files on, e.g. {@link #getDefaultLoadExecutor()} or a virtual thread
+     *                 executor
+     * @return a Narc object
+     */
+    public static NARC fromFile(String path, Executor executor) throws IOException {
+        return new NARC(path, executor);
+    }
+
+    /**
+     * Open a NARC archive by memory-mapping it. Only the FATB and FNTB are parsed up front, each file is decompressed and
+     * parsed the first time it is requested from {@link #getFiles()}. Compressed archives cannot be read in place, so
+     * they are loaded as normal.
+     *
+     * @param path a String containing the path to a NARC file on disk
+     * @return a Narc object
+     * @throws IOException if the file could not be mapped or parsed
+     */
+    public static NARC map(String path) throws IOException {
+        return map(Paths.get(path));
+    }
+
+    /**
+     * Open a NARC archive by memory-mapping it. Only the FATB and FNTB are parsed up front, each file is decompressed and
+     * parsed the first time it is requested from {@link #getFiles()}. Compressed archives cannot be read in place, so
+     * they are loaded as normal.
+     *
+     * @param path the path to a NARC file on disk
+     * @return a Narc object
+     * @throws IOException if the file could not be mapped or parsed
+     */
+    public static NARC map(Path path) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after the channel closes
+        }
+        byte[] magic = new byte[4];
+        if (mapping.remaining() >= NTR_HEADER_SIZE) {
+            mapping.get(0, magic);
+        }
+        if (!RotomFormat.NARC.getLabel()[0].equals(new String(magic, StandardCharsets.US_ASCII))) {
+            return new NARC(path.toString());
+        }
+        return new NARC(path.toFile(), mapping);
+    }
+
     /**
      * Unpacks this Narc to disk at the specified path
      * @param dir a String containing the target directory to unpack the NARC to
@@ -203,18 +517,7 @@ public class NARC extends BaseNFSFile {
      * @exception IOException if the parent directory of the output subfiles does not exist
      */
     public void unpack(File dir) throws IOException {
-        if (!filenames.getFiles().isEmpty()) {
-            throw new RuntimeException("Unpacking of NARCs with internal filesystems not yet supported");
-        }
-
-        if (!dir.exists() && !dir.mkdir()) {
-            throw new RuntimeException("Failed to create output directory, check write permissions.");
-        }
-
-        for (int i = 0; i < files.size(); i++) {
-            System.out.println(StringFormatter.formatOutputString(i, files.size(), "", ""));
-            BinaryWriter.writeFile(Paths.get(dir.getAbsolutePath(),files.get(i).getFileName()), files.get(i).getData());
-        }
+        unpack(dir.toPath(), false, null, null);
     }
 
     /**
@@ -226,20 +529,99 @@ public class NARC extends BaseNFSFile {
      * @exception IOException if the parent directory of the output subfiles does not exist
      */
     public void unpackWithCompression(File dir) throws IOException {
+        unpack(dir.toPath(), true, null, null);
+    }
+
+    /**
+     * Unpacks this Narc to disk at the specified path, optionally writing the files concurrently.
+     * <p>
+     * Compressed files are written straight from the Narc's file image, without being copied, unless they have changed
+     * since they were decoded, in which case they are encoded again for the output only: the Narc itself is not
+     * changed, see {@link #syncFiles()} for that. Every file is attempted, and failures are reported in index order: the lowest failing index is thrown, with the others attached
+     * as suppressed exceptions.
+     *
+     * @param dir the target directory to unpack the NARC to
+     * @param withCompression whether to write the files as stored in the Narc, with a .bin suffix, rather than their
+     *                        decompressed contents
+     * @param executor the executor to write the files on, e.g. {@link #getDefaultLoadExecutor()}, or null to write them
+     *                 on the calling thread
+     * @param listener notified as each file is written, possibly from the executor's threads, or null
+     * @exception RuntimeException if this Narc has an internal filesystem, or a new directory at the specified path
+     * could not be created
+     * @exception IOException if any of the subfiles could not be written, or a changed file could not be encoded
+     */
+    public void unpack(Path dir, boolean withCompression, Executor executor, UnpackListener listener) throws IOException {
         if (!filenames.getFiles().isEmpty()) {
             throw new RuntimeException("Unpacking of NARCs with internal filesystems not yet supported");
         }
 
-        if (!dir.exists() && !dir.mkdir()) {
+        File dirFile = dir.toFile();
+        if (!dirFile.exists() && !dirFile.mkdir()) {
             throw new RuntimeException("Failed to create output directory, check write permissions.");
         }
 
-        for (int i = 0; i < files.size(); i++) {
-            System.out.println(StringFormatter.formatOutputString(i, files.size(), "", ""));
-            BinaryWriter.writeFile(Paths.get(dir.getAbsolutePath(),files.get(i).getFileName())+".bin", files.get(i).getCompressedData().getData());
+        int count = files.size();
+        Exception[] errors = new Exception[count];
+        AtomicInteger completed = new AtomicInteger();
+        runInBatches(count, executor, i -> {
+            try {
+                RotomFile file = files.get(i);
+                Path target;
+                ByteBuffer contents;
+                if (withCompression) {
+                    target = dir.resolve(file.getFileName() + ".bin");
+                    byte[] changed = encodeIfChanged(i, file);
+                    contents = (changed != null) ? ByteBuffer.wrap(changed) : getEntryBuffer(i);
+                } else {
+                    target = dir.resolve(file.getFileName());
+                    contents = ByteBuffer.wrap(file.getData());
+                }
+                writeEntry(target, contents);
+                if (listener != null) {
+                    listener.fileUnpacked(target, completed.incrementAndGet(), count);
+                }
+            } catch (IOException | RuntimeException e) {
+                errors[i] = e;
+            }
+        });
+
+        IOException failure = null;
+        for (int i = 0; i < count; i++) {
+            if (errors[i] != null) {
+                IOException indexed = new IOException("Failed to unpack file " + i + " of " + getFileName(), errors[i]);
+                if (failure == null) {
+                    failure = indexed;
+                } else {
+                    failure.addSuppressed(indexed);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        LOGGER.info("Unpacked {} files from {} to {}", count, getFileName(), dir);
+    }
+
+    private static void writeEntry(Path target, ByteBuffer contents) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
         }
     }
 
+    /**
+     * Rebuild this Narc and write it to disk at the specified path, in a single sequential write. Files that have
+     * changed since they were decoded are encoded again first, see {@link #syncFiles()}, and files that have not been
+     * changed or replaced since the Narc was read are written straight from its file image, without being re-encoded.
+     *
+     * @param path the path to write the NARC file to, which may be the file this Narc was read from
+     * @throws IOException if the file could not be written
+     */
+    public void pack(Path path) throws IOException {
+        new NarcWriter(this).write(path);
+    }
+
     /**
      * Get the current list of files contained within the Narc
      *
@@ -258,6 +640,63 @@ public class NARC extends BaseNFSFile {
         return files;
     }
 
+    /**
+     * Get the number of files contained within the Narc
+     *
+     * @return the number of files
+     */
+    public int getFileCount() {
+        return entryOffsets.length / 2;
+    }
+
+    /**
+     * Return the raw, possibly compressed, contents of a file contained within the Narc
+     *
+     * @param index the index of the file in the FATB
+     * @return a byte[] containing the contents of the requested NARC subfile
+     */
+    public byte[] getRawFile(int index) {
+        byte[] raw = rawFiles.get(index);
+        if (raw == null) {
+            int start = entryOffsets[2 * index];
+            int end = entryOffsets[2 * index + 1];
+            raw = fimg.slice(start, end - start).reader().getBuffer();
+        }
+        return raw;
+    }
+
+    /**
+     * Replace the raw, possibly compressed, contents of a file contained within the Narc. The file is parsed again from
+     * the new contents, and only replaced files are copied when the Narc is packed.
+     *
+     * @param index the index of the file in the FATB
+     * @param data a byte[] containing the contents to set for the specified NARC subfile
+     */
+    public void setRawFile(int index, byte[] data) {
+        rawFiles.set(index, Objects.requireNonNull(data));
+        if (files instanceof LazyFileList lazy) {
+            lazy.invalidate(index);
+        } else {
+            files.set(index, decodeFile(index));
+        }
+    }
+
+    /**
+     * Get a read-only view of the raw contents of a file, without copying it
+     *
+     * @param index the index of the file in the FATB
+     * @return a buffer over the replaced contents, or over the file's block in the file image if it is unchanged
+     */
+    protected ByteBuffer getEntryBuffer(int index) {
+        byte[] raw = rawFiles.get(index);
+        if (raw != null) {
+            return ByteBuffer.wrap(raw).asReadOnlyBuffer();
+        }
+        int start = entryOffsets[2 * index];
+        int end = entryOffsets[2 * index + 1];
+        return fimg.asReadOnlyBuffer().slice(start, end - start);
+    }
+
     /**
      * Return the contents of the file with the given filename (path).
      * @param filename a String containing the path to the requested NARC subfile
@@ -269,7 +708,7 @@ public class NARC extends BaseNFSFile {
         if (fid == -1) {
             throw new RuntimeException("Couldn't find file ID of \"" + filename + "\".");
         }
-        return rawFiles.get(fid);
+        return getRawFile(fid);
     }
 
     /**
@@ -283,7 +722,7 @@ public class NARC extends BaseNFSFile {
         if (fid == -1) {
             throw new RuntimeException("Couldn't find file ID of \"" + filename + "\".");
         }
-        rawFiles.set(fid, data);
+        setRawFile(fid, data);
     }
 
     /**
@@ -407,7 +846,7 @@ public class NARC extends BaseNFSFile {
 
         if (rawFiles.size() == narc.rawFiles.size()) {
             for (int i = 0; i < rawFiles.size(); i++) {
-                if (!Arrays.equals(rawFiles.get(i), narc.rawFiles.get(i))) {
+                if (!Arrays.equals(getRawFile(i), narc.getRawFile(i))) {
                     return false;
                 }
             }
@@ -419,6 +858,78 @@ public class NARC extends BaseNFSFile {
 
     @Override
     public int hashCode() {
-        return Objects.hash(filenames, rawFiles, endiannessOfBeginning);
+        return Objects.hash(filenames, getFileCount(), endiannessOfBeginning);
+    }
+
+    /**
+     * File list of a mapped Narc, which decodes each file the first time it is requested
+     */
+    protected class LazyFileList extends AbstractList<RotomFile> {
+        private final AtomicReferenceArray<RotomFile> decoded; // null until a file is first requested
+
+        protected LazyFileList(int size) {
+            this.decoded = new AtomicReferenceArray<>(size);
+        }
+
+        /**
+         * Get a file, decoding it if this is the first request for it. Different files can be decoded concurrently. If
+         * two threads request the same new file at once, both decode it and the first to finish wins, so every caller
+         * gets the same object.
+         */
+        @Override
+        public RotomFile get(int index) {
+            RotomFile file = decoded.get(index);
+            if (file == null) {
+                file = decodeFile(index);
+                RotomFile winner = decoded.compareAndExchange(index, null, file);
+                if (winner != null) {
+                    file = winner;
+                }
+            }
+            return file;
+        }
+
+        /**
+         * Replace a file without decoding the one it replaces
+         *
+         * @return the replaced file, or null if it had not been decoded
+         */
+        @Override
+        public RotomFile set(int index, RotomFile file) {
+            return decoded.getAndSet(index, file);
+        }
+
+        @Override
+        public int size() {
+            return decoded.length();
+        }
+
+        protected RotomFile peek(int index) {
+            return decoded.get(index);
+        }
+
+        protected void fill(Executor executor) {
+            int from = 0;
+            while (from < size()) {
+                while (from < size() && peek(from) != null) {
+                    from++;
+                }
+                int to = from;
+                while (to < size() && peek(to) == null) {
+                    to++;
+                }
+                if (from < to) {
+                    RotomFile[] range = decodeFiles(from, to, executor);
+                    for (int i = from; i < to; i++) {
+                        decoded.compareAndSet(i, null, range[i - from]);
+                    }
+                }
+                from = to;
+            }
+        }
+
+        protected void invalidate(int index) {
+            decoded.set(index, null);
+        }
     }
 }
@@ -0,0 +1,137 @@
+package com.szadowsz.rotom4j.file.nitro.n2d.narc;
+
+import com.szadowsz.rotom4j.file.nitro.n2d.narc.data.Fnt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * Streams a NARC archive to disk.
+ * <p>
+ * The header, FATB, FNTB and FIMG header are built in memory, as their size only depends on the number of files. The
+ * file image block is then written with gathering writes straight from each entry's buffer: entries that are unchanged
+ * since the NARC was read are written from its file image block without being copied or re-encoded. Files changed
+ * through {@link NARC#getFiles()} are encoded back into their entries first.
+ */
+public class NarcWriter {
+
+    private static final int HEADER_SIZE = 0x10;
+    private static final int ALIGNMENT = 4;
+    private static final byte PADDING = (byte) 0xFF;
+    private static final ByteBuffer PADDING_BYTES = ByteBuffer.wrap(new byte[]{PADDING, PADDING, PADDING}).asReadOnlyBuffer();
+
+    private final NARC narc;
+
+    /**
+     * @param narc the archive to write
+     */
+    public NarcWriter(NARC narc) {
+        this.narc = narc;
+    }
+
+    /**
+     * Write the archive to a file. The archive is written to a temporary file next to the target first, which then
+     * replaces it, so a NARC can be packed over the file it was mapped from. A file that is replaced keeps its POSIX
+     * permissions, where the file system has them.
+     *
+     * @param path the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void write(Path path) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            if (Files.exists(target) && Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(channel);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Write the archive to a channel, starting at its current position
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the channel could not be written to
+     */
+    public long write(FileChannel channel) throws IOException {
+        narc.syncFiles();
+        int count = narc.getFileCount();
+        ByteBuffer[] buffers = new ByteBuffer[1 + count * 2];
+
+        // lay out the file image block, FATB offsets are relative to its data and the entries are 4 byte aligned
+        int[] offsets = new int[count * 2];
+        long fimgLength = 0;
+        for (int i = 0; i < count; i++) {
+            ByteBuffer entry = narc.getEntryBuffer(i);
+            int padding = (int) (-(fimgLength + entry.remaining()) & (ALIGNMENT - 1));
+            offsets[2 * i] = (int) fimgLength;
+            offsets[2 * i + 1] = (int) (fimgLength + entry.remaining());
+            buffers[1 + 2 * i] = entry;
+            buffers[2 + 2 * i] = PADDING_BYTES.slice(0, padding);
+            fimgLength += entry.remaining() + padding;
+        }
+
+        byte[] fnt = Fnt.save(narc.filenames).reader().getBuffer();
+        int fatbSize = NARC.FATB_HEADER_SIZE + offsets.length * 4;
+        int fntbSize = align(NARC.FNTB_HEADER_SIZE + fnt.length);
+        long fileSize = HEADER_SIZE + fatbSize + fntbSize + NARC.FIMG_HEADER_SIZE + fimgLength;
+        if (fileSize > 0xFFFFFFFFL) {
+            throw new IOException("NARC of " + fileSize + " bytes is too large to be written");
+        }
+
+        ByteBuffer head = ByteBuffer.allocate((int) (fileSize - fimgLength)).order(ByteOrder.LITTLE_ENDIAN);
+        head.put("NARC".getBytes(StandardCharsets.US_ASCII));
+        head.put((byte) 0xFE).put((byte) 0xFF); // byte order mark
+        head.put((byte) 0x00).put((byte) 0x01); // version
+        head.putInt((int) fileSize);
+        head.putShort((short) HEADER_SIZE);
+        head.putShort((short) 3); // number of blocks
+
+        head.put("BTAF".getBytes(StandardCharsets.US_ASCII));
+        head.putInt(fatbSize);
+        head.putInt(count);
+        for (int offset : offsets) {
+            head.putInt(offset);
+        }
+
+        head.put("BTNF".getBytes(StandardCharsets.US_ASCII));
+        head.putInt(fntbSize);
+        head.put(fnt);
+        while (head.position() < HEADER_SIZE + fatbSize + fntbSize) {
+            head.put(PADDING);
+        }
+
+        head.put("GMIF".getBytes(StandardCharsets.US_ASCII));
+        head.putInt((int) (NARC.FIMG_HEADER_SIZE + fimgLength));
+        buffers[0] = head.flip();
+
+        // gathering writes may stop short, so resume from the first buffer that has not been fully written
+        int first = 0;
+        while (first < buffers.length) {
+            channel.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return fileSize;
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -327,8 +327,7 @@ public class Fnt
      */
     private static Folder loadFolder(byte[] fnt, int folderId, String name)
     {
-        MemBuf fntBuf = MemBuf.create();
-        fntBuf.writer().write(fnt);
+        MemBuf fntBuf = MemBuf.wrap(fnt);
         MemBuf.MemBufReader reader = fntBuf.reader();
         Folder folder = new Folder(name);
 
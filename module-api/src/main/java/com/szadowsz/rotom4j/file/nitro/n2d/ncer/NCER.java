@@ -34,8 +34,8 @@ import com.szadowsz.rotom4j.utils.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -64,6 +64,10 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
     protected static final int BACKGROUND_WIDTH = 512;
     protected static final int BACKGROUND_HEIGHT = 256;
 
+    private static final int SURFACE_WIDTH = 512;
+    private static final int TRANSPARENT = 0x00FFFFFF; // same as new Color(255, 255, 255, 0)
+    private static final int OUTLINE = 0xFE000000;
+
     private NCGR ncgr;
 
     // CEBK (CEll BanK) section
@@ -85,6 +89,10 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
     private CellPojo[] cellPojos;
     private CellInfo[] cells;
 
+    // reusable render buffers, the 512x256 surface cells are composited on and a single object of up to 64x64
+    private final int[] surface = new int[SURFACE_WIDTH * BACKGROUND_HEIGHT];
+    private final int[] block = new int[64 * 64];
+
     // LABL section
     private String lablID;
     private long lablSectionSize;
@@ -116,19 +124,29 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
     }
 
     public NCER(String path) throws NitroException {
-        super(RotomFormat.NCER, path);
-        MemBuf dataBuf = MemBuf.create(data);
+        this(new File(path), readFile(new File(path)));
+    }
+
+    /**
+     * Generates an object representation of a NCER file that has already been read into memory
+     *
+     * @param file the file the content was read from
+     * @param compData the possibly compressed content of the file
+     */
+    public NCER(File file, ByteArrayEditableData compData) throws NitroException {
+        super(RotomFormat.NCER, file, compData);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
         int fileSize = dataBuf.writer().getPosition();
-        logger.debug("\nNCER file, " + fileFullName + ", initialising with size of " + fileSize + " bytes");
+        logger.debug("\nNCER file, {}, initialising with size of {} bytes", fileFullName, fileSize);
 
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
 
-        File[] ncgrs = new File(path).getParentFile().listFiles(f -> (f.getName().endsWith(".NCGR") ||
+        File[] ncgrs = file.getAbsoluteFile().getParentFile().listFiles(f -> (f.getName().endsWith(".NCGR") ||
                 f.getName().endsWith(".NCBR")) &&
                 f.getName().substring(0, f.getName().lastIndexOf('.')).equals(this.objName));
         if (ncgrs.length > 0) {
-            logger.debug("Found corresponding NCGR file, " + ncgrs[0]);
+            logger.debug("Found corresponding NCGR file, {}", ncgrs[0]);
             this.ncgr = NCGR.fromFile(ncgrs[0]);
             logger.debug("Read NCGR file\n");
         }
@@ -139,12 +157,12 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
 
     public NCER(String name, ByteArrayEditableData compData) throws NitroException {
         super(RotomFormat.NCER, name, compData);
-        MemBuf dataBuf = MemBuf.create(data);
+        MemBuf dataBuf = MemBuf.wrap(data);
         MemBuf.MemBufReader reader = dataBuf.reader();
         int fileSize = dataBuf.writer().getPosition();
-        logger.debug("\nNCER obj, " + objName + ", initialising with size of " + fileSize + " bytes");
+        logger.debug("\nNCER obj, {}, initialising with size of {} bytes", objName, fileSize);
 
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
 
         // reader position is now 0x10
         readFile(reader);
@@ -156,25 +174,26 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
         int start = reader.getPosition();
         for (int i = 0; i < cebkNumCells; i++) {
             reader.setPosition(start + i*perCellDataSize);
-            logger.debug("Cell @ " + i +" index @ " + reader.getPosition());
+            logger.trace("Cell @ {} index @ {}", i, reader.getPosition());
 
             int nOAMEntries = reader.readUInt16();
-            logger.debug("Cell @ " + i + " OAM entry count: " + nOAMEntries);
+            logger.trace("Cell @ {} OAM entry count: {}", i, nOAMEntries);
             int cellAttr = reader.readUInt16();
-            logger.debug("Cell @ " + i + " Cell attribute: " + cellAttr);
+            logger.trace("Cell @ {} Cell attribute: {}", i, cellAttr);
             int attrOffset = reader.readInt();
-            logger.debug("Cell @ " + i + " Cell attribute offset: " + attrOffset);
+            logger.trace("Cell @ {} Cell attribute offset: {}", i, attrOffset);
 
             CellPojo cell = cellPojos[i] = new CellPojo(nOAMEntries, cellAttr);
 
             if (nOAMEntries != 0) {
                 int storedPos = reader.getPosition();
                 reader.setPosition(start + cebkNumCells*perCellDataSize + attrOffset);
-                logger.debug("Cell @ " + i + " Oam pos: " + reader.getPosition());
+                logger.trace("Cell @ {} Oam pos: {}", i, reader.getPosition());
+                int[] oam = reader.readU16Array(nOAMEntries * 3);
                 for (int j = 0; j < nOAMEntries; j++) {
-                    cell.setOamAttrs(j, reader.readUInt16(), reader.readUInt16(), reader.readUInt16());
+                    cell.setOamAttrs(j, oam[3 * j], oam[3 * j + 1], oam[3 * j + 2]);
                 }
-                logger.debug("Cell @ " + i +" oam read index @ " + reader.getPosition());
+                logger.trace("Cell @ {} oam read index @ {}", i, reader.getPosition());
                 reader.setPosition(storedPos);
                 if (cebkBankType == 1) {
                     cell.setBounds(reader.readShort(), reader.readShort(), reader.readShort(), reader.readShort());
@@ -184,22 +203,23 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
                 cell.setEmptyAttributes(); // Disable rendering
             }
         }
-        logger.debug("Cell read end index @ " + reader.getPosition());
+        logger.debug("Cell read end index @ {}", reader.getPosition());
     }
 
     private void readCellBanks(MemBuf.MemBufReader reader) throws NitroException {
         //cell bank data
         int cebkPos = reader.getPosition();
 
-        cebkId = reader.readString(4); // 0x10 (0x0)
+        cebkId = reader.readMagic(); // 0x10 (0x0)
         if (!cebkId.equals("KBEC")) {
             throw new NitroException("Not a valid NCER file.");
         }
         cebkSectionSize = reader.readUInt32(); // 0x14 (0x4)
-        logger.debug("CEBK section size " + cebkSectionSize + " bytes");
+        traceSection(cebkId, cebkPos, cebkSectionSize);
+        logger.debug("CEBK section size {} bytes", cebkSectionSize);
 
         cebkNumCells = reader.readUInt16(); // 0x18 (0x8)
-        logger.debug("CEBK cell count " + cebkNumCells);
+        logger.debug("CEBK cell count {}", cebkNumCells);
 
         cebkBankType = reader.readUInt16(); // 0x1A (0xA) // 1 - with bounding rectangle, 0 - without
         int perCellDataSize = 8;
@@ -211,8 +231,8 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
         }
 
         cebkDataOffset = reader.readUInt32(); // 0x1C (0xC)
-        logger.debug("CEBK data offset " + cebkDataOffset + " bytes");
-        logger.debug("CEBK data start " + (cebkPos + cebkDataOffset + 8) + " bytes");
+        logger.debug("CEBK data offset {} bytes", cebkDataOffset);
+        logger.debug("CEBK data start {} bytes", (cebkPos + cebkDataOffset + 8));
 
         cebkMappingType = (int) (reader.readUInt32() & 0xFF); // 0x20 (0x10)
         if (cebkMappingType < 5) {
@@ -220,14 +240,14 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
         } else {
             cebkMappingMode = GX_OBJVRAMMODE_CHAR_1D_32K;
         }
-        logger.debug("CEBK mapping type " + cebkBankType);
+        logger.debug("CEBK mapping type {}", cebkBankType);
 
-        logger.debug("CEBK expected data per cell " + perCellDataSize + " bytes");
+        logger.debug("CEBK expected data per cell {} bytes", perCellDataSize);
 
         // Check for VRAM transfer
         cebkPartitionDataOffset = reader.readInt(); // 0x24 (0x14)
         vramTransfer = cebkPartitionDataOffset != 0;
-        logger.debug("vram transfer expected=" + vramTransfer);
+        logger.debug("vram transfer expected={}", vramTransfer);
         cebkUnused = reader.readBytes(8); // 0x28 (0x18)
 
         readCells(reader, perCellDataSize);
@@ -251,44 +271,49 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
 
     @Override
     protected void readFile(MemBuf.MemBufReader reader) throws NitroException {
-        logger.info("Read NCER data");
-        logger.info("Current index @ " + reader.getPosition());
+        logger.debug("Read NCER data");
+        logger.debug("Current index @ {}", reader.getPosition());
         int cebk = findBlockBySignature(reader, "CEBK");
-        logger.info("Found CEBK section @ " + cebk);
+        logger.debug("Found CEBK section @ {}", cebk);
         int tacu = findBlockBySignature(reader, "TACU");
-        logger.info("Found TACU section @ " + tacu);
+        logger.debug("Found TACU section @ {}", tacu);
         int labl = findBlockBySignature(reader, "LABL");
-        logger.info("Found LABL section @ " + labl);
+        logger.debug("Found LABL section @ {}", labl);
         int uext = findBlockBySignature(reader, "UEXT");
-        logger.info("Found UEXT section @ " + uext);
+        logger.debug("Found UEXT section @ {}", uext);
 
         readCellBanks(reader); // process CEBK, current index should point to that block already
 
         int[][] partitionData = readVramTransfer(reader);
 
         for (int i = 0; i < cebkNumCells; i++) {
-            logger.debug("Cell @ " + i + " processing attributes");
+            logger.trace("Cell @ {} processing attributes", i);
             CellPojo pojo = cellPojos[i];
             int[] partition = partitionData[i];
             cells[i] = new CellInfo(this, pojo, partition);
         }
 
         if (labl != -1){
-            logger.debug("Reading LABL section @ " + labl);
+            logger.debug("Reading LABL section @ {}", labl);
             reader.setPosition(labl);
-            lablID = reader.readString(4);
+            lablID = reader.readMagic();
             lablSectionSize = reader.readUInt32();
-            logger.debug("LABL section size " + lablSectionSize + " bytes");
+            traceSection(lablID, labl, lablSectionSize);
+            logger.debug("LABL section size {} bytes", lablSectionSize);
             int sectionSize = (int) (lablSectionSize-8);
             labels = reader.readBytes(sectionSize);
-            logger.debug("Labels " + new String(labels, StandardCharsets.UTF_8));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Labels {}", new String(labels, StandardCharsets.UTF_8));
+            }
         }
 
         if (uext != -1) {
-            logger.debug("Reading UEXT section @ " + uext);
-            uextID = reader.readString(4);
+            logger.debug("Reading UEXT section @ {}", uext);
+            reader.setPosition(uext);
+            uextID = reader.readMagic();
             uextSectionSize = reader.readUInt32();
-            logger.debug("UEXT section size " + uextSectionSize + " bytes");
+            traceSection(uextID, uext, uextSectionSize);
+            logger.debug("UEXT section size {} bytes", uextSectionSize);
             int sectionSize = (int) (uextSectionSize-8);
             uextData = reader.readBytes(sectionSize);
         }
@@ -337,25 +362,22 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
 
     private int calcByteBoundary(int m) {
         int result = (1 << ((((m) >> 20) & 0x7) + 5));
-        logger.debug("Byte Boundary result " + result);
+        logger.debug("Byte Boundary result {}", result);
         return result;
     }
 
     private int calcCHName(int x, int m, int b) {
-        logger.debug("Calculating CHName with tile Offset " + x + ", mapping " + m + ", bits " + b);
+        logger.debug("Calculating CHName with tile Offset {}, mapping {}, bits {}", x, m, b);
         return (calcByteBoundary(m) * (x) / ((b) << 3));
     }
 
-    private void renderObj(CellInfo.OAM info, int mapping, CellInfo vramTransfer, Color[] out, int[] width, int[] height) throws NitroException {
-        width[0] = info.getWidth();
-        height[0] = info.getHeight();
-
-        int tilesX = width[0] / 8;
-        int tilesY = height[0] / 8;
+    private void renderObj(CellInfo.OAM info, int mapping, CellInfo vramTransfer, int[] out) throws NitroException {
+        int tilesX = info.getWidth() / 8;
+        int tilesY = info.getHeight() / 8;
 
         if (ncgr != null) {
             int ncgrStart = calcCHName(info.getOffset(), mapping, ncgr.getBitDepth());
-            logger.debug("NCGR Tile Start = " + ncgrStart);
+            logger.debug("NCGR Tile Start = {}", ncgrStart);
             for (int y = 0; y < tilesY; y++) {
                 for (int x = 0; x < tilesX; x++) {
 
@@ -368,39 +390,43 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
                     } else {
                         index = ncgrStart + x + y * tilesX;
                     }
-                    Color[] block = ncgr.renderTile(index, this.vramTransfer,vramTransfer, info.getPalette());
-                    for (int i = 0; i < 8; i++) {
-                        System.arraycopy(block, i * 8, out, bitsOffset + tilesX * 8 * i, 8);
-                    }
+                    ncgr.renderTileARGB(index, this.vramTransfer, vramTransfer, info.getPalette(), out, bitsOffset, tilesX * 8);
                 }
             }
             logger.debug("NCGR Tile end");
         }
     }
 
-    protected void flipCell(CellInfo.OAM info, Color[] block) {
-        if (!info.getRotationScaling()) {
-            int[] temp = new int[64];
-            if (info.getFlipY()) {
-                for (int j = 0; j < info.getHeight() / 2; j++) {
-                    System.arraycopy(block, j * info.getWidth(), temp, 0, info.getWidth());
-                    System.arraycopy(block, (info.getHeight() - 1 - j) * info.getWidth(), block, j * info.getWidth(), info.getWidth());
-                    System.arraycopy(temp, 0, block, (info.getHeight() - 1 - j) * info.getWidth(), info.getWidth());
+    /**
+     * Copy a rendered object onto the surface, flipping it if needed. Fully transparent pixels are skipped.
+     */
+    protected void drawCell(int[] px, CellInfo.OAM info, int[] block, int x, int y) {
+        int width = info.getWidth();
+        int height = info.getHeight();
+        boolean flipX = info.getFlipX();
+        boolean flipY = info.getFlipY();
+        for (int j = 0; j < height; j++) {
+            int row = ((y + j) & 0xFF) * SURFACE_WIDTH;
+            int src = (flipY ? height - 1 - j : j) * width;
+            if (!flipX) {
+                for (int k = 0; k < width; k++) {
+                    int col = block[src + k];
+                    if (col >>> 24 != 0) {
+                        px[row + ((x + k) & 0x1FF)] = col;
+                    }
                 }
-            }
-            if (info.getFlipX()) {
-                for (int j = 0; j < info.getWidth() / 2; j++) {
-                    for (int k = 0; k < info.getHeight(); k++) {
-                        Color left = block[j + k * info.getWidth()];
-                        block[j + k * info.getWidth()] = block[info.getWidth() - 1 - j + k * info.getWidth()];
-                        block[info.getWidth() - 1 - j + k * info.getWidth()] = left;
+            } else {
+                for (int k = 0, srcX = src + width - 1; k < width; k++, srcX--) {
+                    int col = block[srcX];
+                    if (col >>> 24 != 0) {
+                        px[row + ((x + k) & 0x1FF)] = col;
                     }
                 }
             }
         }
     }
 
-    protected void rotateScaleCell(Color[] px, CellInfo.OAM info, Color[] block, int xOffs, int yOffs, float a, float b, float c, float d) {
+    protected void rotateScaleCell(int[] px, CellInfo.OAM info, int[] block, int xOffs, int yOffs, float a, float b, float c, float d) {
         int x = info.getX();
         int y = info.getY();
         // adjust for double size
@@ -410,86 +436,70 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
         }
         // copy data
         if (!info.getRotationScaling()) {
-            for (int j = 0; j < info.getHeight(); j++) {
-                int _y = (y + j + yOffs) & 0xFF;
-                for (int k = 0; k < info.getWidth(); k++) {
-                    int _x = (x + k + xOffs) & 0x1FF;
-                    Color col = block[j * info.getWidth() + k];
-                    if (col.getRGB() >>> 24 != 0) {
-                        px[_x + _y * 512] = block[j * info.getWidth() + k];
-                    }
-                }
-            }
+            // HV flip, only if not affine
+            drawCell(px, info, block, x + xOffs, y + yOffs);
         } else {
-            // transform about center
-            int realWidth = info.getWidth() << (info.getDoubleSize() ? 1 : 0);
-            int realHeight = info.getHeight() << (info.getDoubleSize() ? 1 : 0);
+            // transform about center with the float maths this has always used, truncating the offset toward zero; it
+            // is not the hardware's fixed point stepping, so a pixel on a texel boundary may be one texel off the game
+            int width = info.getWidth();
+            int height = info.getHeight();
+            int realWidth = width << (info.getDoubleSize() ? 1 : 0);
+            int realHeight = height << (info.getDoubleSize() ? 1 : 0);
             int cx = realWidth / 2;
             int cy = realHeight / 2;
-            int realX = x - (realWidth - info.getWidth()) / 2;
-            int realY = y - (realHeight - info.getHeight()) / 2;
+            int realX = x - (realWidth - width) / 2;
+            int realY = y - (realHeight - height) / 2;
+            int srcOriginX = cx - (info.getDoubleSize() ? realWidth / 4 : 0);
+            int srcOriginY = cy - (info.getDoubleSize() ? realHeight / 4 : 0);
             for (int j = 0; j < realHeight; j++) {
-                int destY = (realY + j + yOffs) & 0xFF;
+                int row = ((realY + j + yOffs) & 0xFF) * SURFACE_WIDTH;
+                float rowX = (j - cy) * b;
+                float rowY = (j - cy) * d;
                 for (int k = 0; k < realWidth; k++) {
-                    int destX = (realX + k + xOffs) & 0x1FF;
-
-                    int srcX = (int) ((k - cx) * a + (j - cy) * b) + cx;
-                    int srcY = (int) ((k - cx) * c + (j - cy) * d) + cy;
-
-                    if (info.getDoubleSize()) {
-                        srcX -= realWidth / 4;
-                        srcY -= realHeight / 4;
-                    }
-                    if (srcX >= 0 && srcY >= 0 && srcX < info.getWidth() && srcY < info.getHeight()) {
-                        Color src = block[srcY * info.getWidth() + srcX];
-                        if (src.getRGB() >>> 24 != 0) px[destX + destY * 512] = src;
+                    int sx = (int) ((k - cx) * a + rowX) + srcOriginX;
+                    int sy = (int) ((k - cx) * c + rowY) + srcOriginY;
+                    if (sx >= 0 && sy >= 0 && sx < width && sy < height) {
+                        int src = block[sy * width + sx];
+                        if (src >>> 24 != 0) px[row + ((realX + k + xOffs) & 0x1FF)] = src;
                     }
                 }
             }
         }
     }
 
-    protected void outlineCell(Color[] px, int xOffs, int yOffs, CellInfo.OAM info) {
+    protected void outlineCell(int[] px, int xOffs, int yOffs, CellInfo.OAM info) {
         int outlineWidth = info.getWidth() << (info.getDoubleSize() ? 1 : 0);
         int outlineHeight = info.getHeight() << (info.getDoubleSize() ? 1 : 0);
         for (int j = 0; j < outlineWidth; j++) {
             int _x = (j + info.getX() + xOffs) & 0x1FF;
             int _y = (info.getY() + yOffs - 1) & 0xFF;
             int _y2 = (_y + outlineHeight + 1) & 0xFF;
-            px[_x + _y * 512] = new Color(0xFE000000);;
-            px[_x + _y2 * 512] = new Color(0xFE000000);;
+            px[_x + _y * 512] = OUTLINE;
+            px[_x + _y2 * 512] = OUTLINE;
         }
         for (int j = 0; j < outlineHeight; j++) {
             int _x = (info.getX() + xOffs - 1) & 0x1FF;
             int _y = (info.getY() + j + yOffs) & 0xFF;
             int _x2 = (_x + outlineWidth + 1) & 0x1FF;
-            px[_x + _y * 512] = new Color(0xFE000000);
-            px[_x2 + _y * 512] = new Color(0xFE000000);;
+            px[_x + _y * 512] = OUTLINE;
+            px[_x2 + _y * 512] = OUTLINE;
         }
     }
 
-    // CellRenderCell
-    public Color[] renderCell(CellInfo cell, int mapping, int xOffs, int yOffs, boolean outline, float a, float b, float c, float d) throws NitroException {
-        Color[] px = new Color[256 * 512];
-        if (Configuration.isRenderTransparent()) {
-            Arrays.fill(px, new Color(255, 255, 255, 0));
-        } else{
-            Arrays.fill(px, getNCLR().getColor(0));
-
-        }
+    /**
+     * Composite the objects of a cell onto the 512x256 ARGB surface, CellRenderCell
+     *
+     * @return the surface, which is reused and overwritten by the next call, so copy it if it needs to be kept
+     */
+    public int[] renderCell(CellInfo cell, int mapping, int xOffs, int yOffs, boolean outline, float a, float b, float c, float d) throws NitroException {
+        int[] px = surface;
+        Arrays.fill(px, Configuration.isRenderTransparent() ? TRANSPARENT : getNCLR().getARGB(0));
 
-        Color[] block = new Color[64 * 64];
         for (int i = cell.getOamCount() - 1; i >= 0; i--) {
             CellInfo.OAM info = cell.getOam(i);
-            int[] entryWidth = new int[1];
-            int[] entryHeight = new int[1];
-
-            renderObj(info, mapping, cell, block, entryWidth, entryHeight);
-
-            // HV flip? Only if not affine!
-            flipCell(info, block);
 
             if (!info.getObjDisable()) {
+                renderObj(info, mapping, cell, block);
                 rotateScaleCell(px, info, block, xOffs, yOffs, a, b, c, d);
 
                 // outline
@@ -525,13 +535,9 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
         if (ncgr== null){
             return image;
         }
-        Color[] colors;
         if (Configuration.isBackground()) {
-            colors = renderCell(cells[cellNum], cebkMappingMode, 256, 128, Configuration.isShowGuidelines(), 1.0f, 0.0f, 0.0f, 1.0f);
-            int[] bits = new int[colors.length];
-            for (int i = 0; i < bits.length;i++){
-                bits[i] = colors[i].getRGB();
-            }
+            int[] bits = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            System.arraycopy(renderCell(cells[cellNum], cebkMappingMode, 256, 128, Configuration.isShowGuidelines(), 1.0f, 0.0f, 0.0f, 1.0f), 0, bits, 0, bits.length);
             if (Configuration.isShowCellBounds()) {
                 int minX = cell.getMinX() + 256, maxX = cell.getMaxX() + 256 - 1;
                 int minY = cell.getMinY() + 128, maxY = cell.getMaxY() + 128 - 1;
@@ -549,21 +555,15 @@ public class NCER extends BaseNFSFile implements DrawableWithGraphic {
                     if (bits[maxY * 512 + i] >> 24 != 0xFE) bits[maxY * 512 + i] = 0xFF0000FF;
                 }
             }
-            image.setRGB(0, 0, BACKGROUND_WIDTH, BACKGROUND_HEIGHT, bits, 0, BACKGROUND_WIDTH);
         }
         CellInfo.OAM info = cell.getOam(0);
-        int[] width = new int[1], height = new int[1];
-        colors = new Color[info.getWidth() * info.getHeight()];
-        renderObj(info, cebkMappingMode, null, colors, width, height);
-        int[] bits = new int[colors.length];
-        for (int i = 0; i < bits.length;i++){
-            bits[i] = colors[i].getRGB();
-        }
+        int[] bits = new int[info.getWidth() * info.getHeight()];
+        renderObj(info, cebkMappingMode, null, bits);
         if (Configuration.isBackground()) {
             image.setRGB(512 / 2 - info.getWidth() / 2, 256 / 2 - info.getHeight() / 2, info.getWidth(), info.getHeight(), bits, 0, info.getWidth());
         } else {
-            image = new BufferedImage(width[0], height[0], BufferedImage.TYPE_INT_ARGB);
-            image.setRGB(0, 0, width[0], height[0], bits, 0, width[0]);
+            image = new BufferedImage(info.getWidth(), info.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            image.setRGB(0, 0, info.getWidth(), info.getHeight(), bits, 0, info.getWidth());
         }
 
         return image;
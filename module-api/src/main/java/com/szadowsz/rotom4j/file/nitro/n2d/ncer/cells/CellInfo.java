@@ -36,13 +36,13 @@ public class CellInfo {
     public CellInfo(NCER ncer, CellPojo pojo, int[] partition) {
         this.ncer = ncer;
         this.maxX = pojo.maxX;
-        logger.debug("Cell maxX: " + this.maxX);
+        logger.debug("Cell maxX: {}", this.maxX);
         this.maxY = pojo.maxY;
-        logger.debug("Cell maxY: " + this.maxY);
+        logger.debug("Cell maxY: {}", this.maxY);
         this.minX = pojo.minX;
-        logger.debug("Cell minX: " + this.minX);
+        logger.debug("Cell minX: {}", this.minX);
         this.minY = pojo.minY;
-        logger.debug("Cell minY: " + this.minY);
+        logger.debug("Cell minY: {}", this.minY);
         oams = new OAM[pojo.nAttribs];
         for (int i = 0; i < oams.length; i++) {
             oams[i] = new OAM();
@@ -51,9 +51,9 @@ public class CellInfo {
         attributes = new CellAttribute();
         setAttributes(pojo.cellAttr);
         this.partitionOffset = partition[0];
-        logger.debug("Cell partitionOffset: " + this.partitionOffset);
+        logger.debug("Cell partitionOffset: {}", this.partitionOffset);
         this.partitionSize = partition[1];
-        logger.debug("Cell partitionSize: " + this.partitionSize);
+        logger.debug("Cell partitionSize: {}", this.partitionSize);
     }
 
     public String getName() {
@@ -103,15 +103,15 @@ public class CellInfo {
 
     public void setAttributes(int cellAttrs) {
         attributes.hFlip = ((cellAttrs >> 8) & 1) == 1;
-        logger.debug("Cell hFlip=" + this.attributes.hFlip);
+        logger.debug("Cell hFlip={}", this.attributes.hFlip);
         attributes.vFlip = ((cellAttrs >> 9) & 1) == 1;
-        logger.debug("Cell vFlip=" + this.attributes.vFlip);
+        logger.debug("Cell vFlip={}", this.attributes.vFlip);
         attributes.hvFlip = ((cellAttrs >> 10) & 1) == 1;
-        logger.debug("Cell hvFlip=" + this.attributes.hvFlip);
+        logger.debug("Cell hvFlip={}", this.attributes.hvFlip);
         attributes.boundingRectangle = ((cellAttrs >> 11) & 1) == 1;
-        logger.debug("Cell boundingRectangle=" + this.attributes.boundingRectangle);
+        logger.debug("Cell boundingRectangle={}", this.attributes.boundingRectangle);
         attributes.boundingSphereRadius = cellAttrs & 0x3F;
-        logger.debug("Cell boundingSphereRadius: " + this.attributes.boundingSphereRadius);
+        logger.debug("Cell boundingSphereRadius: {}", this.attributes.boundingSphereRadius);
     }
 
     public void setOam(int index, int[] attrs) {
@@ -121,76 +121,76 @@ public class CellInfo {
 
         // Obj 0
         oams[index].yCoord = attr0 & 0xFF; // Bits 0-7 -> signed
-        logger.debug("Oam @ " + index + " yCoord: " + oams[index].yCoord);
+        logger.trace("Oam @ {} yCoord: {}", index, oams[index].yCoord);
 
         oams[index].rotation = (attr0 >> 8) == 1; // Bit 8 -> Rotation / Scale flag
-        logger.debug("Oam @ " + index + " rotation=" + oams[index].rotation);
+        logger.trace("Oam @ {} rotation={}", index, oams[index].rotation);
 
         if (oams[index].rotation) {
             oams[index].doubleSize = ((attr0 >> 9) & 1); // Bit 9 -> if rotation
-            logger.debug("Oam @ " + index + " doubleSize: " + oams[index].doubleSize);
+            logger.trace("Oam @ {} doubleSize: {}", index, oams[index].doubleSize);
         } else {
             oams[index].objDisable = ((attr0 >> 9) & 1); // Bit 9 -> if !rotation
-            logger.debug("Oam @ " + index + " objDisable: " + oams[index].objDisable);
+            logger.trace("Oam @ {} objDisable: {}", index, oams[index].objDisable);
         }
 
         oams[index].mode = (attr0 >> 10) & 3; // Bits 10-11 -> 0 = normal; 1 = semi-trans; 2 = window; 3 = invalid
-        logger.debug("Oam @ " + index + " mode: " + oams[index].mode);
+        logger.trace("Oam @ {} mode: {}", index, oams[index].mode);
 
         oams[index].mosaic = ((attr0 >> 12) & 1); // Bit 12
-        logger.debug("Oam @ " + index + " mosaic: " + oams[index].mosaic);
+        logger.trace("Oam @ {} mosaic: {}", index, oams[index].mosaic);
 
         if (((attr0 >> 13) & 1) == 1) { // Bit 13 -> 0 = 4bit; 1 = 8bit
             oams[index].characterBits = 8;
         } else {
             oams[index].characterBits = 4;
         }
-        logger.debug("Oam @ " + index + " characterBits: " + oams[index].characterBits);
+        logger.trace("Oam @ {} characterBits: {}", index, oams[index].characterBits);
 
         oams[index].shape = ((attr0 >> 14) & 3); // Bit14-15 -> 0 = square; 1 = horizontal; 2 = vertial; 3 = invalid
-        logger.debug("Oam @ " + index + " shape: " + oams[index].shape);
+        logger.trace("Oam @ {} shape: {}", index, oams[index].shape);
 
 
         // Obj 1
         oams[index].xCoord = attr1 & 0x1FF;  // Bits 0-8 (unsigned)
-        logger.debug("Oam @ " + index + " xCoord: " + oams[index].xCoord);
+        logger.trace("Oam @ {} xCoord: {}", index, oams[index].xCoord);
 //        if (oams[index].xCoord >= 0x100) { // TODO needed?
 //            oams[index].xCoord -= 0x200;
 //        }
-//        logger.debug("Oam @ " + index + " xCoord: " + oams[index].xCoord);
+//        logger.trace("Oam @ {} xCoord: {}", index, oams[index].xCoord);
 
 
         if (oams[index].rotation) {
             oams[index].rotationScaling = (attr1 >> 9) & 0x1F;  // Bits 9-13 -> Parameter selection
-            logger.debug("Oam @ " + index + " rotationScaling: " + oams[index].rotationScaling);
+            logger.trace("Oam @ {} rotationScaling: {}", index, oams[index].rotationScaling);
         } else {
             oams[index].unused = ((attr1 >> 9) & 7); // Bits 9-11
 
             oams[index].flipX = ((attr1 >> 12) & 1) == 1; // Bit 12
-            logger.debug("Oam @ " + index + " flipX=" + oams[index].flipX);
+            logger.trace("Oam @ {} flipX={}", index, oams[index].flipX);
 
             oams[index].flipY = ((attr1 >> 13) & 1) == 1;  // Bit 13
-            logger.debug("Oam @ " + index + " flipY=" + oams[index].flipY);
+            logger.trace("Oam @ {} flipY={}", index, oams[index].flipY);
         }
 
         oams[index].size = (attr1 >> 14) & 3; // Bits 14-15
-        logger.debug("Oam @ " + index + " size: " + oams[index].size);
+        logger.trace("Oam @ {} size: {}", index, oams[index].size);
 
         // Obj 2
         oams[index].tileOffset = attr2 & 0x3FF; // Bits 0-9
-        logger.debug("Oam @ " + index + " tileOffset: " + oams[index].tileOffset);
+        logger.trace("Oam @ {} tileOffset: {}", index, oams[index].tileOffset);
 
         oams[index].priority = (attr2 >> 10) & 0x3; // Bits 10-11
-        logger.debug("Oam @ " + index + " priority: " + oams[index].priority);
+        logger.trace("Oam @ {} priority: {}", index, oams[index].priority);
 
         oams[index].palette = (attr2 >> 12) & 0xF; // Bits 12-15
-        logger.debug("Oam @ " + index + " palette: " + oams[index].palette);
+        logger.trace("Oam @ {} palette: {}", index, oams[index].palette);
 
         int[] dims = getObjDimensions(oams[index].shape,  oams[index].size);
         oams[index].width = dims[0];
         oams[index].height = dims[1];
-        logger.debug("Oam @ " + index + " width: " + oams[index].width);
-        logger.debug("Oam @ " + index + " height: " + oams[index].height);
+        logger.trace("Oam @ {} width: {}", index, oams[index].width);
+        logger.trace("Oam @ {} height: {}", index, oams[index].height);
     }
 
     public int getWidth() {
@@ -19,6 +19,7 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.util.Arrays;
 
@@ -31,6 +32,9 @@ import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 public class NCGR extends BaseNFSFile implements DrawableWithPalette {
     private static final Logger logger = LoggerFactory.getLogger(NCGR.class);
 
+    private static final int TRANSPARENT = 0x00FFFFFF; // same as new Color(255, 255, 255, 0)
+    private static final int BLACK = 0xFF000000;
+
     /**
      * Based on how an NCER or NSCR is set to read an NCGR file, or how the game is programmed to read an NCGR file,
      * it may use a specific palette index within the NCLR (palette) file. <p>
@@ -70,6 +74,7 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
     protected int width;
 
     protected byte[] imgTilesFlat;
+    protected byte[] imgIndices; // palette index of each pixel of the image, in image order
 
     protected int tileSize;
 
@@ -108,44 +113,54 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
     public NCGR(String name, ByteArrayEditableData compData) throws NitroException {
         super(RotomFormat.NCGR, name, compData);
 
-        MemBuf buf = MemBuf.create(data);
+        MemBuf buf = MemBuf.wrap(data);
         int fileSize = buf.writer().getPosition();
-        logger.info("\nNCGR obj, " + objName + ", initialising with size of " + fileSize + " bytes");
+        logger.debug("\nNCGR obj, {}, initialising with size of {} bytes", objName, fileSize);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
 
         this.palette = NCLR.DEFAULT;
-        logger.info("Reading NCGR file data");
+        logger.debug("Reading NCGR file data");
         readFile(reader);
     }
 
     public NCGR(String path) throws NitroException {
-        super(RotomFormat.NCGR, path);
+        this(new File(path), readFile(new File(path)));
+    }
+
+    /**
+     * Generates an object representation of a NCGR file that has already been read into memory
+     *
+     * @param file the file the content was read from
+     * @param compData the possibly compressed content of the file
+     */
+    public NCGR(File file, ByteArrayEditableData compData) throws NitroException {
+        super(RotomFormat.NCGR, file, compData);
 
-        MemBuf buf = MemBuf.create(data);
+        MemBuf buf = MemBuf.wrap(data);
         int fileSize = buf.writer().getPosition();
-        logger.info("\nNCGR file, " + fileFullName + ", initialising with size of " + fileSize + " bytes");
+        logger.debug("\nNCGR file, {}, initialising with size of {} bytes", fileFullName, fileSize);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
 
-        File[] palettes = new File(path).getParentFile().listFiles(f -> f.getName().endsWith(".NCLR") &&
+        File[] palettes = file.getAbsoluteFile().getParentFile().listFiles(f -> f.getName().endsWith(".NCLR") &&
                 f.getName().substring(0, f.getName().lastIndexOf('.')).equals(this.objName));
         if (palettes.length > 0) {
-            logger.info("Found corresponding NCLR file, " + palettes[0]);
+            logger.debug("Found corresponding NCLR file, {}", palettes[0]);
             this.palette = NCLR.fromFile(palettes[0]);
-            logger.info("Read NCLR file\n");
+            logger.debug("Read NCLR file\n");
         } else {
             this.palette = NCLR.DEFAULT;
         }
-        logger.info("Reading NCGR file data");
+        logger.debug("Reading NCGR file data");
         readFile(reader);
     }
 
@@ -214,60 +229,67 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
         return bit4;
     }
 
-    protected Color getColor16(byte[] data, int pos) {
-        if (data.length <= (pos / 2)) {
-            return new Color(255, 255, 255, 0);
-        }
-        byte bit4 = data[pos / 2];
-        int index = byteToBit4(bit4)[pos % 2];
-        Color c;
-        if (index > 0 || !Configuration.isRenderTransparent()) {
-            c = palette.getColor(index);
-        } else {
-            logger.warn("NCGR Blank i=" + pos + " paletterIndex=" + index + " colours=" + palette.getNumColors());
-            c = new Color(255, 255, 255, 0);
-        }
-        return c;
-    }
-
-    protected Color getColor256(byte[] data, int pos) {
-        if (data.length > pos && palette.getNumColors() > data[pos]) {
-            int index = Byte.toUnsignedInt(data[pos]);
-            if (index > 0 || !Configuration.isRenderTransparent()) {
-                return palette.getColor(index);
+    /**
+     * Build the ARGB value of every index a pixel can hold, so rendering is a single table lookup per pixel
+     *
+     * @param format the colour format of the pixels
+     * @return the ARGB lookup table, 16 or 256 entries
+     */
+    protected int[] buildColorLookup(ColorFormat format) {
+        int[] colors = palette.getARGBTable();
+        int[] lookup = new int[(format == ColorFormat.colors16) ? 16 : 256];
+        for (int index = 0; index < lookup.length; index++) {
+            if (index == 0 && Configuration.isRenderTransparent()) {
+                lookup[index] = TRANSPARENT;
+            } else if (index < palette.getNumColors()) {
+                lookup[index] = colors[index];
             } else {
-                logger.warn("NCGR Blank i=" + pos + " paletterIndex=" + index + " colours=" + palette.getNumColors());
-                return new Color(255, 255, 255, 0);
+                // past the end of the palette: 16 colour graphics show black, 256 colour graphics are left blank
+                lookup[index] = (format == ColorFormat.colors16) ? BLACK : TRANSPARENT;
             }
-        } else {
-            logger.warn("NCGR Blank i=" + pos + " paletterIndex=" + data[pos] + " colours=" + palette.getNumColors());
-            return new Color(255, 255, 255, 0);
         }
+        return lookup;
     }
 
-    protected void process16ColorPalette(byte[] tiles, int width, int height) {
-        int pos = 0;
-        image = new BufferedImage(width, height, TYPE_INT_ARGB);
-        for (int h = 0; h < height; h++) {
-            for (int w = 0; w < width; w++) {
-                Color color = getColor16(tiles, pos++);
-                image.setRGB(w, h, color.getRGB());
+    /**
+     * Unpack the palette index of every pixel, in image order, so recolouring only has to map them again
+     *
+     * @param tiles the pixel data, in image order
+     * @param format the colour format of the pixels
+     * @param width the image width
+     * @param height the image height
+     * @return one palette index per pixel, which may be shorter than the image if the data runs out
+     */
+    protected byte[] unpackIndices(byte[] tiles, ColorFormat format, int width, int height) {
+        if (format == ColorFormat.colors16) {
+            byte[] indices = new byte[Math.min(width * height, tiles.length * 2)];
+            for (int pos = 0; pos < indices.length; pos++) {
+                indices[pos] = (byte) ((tiles[pos >> 1] >> ((pos & 1) << 2)) & 0x0F); // low nibble first
             }
+            return indices;
         }
+        return Arrays.copyOf(tiles, Math.min(width * height, tiles.length));
     }
 
-    protected void process256ColorPalette(byte[] tiles, int width, int height) {
-        int pos = 0;
-        image = new BufferedImage(width, height, TYPE_INT_ARGB);
-        for (int h = 0; h < height; h++) {
-            for (int w = 0; w < width; w++) {
-                Color color = getColor256(tiles, pos++);
-                image.setRGB(w, h, color.getRGB());
-            }
+    /**
+     * Map the cached palette indices through the current palette into the image's ARGB raster. The image is reused
+     * when its size has not changed.
+     *
+     * @param format the colour format of the pixels
+     */
+    protected void renderImage(ColorFormat format) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, TYPE_INT_ARGB);
+        }
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int[] lookup = buildColorLookup(format);
+        byte[] indices = imgIndices;
+        for (int pos = 0; pos < indices.length; pos++) {
+            pixels[pos] = lookup[indices[pos] & 0xFF];
         }
+        Arrays.fill(pixels, indices.length, pixels.length, TRANSPARENT);
     }
 
-
     @Override
     public NCLR getNCLR() {
         return palette;
@@ -295,11 +317,11 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
         if (tiles.length == 0) {
             return;
         }
-        switch (format) {
-            case colors16 -> process16ColorPalette(tiles, width, height);
-            case colors256 -> process256ColorPalette(tiles, width, height);
-            default -> throw new InvalidFileException("Unsupported Colour Format: " + format);
+        if (format != ColorFormat.colors16 && format != ColorFormat.colors256) {
+            throw new InvalidFileException("Unsupported Colour Format: " + format);
         }
+        imgIndices = unpackIndices(tiles, format, width, height);
+        renderImage(format);
     }
 
     public void setImagePixels() throws InvalidFileException {
@@ -393,7 +415,7 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
 
     protected Color[] renderTile(byte[] tile, int palNum) throws NitroException {
         if (palNum > 0) {
-            logger.warn("NCGR renderTile, unsupported palette " + palNum);
+            logger.warn("NCGR renderTile, unsupported palette {}", palNum);
         }
 
         Color[] out = new Color[tile.length];
@@ -404,7 +426,9 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
                  if (palette != null && (index + (palNum << charBitDepth.bits)) < palette.getNumColors()) {
                      tmp = palette.getColor(index + (palNum << charBitDepth.bits));
                 } else {
-                     logger.info("NCGR Blanking Tile @ i=" + i + ", palette index=" + tile[i] + ", palette index(u)=" + index + ", palette shift=" + (palNum << charBitDepth.bits));
+                     if (logger.isTraceEnabled()) {
+                         logger.trace("NCGR Blanking Tile @ i={}, palette index={}, palette index(u)={}, palette shift={}", i, tile[i], index, palNum << charBitDepth.bits);
+                     }
                  }
                 out[i] = tmp;
             } else {
@@ -423,7 +447,7 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
         if (tileNo < getTileCount()) {
             return renderTile(charTiledData[tileNo], palNum);
         } else {
-            logger.warn("NCGR Blanking Tile Transfer, tile " + tileNo);
+            logger.warn("NCGR Blanking Tile Transfer, tile {}", tileNo);
             Color[] out = new Color[64];
             Arrays.fill(out, new Color(0));
             return out;
@@ -431,7 +455,9 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
     }
 
     public Color[] renderTile(int tileNo, boolean transfer, CellInfo transferInfo, int palNum) throws NitroException {
-        logger.debug("NCGR Tile Info, tile=" + tileNo + ", vram=" + transfer + ", palette=" + palNum + ", bitDepth=" + charBitDepth);
+        if (logger.isTraceEnabled()) {
+            logger.trace("NCGR Tile Info, tile={}, vram={}, palette={}, bitDepth={}", tileNo, transfer, palNum, charBitDepth);
+        }
         // if transfer == null, render as normal
         if (!transfer) {
             return renderTile(tileNo, palNum);
@@ -442,6 +468,48 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
         return renderTile(buf, palNum);
     }
 
+    /**
+     * Render a tile straight into an ARGB surface, without going through Color objects
+     *
+     * @param tileNo the tile number
+     * @param transfer whether to simulate the VRAM transfer of the cell
+     * @param transferInfo the cell whose VRAM transfer to simulate
+     * @param palNum the palette of the tile
+     * @param out the surface to render into
+     * @param offset the index in the surface of the tile's top left pixel
+     * @param stride the width of the surface
+     */
+    public void renderTileARGB(int tileNo, boolean transfer, CellInfo transferInfo, int palNum, int[] out, int offset, int stride) {
+        byte[] tile;
+        if (transfer) {
+            tile = renderTile(tileNo, transferInfo);
+        } else if (tileNo < getTileCount()) {
+            tile = charTiledData[tileNo];
+        } else {
+            logger.warn("NCGR Blanking Tile Transfer, tile {}", tileNo);
+            for (int y = 0; y < 8; y++) {
+                Arrays.fill(out, offset + y * stride, offset + y * stride + 8, BLACK);
+            }
+            return;
+        }
+
+        boolean transparent = Configuration.isRenderTransparent();
+        int paletteBase = palNum << charBitDepth.bits;
+        int numColors = (palette != null) ? palette.getNumColors() : 0;
+        int[] colors = (palette != null) ? palette.getARGBTable() : null;
+        for (int y = 0; y < 8; y++) {
+            int dest = offset + y * stride;
+            for (int x = 0; x < 8; x++) {
+                int index = tile[(y << 3) + x] & 0xFF;
+                int colour = TRANSPARENT;
+                if ((index != 0 || !transparent) && index + paletteBase < numColors) {
+                    colour = colors[index + paletteBase];
+                }
+                out[dest + x] = colour;
+            }
+        }
+    }
+
     protected void readData(MemBuf.MemBufReader reader) {
         int nChars = getTileCount();
         int nPresentTiles = (int) charTiledataSize >> 5;
@@ -475,15 +543,13 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
                 //4-bit graphics: unpack
                 for (int j = 0; j < 32; j++) {
                     int data = reader.readByte()  & 0xff;
-                    logger.debug("NCGR Tile 4-byte pre-unpack=" + data);
                     tile[j * 2] = (byte) (data & 0xF);
-                    logger.debug("NCGR Tile 4-byte index=" + (j * 2)  + " lower endian=" +  tile[j * 2]);
                     tile[j * 2 + 1] = (byte) (data >> 4);
-                    logger.debug("NCGR Tile 4-byte index=" + (j * 2 + 1)  + " upper endian=" + tile[j * 2 + 1]);
                     charData[bufferIndex++] = (byte) data;
                 }
             }
         }
+        logger.debug("NCGR read {} tiles of {} bits per pixel", nChars, charBitDepth.bits);
     }
 
     @Override
@@ -491,11 +557,13 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
         this.sopc = this.numBlocks == 2;
 
         // Read the first section: CHAR (CHARacter data)
-        charMagic = reader.readString(4);  // reader position is now 0x10 (0x0)
+        int charPos = reader.getPosition();
+        charMagic = reader.readMagic();  // reader position is now 0x10 (0x0)
         if (!charMagic.equals("RAHC")) {
             throw new RuntimeException("Not a valid NCGR file.");
         }
         charSectionSize = reader.readUInt32(); // 0x14 (0x4)
+        traceSection(charMagic, charPos, charSectionSize);
 
         charTilesHeight = reader.readUInt16(); // 0x18 (0x8)
         charTilesWidth = reader.readUInt16();  // 0x1A (0xA)
@@ -519,8 +587,10 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
 
         // Read the second section: SOPC
         if (sopc && reader.getBuffer().length > 0) {
-            sopcMagic = reader.readString(4);  // (0x0)
+            int sopcPos = reader.getPosition();
+            sopcMagic = reader.readMagic();  // (0x0)
             sopcSectionSize = reader.readUInt32(); // (0x4)
+            traceSection(sopcMagic, sopcPos, sopcSectionSize);
             sopcUnknown1 = reader.readUInt32();    // (0x8)
             sopcCharSize = reader.readUInt16();    // (0xC)
             sopcNChars = reader.readUInt16();      // (0xE)
@@ -530,7 +600,11 @@ public class NCGR extends BaseNFSFile implements DrawableWithPalette {
     }
 
     public void recolorImage() throws NitroException {
-        setImagePixels();
+        if (imgIndices == null) {
+            setImagePixels();
+        } else {
+            renderImage(charBitDepth);
+        }
     }
 
     protected byte[] linealToHorizontal(byte[] lineal, int width, int height, int bpp, int tile_size) {
@@ -74,6 +74,8 @@ public class NCLR extends BaseNFSFile implements Drawable {
     protected Color[] colors;
     // List of Colors per Palette
     protected Color[][] paletteColours;
+    // List of Colors as packed ARGB, kept in step with colors for rendering
+    protected int[] argb;
 
     /**
      * Generate Header Data for Default Palette
@@ -100,7 +102,7 @@ public class NCLR extends BaseNFSFile implements Drawable {
      * @return byte data
      */
     protected static byte[] generateData(int palettes, int numColors) {
-        LOGGER.info("\nGenerating NCLR with " + palettes + " palettes and " + numColors + " colours");
+        LOGGER.debug("\nGenerating NCLR with {} palettes and {} colours", palettes, numColors);
         MemBuf dataBuf = MemBuf.create();
         MemBuf.MemBufWriter writer = dataBuf.writer();
         Color[] colors;
@@ -188,20 +190,29 @@ public class NCLR extends BaseNFSFile implements Drawable {
      * @throws NitroException NCLR object load failed
      */
     public NCLR(String path) throws NitroException {
-        super(RotomFormat.NCLR, path);
+        this(new File(path), readFile(new File(path)));
+    }
+
+    /**
+     * Generates an object representation of a NCLR file that has already been read into memory
+     *
+     * @param file the file the content was read from
+     * @param compData the possibly compressed content of the file
+     */
+    public NCLR(File file, ByteArrayEditableData compData) throws NitroException {
+        super(RotomFormat.NCLR, file, compData);
 
-        MemBuf buf = MemBuf.create();
-        buf.writer().write(data);
+        MemBuf buf = MemBuf.wrap(data);
         int fileSize = buf.writer().getPosition();
-        LOGGER.info("\nNCLR file, " + fileFullName + ", initialising with size of " + fileSize + " bytes");
+        LOGGER.debug("\nNCLR file, {}, initialising with size of {} bytes", fileFullName, fileSize);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
 
-        LOGGER.info("Reading NCLR file data");
+        LOGGER.debug("Reading NCLR file data");
         readFile(reader);
     }
 
@@ -215,18 +226,17 @@ public class NCLR extends BaseNFSFile implements Drawable {
     public NCLR(String name, ByteArrayEditableData compData) throws NitroException {
         super(RotomFormat.NCLR, name, compData);
 
-        MemBuf buf = MemBuf.create();
-        buf.writer().write(data);
+        MemBuf buf = MemBuf.wrap(data);
         int fileSize = buf.writer().getPosition();
-        LOGGER.info("\nNCLR obj, " + objName + ", initialising with size of " + fileSize + " bytes");
+        LOGGER.debug("\nNCLR obj, {}, initialising with size of {} bytes", objName, fileSize);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
 
-        LOGGER.info("Reading NCLR file data");
+        LOGGER.debug("Reading NCLR file data");
         readFile(reader);
     }
 
@@ -235,7 +245,7 @@ public class NCLR extends BaseNFSFile implements Drawable {
      *
      */
     protected NCLR(int paletteCount, int numColorsPerPalette) throws IOException {
-        this(null,
+        this((String) null,
                 new ByteArrayEditableData(
                         generateData(
                                 paletteCount,
@@ -246,13 +256,14 @@ public class NCLR extends BaseNFSFile implements Drawable {
     protected void readFile(MemBuf.MemBufReader reader) throws InvalidFileException {
         // reader position is now 0x10
         int indexPLTT = findBlockBySignature(reader,"PLTT");
-        LOGGER.info("PLTT Index: " + indexPLTT);
+        LOGGER.debug("PLTT Index: {}", indexPLTT);
         int indexPCMP = findBlockBySignature(reader,"PCMP");
-        LOGGER.info("PCMP Index: " + indexPCMP);
+        LOGGER.debug("PCMP Index: {}", indexPCMP);
 
         // 0x0 - palette data
-        String paletteMagic = reader.readString(4);
-        LOGGER.info("Palette Magic: " + paletteMagic);
+        int palettePos = reader.getPosition();
+        String paletteMagic = reader.readMagic();
+        LOGGER.debug("Palette Magic: {}", paletteMagic);
 
         if (!paletteMagic.equals("TTLP")) {
             throw new InvalidFileException("Not a valid NCLR or NCPR file.");
@@ -264,18 +275,19 @@ public class NCLR extends BaseNFSFile implements Drawable {
 
         // 0x4 - Section Size
         long paletteSectionSize = reader.readUInt32();
-        LOGGER.info("Palette Section Size: " + paletteSectionSize);
+        LOGGER.debug("Palette Section Size: {}", paletteSectionSize);
+        traceSection(paletteMagic, palettePos, paletteSectionSize);
 
         // 0x8 - Palette Bit Depth
         bitDepth = ColorFormat.valueOf(reader.readUInt16());
-        LOGGER.info("Palette Bit Depth: " + bitDepth.name());
+        LOGGER.debug("Palette Bit Depth: {}", bitDepth.name());
 
         int compNum = reader.readByte();
         reader.skip(1);
 
         // 0xC - Padding? Always ( 0x000000)
         int paletteUnknown1 = reader.readInt();
-        LOGGER.info("Padding: " + paletteUnknown1);
+        LOGGER.debug("Padding: {}", paletteUnknown1);
 
         // 0x10 - Palette Data Size
         long paletteLength = reader.readUInt32();
@@ -283,11 +295,11 @@ public class NCLR extends BaseNFSFile implements Drawable {
         if (paletteLength == 0 || paletteLength > paletteSectionSize) {
             paletteLength = paletteSectionSize - 0x18;
         }
-        LOGGER.info("Palette Byte Length: " + paletteLength);
+        LOGGER.debug("Palette Byte Length: {}", paletteLength);
 
         // 0x14 - Colors Per Palette
         long colorStartOffset = reader.readUInt32();
-        LOGGER.info("Color Offset: " + colorStartOffset);
+        LOGGER.debug("Color Offset: {}", colorStartOffset);
 
         // Initially set the number of colors based on bit depth.
         this.numColorsPerPalette = (bitDepth == ColorFormat.colors16)? 16 : 256;
@@ -302,11 +314,12 @@ public class NCLR extends BaseNFSFile implements Drawable {
                 this.numColorsPerPalette = this.numColors;
             }
         }
-        LOGGER.info("Colors Per Palette: " + numColorsPerPalette);
-        LOGGER.info("Total Number Of Colors: " + numColors);
+        LOGGER.debug("Colors Per Palette: {}", numColorsPerPalette);
+        LOGGER.debug("Total Number Of Colors: {}", numColors);
 
         // Initialise Colours
         this.colors = new Color[numColors];
+        this.argb = new int[numColors];
 
         if (numColors > 16 && numColors % numColorsPerPalette == 0){
             this.paletteColours = new Color[numColors/numColorsPerPalette][];
@@ -317,12 +330,13 @@ public class NCLR extends BaseNFSFile implements Drawable {
             this.paletteColours = new Color[1][];
             this.paletteColours[0] = new Color[numColors];
         }
-        LOGGER.info("Palette Count: " + paletteColours.length);
+        LOGGER.debug("Palette Count: {}", paletteColours.length);
         this.compNum = compNum;
 
         reader.setPosition(0x18 + colorStartOffset);
         for (int i = 0; i < colors.length; i++) {
             this.colors[i] = bgr555ToColor((byte) reader.readByte(), (byte) reader.readByte());
+            this.argb[i] = this.colors[i].getRGB();
             if (numColors > 16 && numColors % numColorsPerPalette == 0){
                 this.paletteColours[i/numColorsPerPalette][i%numColorsPerPalette] = this.colors[i];
             } else {
@@ -348,6 +362,29 @@ public class NCLR extends BaseNFSFile implements Drawable {
         return colors[index];
     }
 
+    /**
+     * Get a Color as packed ARGB
+     *
+     * @param index color number
+     * @return the color's ARGB value, or opaque black if there is no such color
+     */
+    public int getARGB(int index) {
+        if (index >= numColors) {
+            return 0xFF000000;
+        }
+        return argb[index];
+    }
+
+    /**
+     * Get all the Colors as packed ARGB, for rendering without going through Color objects. The array is shared with
+     * the palette and reflects later calls to setColor, so it must not be modified.
+     *
+     * @return the ARGB value of each color
+     */
+    public int[] getARGBTable() {
+        return argb;
+    }
+
     /**
      * Get a Color Palette
      *
@@ -461,6 +498,7 @@ public class NCLR extends BaseNFSFile implements Drawable {
      */
     public void setColor(int index, int color) {
         colors[index] = new Color(color);
+        argb[index] = colors[index].getRGB();
         paletteColours[index/numColorsPerPalette][index%numColorsPerPalette] = colors[index];
     }
 }
\ No newline at end of file
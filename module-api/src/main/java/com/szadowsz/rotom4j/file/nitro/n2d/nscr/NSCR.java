@@ -15,8 +15,8 @@ import com.szadowsz.rotom4j.utils.Configuration;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
@@ -41,18 +41,36 @@ public class NSCR extends BaseNFSFile implements DrawableWithGraphic {
     // image info
     private BufferedImage image;
 
+    // decoded tiles, indexed by map entry, and the state they were decoded from
+    private int[][] tileCache;
+    private int[][] paletteLookup;
+    private byte[][] cachedTiles;
+    private NCLR cachedPalette;
+    private int cachedCharBase;
+    private boolean cachedTransparent;
+
     public NSCR(String path) throws NitroException {
-        super(RotomFormat.NSCR, path);
+        this(new File(path), readFile(new File(path)));
+    }
 
-        MemBuf buf = MemBuf.create(data);
+    /**
+     * Generates an object representation of a NSCR file that has already been read into memory
+     *
+     * @param file the file the content was read from
+     * @param compData the possibly compressed content of the file
+     */
+    public NSCR(File file, ByteArrayEditableData compData) throws NitroException {
+        super(RotomFormat.NSCR, file, compData);
+
+        MemBuf buf = MemBuf.wrap(data);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
 
-        File[] ncgrs = new File(path).getParentFile().listFiles(f -> (f.getName().endsWith(".NCGR") ||
+        File[] ncgrs = file.getAbsoluteFile().getParentFile().listFiles(f -> (f.getName().endsWith(".NCGR") ||
                 f.getName().endsWith(".NCBR")) &&
                 f.getName().substring(0, f.getName().lastIndexOf('.')).equals(this.objName));
         if (ncgrs.length > 0) {
@@ -65,10 +83,10 @@ public class NSCR extends BaseNFSFile implements DrawableWithGraphic {
     public NSCR(String name, ByteArrayEditableData compData) throws NitroException {
         super(RotomFormat.NSCR, name, compData);
 
-        MemBuf buf = MemBuf.create(data);
+        MemBuf buf = MemBuf.wrap(data);
 
         MemBuf.MemBufReader reader = buf.reader();
-        readGenericNtrHeader(reader);
+        reader = readGenericNtrHeader(reader);
         int headerLength = reader.getPosition();
         reader.setPosition(0);
         this.headerData = reader.readTo(headerLength);
@@ -107,6 +125,7 @@ public class NSCR extends BaseNFSFile implements DrawableWithGraphic {
 
     public void setNCGR(NCGR ncgr) {
         this.ncgr = ncgr;
+        invalidateTileCache();
     }
 
     @Override
@@ -135,6 +154,7 @@ public class NSCR extends BaseNFSFile implements DrawableWithGraphic {
     public void recolorImage() throws NitroException {
         if (ncgr != null) {
             ncgr.recolorImage();
+            invalidateTileCache(); // the palette may have been edited in place
             createImage();
         }
     }
@@ -162,110 +182,146 @@ public class NSCR extends BaseNFSFile implements DrawableWithGraphic {
         }
     }
 
+    /**
+     * Get a tile of the screen as Color objects
+     *
+     * @param charBase the first character the screen's tile numbers count from
+     * @param x the tile column
+     * @param y the tile row
+     * @param out the 64 colors of the tile, after its palette and flips are applied
+     * @param tileNo if not null, receives the tile number of the map entry
+     * @param transparent whether colour 0 is left transparent
+     * @return 1 if the tile is outside of the screen, 0 otherwise
+     */
     public int nscrGetTileEx(int charBase, int x, int y, Color[] out, int[] tileNo, boolean transparent) {
-        if (ncgr == null) {
-            Arrays.fill(out, 0);
-            return 0;
-        }
-        NCLR nclr = ncgr.getNCLR();
-
         int nWidthTiles = width >> 3;
         int nHeightTiles = height >> 3;
-        if (x >= nWidthTiles || y >= nHeightTiles) {
-            Arrays.fill(out, 0);
-            return 1;
+        if (ncgr == null || x >= nWidthTiles || y >= nHeightTiles) {
+            Arrays.fill(out, new Color(TRANSPARENT, true));
+            return (ncgr == null) ? 0 : 1;
         }
 
-        NTFS tileData = mapData[y * nWidthTiles + x];
-        int tileNumber = tileData.nTile;
-        int transform = tileData.transform;
-        int paletteNumber = tileData.nPalette;
+        int entry = tileData[y * nWidthTiles + x];
         if (tileNo != null) {
-            tileNo[0] = tileNumber;
+            tileNo[0] = entry & 0x3FF;
+        }
+        int[] tile = getCachedTile(entry, charBase, transparent);
+        for (int i = 0; i < 64; i++) {
+            out[i] = new Color(tile[i], true);
         }
+        return 0;
+    }
 
-        // Get palette and base character
-        Color[] palette = nclr.getColorPalette(paletteNumber);
-        tileNumber -= charBase;
+    private static final int TILE_FLIPX = 1;
+    private static final int TILE_FLIPY = 2;
 
-        if (tileNumber >= ncgr.getTileCount() || tileNumber < 0) { // Let's just paint a transparent square
-            if (!transparent) {
-                Color bg = nclr.getColor(0);//ColorConvertFromDS(CREVERSE(nclr.colors[0])) | 0xFF000000;
-                Arrays.fill(out, bg);
-            } else {
-                Arrays.fill(out, 0);
-            }
-            return 0;
+    private static final int TRANSPARENT = 0;
+    private static final int BLACK = 0xFF000000;
+
+    private static final int PALVIEWER_SELMODE_2D = 1;
+
+    /**
+     * Forget the decoded tiles, so the next render decodes them again from the current graphic and palette
+     */
+    public void invalidateTileCache() {
+        tileCache = null;
+        paletteLookup = null;
+    }
+
+    /**
+     * Get the ARGB pixels of a map entry, decoding them on first use. Screens reuse the same tile, palette and flips
+     * in many cells, and the 16-bit map entry packs exactly those, so it is the cache key. The cache is dropped if
+     * the graphic, palette or render settings are not the ones it was built with.
+     *
+     * @param entry the 16-bit map entry
+     * @param charBase the first character the screen's tile numbers count from
+     * @param transparent whether colour 0 is left transparent
+     * @return the 64 ARGB pixels of the tile, which must not be modified
+     */
+    protected int[] getCachedTile(int entry, int charBase, boolean transparent) {
+        NCLR nclr = ncgr.getNCLR();
+        if (tileCache == null || cachedTiles != ncgr.getTiles() || cachedPalette != nclr ||
+                cachedCharBase != charBase || cachedTransparent != transparent) {
+            tileCache = new int[1 << 16][];
+            paletteLookup = new int[16][];
+            cachedTiles = ncgr.getTiles();
+            cachedPalette = nclr;
+            cachedCharBase = charBase;
+            cachedTransparent = transparent;
+        }
+        int[] tile = tileCache[entry];
+        if (tile == null) {
+            tile = decodeTile(entry, nclr, charBase, transparent);
+            tileCache[entry] = tile;
+        }
+        return tile;
+    }
+
+    private int[] decodeTile(int entry, NCLR nclr, int charBase, boolean transparent) {
+        int[] tile = new int[64];
+        int tileNumber = (entry & 0x3FF) - charBase;
+        if (tileNumber >= ncgr.getTileCount() || tileNumber < 0 || tileNumber >= cachedTiles.length) {
+            // Let's just paint a transparent square
+            Arrays.fill(tile, transparent ? TRANSPARENT : nclr.getARGB(0));
+            return tile;
         }
 
-        Color[] charbuf = new Color[64];
-        byte[] ncgrTile = ncgr.getTiles()[tileNumber];
+        int[] lookup = getPaletteLookup((entry >> 12) & 0xF, nclr, transparent);
+        byte[] ncgrTile = cachedTiles[tileNumber];
+        int srcXor = 0; // complement X and/or Y coordinates when copying
+        if ((entry & (TILE_FLIPX << 10)) != 0) srcXor ^= 7;
+        if ((entry & (TILE_FLIPY << 10)) != 0) srcXor ^= 7 << 3;
         for (int i = 0; i < 64; i++) {
-            if (ncgrTile[i] != 0 || !transparent) {
-                int colIndex = ncgrTile[i] & 0xFF;
-                Color c;
-                if (colIndex > 0 && colIndex < nclr.getNumColors()) {
-                    c = palette[colIndex];
-                } else if (colIndex == 0 && !transparent){
-                    c = nclr.getColor(0);
-                }  else {
-                    c = new Color(0);
-                }
-                charbuf[i] = c;
-            } else {
-                charbuf[i] = new Color(0);
-            }
+            tile[i] = lookup[ncgrTile[i ^ srcXor] & 0xFF];
         }
+        return tile;
+    }
 
-        // Copy out
-        if (transform == 0) {
-            // Copy straight
-            System.arraycopy(charbuf, 0, out, 0, charbuf.length);
-        } else {
-            // Complement X and/or Y coordinates when copying
-            int srcXor = 0;
-            if ((transform & TILE_FLIPX) != 0) srcXor ^= 7;
-            if ((transform & TILE_FLIPY) != 0) srcXor ^= 7 << 3;
-            for (int i = 0; i < 64; i++) {
-                int src = i ^ srcXor;
-                out[i] = charbuf[src];
+    private int[] getPaletteLookup(int paletteNumber, NCLR nclr, boolean transparent) {
+        int[] lookup = paletteLookup[paletteNumber];
+        if (lookup == null) {
+            Color[] palette = nclr.getColorPalette(paletteNumber);
+            lookup = new int[256];
+            Arrays.fill(lookup, BLACK);
+            lookup[0] = transparent ? TRANSPARENT : nclr.getARGB(0);
+            int colors = Math.min(palette.length, nclr.getNumColors());
+            for (int colIndex = 1; colIndex < colors; colIndex++) {
+                lookup[colIndex] = palette[colIndex].getRGB();
             }
+            paletteLookup[paletteNumber] = lookup;
         }
-        return 0;
+        return lookup;
     }
 
-
-    private static final int TILE_FLIPX = 1;
-    private static final int TILE_FLIPY = 2;
-
-    private static final int PALVIEWER_SELMODE_2D = 1;
-
-    public Color[] renderNscrBits(int tileBase, boolean transparent) {
-        image = new BufferedImage(width,height,TYPE_INT_ARGB);
-        Color[] bits = new Color[width * height];
-        Arrays.fill(bits, new Color(0));
+    /**
+     * Render the screen into its image, reusing the image when its size has not changed. The screen is left blank
+     * without a graphic, as are any rows past the end of its map.
+     *
+     * @param tileBase the first character the screen's tile numbers count from
+     * @param transparent whether colour 0 is left transparent
+     * @return the ARGB pixels of the image
+     */
+    public int[] renderNscrBits(int tileBase, boolean transparent) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, TYPE_INT_ARGB);
+        }
+        int[] bits = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (ncgr == null) {
+            Arrays.fill(bits, TRANSPARENT);
+            return bits;
+        }
 
         int tilesX = width >> 3;
-        int tilesY = height >> 3;
-
-        Color[] block = new Color[64];
+        int tilesY = Math.min(height >> 3, tileData.length / Math.max(tilesX, 1));
+        Arrays.fill(bits, tilesY * 8 * width, bits.length, TRANSPARENT); // the image may hold a longer map's rows
 
         for (int y = 0; y < tilesY; y++) {
-            int offsetY = y << 3;
             for (int x = 0; x < tilesX; x++) {
-                int offsetX = x << 3;
-
-                int[] tileNo = new int[1];
-                nscrGetTileEx(tileBase, x, y, block, tileNo, transparent);
+                int[] block = getCachedTile(tileData[y * tilesX + x], tileBase, transparent);
                 int dwDest = x * 8 + y * 8 * width;
 
                 for (int h = 0; h < 8; h++) {
-                    int src = h << 3;
-                    int dest = dwDest + h * width;
-                    System.arraycopy(block, src, bits, dest, 8/*32 bytes*/);
-                    for (int w = 0; w < 8; w++) {
-                        image.setRGB(offsetX+w, offsetY+h, block[src+w].getRGB());
-                    }
+                    System.arraycopy(block, h << 3, bits, dwDest + h * width, 8);
                 }
             }
         }
@@ -285,20 +341,19 @@ public class NSCR extends BaseNFSFile implements DrawableWithGraphic {
     protected void readFile(MemBuf.MemBufReader reader) throws NitroException {
         // headerSize ||| uint32_t offset = *(uint16_t *) (buffer + 0xC);
         // NnsG2dGetSectionByMagic
-        byte[] idBytes = reader.readBytes(4);
-        this.id = new String(idBytes, StandardCharsets.UTF_8); // *(uint32_t *) (buffer + offset);
+        int sectionPos = reader.getPosition();
+        this.id = reader.readMagic(); // *(uint32_t *) (buffer + offset);
         this.sectionSize = reader.readUInt32(); // uint32_t thisBlockSize = *(uint32_t *) (block + 4);
+        traceSection(id, sectionPos, sectionSize);
         // NnsG2dFindBlockBySignature
         this.width = reader.readUInt16(); // *(uint16_t *) (scrn + 0x0);
         this.height = reader.readUInt16(); // *(uint16_t *) (scrn + 0x2);
         this.padding = reader.readUInt32(); //  *(uint32_t *) (scrn + 0x4);
         this.dataSize = reader.readUInt32(); // int tileDataSize = *(uint32_t *) (sChar + 0x10);
-        this.tileData = new int[(int) dataSize / 2]; // 0xC -> 0xC + dwDataSize
-        this.mapData = new NTFS[(int) dataSize / 2]; // better formatted data
-
         // datasize is in bytes, we want them as uint16s so we take two bytes at a time
+        this.tileData = reader.readU16Array((int) dataSize / 2); // 0xC -> 0xC + dwDataSize
+        this.mapData = new NTFS[tileData.length]; // better formatted data
         for (int i = 0; i < this.tileData.length; i++) {
-            this.tileData[i] = reader.readUInt16();
             this.mapData[i] = createMapInfo(this.tileData[i]);
         }
         this.highestIndex = computeHighestCharacter();
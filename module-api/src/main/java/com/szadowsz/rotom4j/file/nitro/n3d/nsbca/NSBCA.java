@@ -7,10 +7,16 @@ import com.szadowsz.rotom4j.exception.NitroException;
 import com.szadowsz.rotom4j.file.RotomFormat;
 import com.szadowsz.rotom4j.file.nitro.BaseNFSFile;
 
+import java.io.File;
+
 public class NSBCA extends BaseNFSFile {
 
     public NSBCA(String filePath) throws InvalidFileException {
-        super(RotomFormat.NSBCA, filePath);
+        this(new File(filePath), readFile(new File(filePath)));
+    }
+
+    public NSBCA(File file, ByteArrayEditableData compData) throws InvalidFileException {
+        super(RotomFormat.NSBCA, file, compData);
     }
 
     public NSBCA(String name, ByteArrayEditableData compData) throws InvalidFileException {
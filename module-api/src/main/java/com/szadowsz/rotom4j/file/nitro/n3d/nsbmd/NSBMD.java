@@ -7,10 +7,16 @@ import com.szadowsz.rotom4j.exception.NitroException;
 import com.szadowsz.rotom4j.file.RotomFormat;
 import com.szadowsz.rotom4j.file.nitro.BaseNFSFile;
 
+import java.io.File;
+
 public class NSBMD extends BaseNFSFile {
 
     public NSBMD(String filePath) throws InvalidFileException {
-        super(RotomFormat.NSBMD, filePath);
+        this(new File(filePath), readFile(new File(filePath)));
+    }
+
+    public NSBMD(File file, ByteArrayEditableData compData) throws InvalidFileException {
+        super(RotomFormat.NSBMD, file, compData);
     }
 
     public NSBMD(String name, ByteArrayEditableData compData) throws InvalidFileException {
@@ -1,5 +1,6 @@
 package com.szadowsz.rotom4j.utils;
 
+import com.szadowsz.rotom4j.file.nitro.ParseTraceListener;
 import com.szadowsz.rotom4j.ref.RomFormat;
 
 public class Configuration {
@@ -14,6 +15,8 @@ public class Configuration {
 
     private static RomFormat romFormat = RomFormat.FINAL;
 
+    private static ParseTraceListener parseTraceListener;
+
     private Configuration(){}
 
 
@@ -37,6 +40,10 @@ public class Configuration {
         return renderWithBackground;
     }
 
+    public static synchronized ParseTraceListener getParseTraceListener() {
+        return parseTraceListener;
+    }
+
     public static synchronized void setShowCellBounds(boolean toggle) {
         showCellBounds = toggle;
     }
@@ -57,4 +64,13 @@ public class Configuration {
         renderWithBackground = toggle;
     }
 
+    /**
+     * Set the listener told about each section of the Nitro files parsed from now on, or null to stop tracing
+     *
+     * @param listener the listener, called on the parsing thread
+     */
+    public static synchronized void setParseTraceListener(ParseTraceListener listener) {
+        parseTraceListener = listener;
+    }
+
 }
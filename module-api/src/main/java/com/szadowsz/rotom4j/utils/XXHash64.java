@@ -0,0 +1,94 @@
+package com.szadowsz.rotom4j.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The 64 bit xxHash, a fast non-cryptographic hash used to identify file contents.
+ */
+public final class XXHash64 {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private XXHash64() {
+    }
+
+    public static long hash(byte[] data) {
+        return hash(data, 0, data.length, 0);
+    }
+
+    /**
+     * Hash part of an array
+     *
+     * @param data the bytes to hash
+     * @param offset the offset of the first byte to hash
+     * @param length the number of bytes to hash
+     * @param seed the seed of the hash
+     * @return the 64 bit hash
+     */
+    public static long hash(byte[] data, int offset, int length, long seed) {
+        int pos = offset;
+        int end = offset + length;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            for (int limit = end - 32; pos <= limit; pos += 32) {
+                v1 = round(v1, (long) LONG_LE.get(data, pos));
+                v2 = round(v2, (long) LONG_LE.get(data, pos + 8));
+                v3 = round(v3, (long) LONG_LE.get(data, pos + 16));
+                v4 = round(v4, (long) LONG_LE.get(data, pos + 24));
+            }
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + PRIME5;
+        }
+        h += length;
+
+        for (; pos + 8 <= end; pos += 8) {
+            h ^= round(0, (long) LONG_LE.get(data, pos));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+        }
+        if (pos + 4 <= end) {
+            h ^= ((int) INT_LE.get(data, pos) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            pos += 4;
+        }
+        for (; pos < end; pos++) {
+            h ^= (data[pos] & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long merge(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+}
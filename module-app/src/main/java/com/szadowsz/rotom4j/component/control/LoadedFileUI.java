@@ -52,7 +52,7 @@ public class LoadedFileUI extends ControlConstants {
 
     public static void createNarcUI(RotomGuiImpl gui) {
         Function<String, String> chooser = p -> FileChooser.selectNarcFile(gui.getSketch(), p, selectEvoFile);
-        FileLoader<NARC> parser = NARC::fromFile;
+        FileLoader<NARC> parser = NARC::map;
         FileConsumer<NARC> creator = f -> NarcManager.getInstance().registerNarc(gui, f);
         createUI(chooser, parser, creator);
     }
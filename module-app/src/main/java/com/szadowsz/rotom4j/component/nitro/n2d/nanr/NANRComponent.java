@@ -29,6 +29,7 @@ public class NANRComponent extends R4JComponent<NANR> {
     private final String ANI_SLIDER = "animations";
 
     private int currentFrame;
+    private NANR.Playback playback;
 
     /**
      * Default Constructor
@@ -113,15 +114,39 @@ public class NANRComponent extends R4JComponent<NANR> {
 
     protected void initComponents() {
         children.add(new NitroPreview(gui, path + "/" + PREVIEW_COMP, this, data));
-        children.add(new RMediaControl(gui,path + "/" + MEDIA_COMP,this));
+        RMediaControl media = new RMediaControl(gui,path + "/" + MEDIA_COMP,this);
+        media.registerSkipAction(true, this::nextFrame);
+        media.registerSkipAction(false, () -> {
+            try {
+                changeAnimation();
+            } catch (NitroException e) {
+                LOGGER.warn("Failed to restart animation", e);
+            }
+        });
+        children.add(media);
         children.add(createAnimationsSlider());
         children.add(createZoom());
         children.add(new NCERFolder(gui, path + "/" + IMAGE_COMP, this, data.getNCER()));
     }
 
     protected void changeAnimation() throws NitroException {
-        currentFrame = 0;
-        PImage pImage = resizeImage(data.getImage(getCurrentAnimation(),0));
+        playback = data.playback(getCurrentAnimation());
+        currentFrame = playback.getTick();
+        PImage pImage = resizeImage(playback.nextFrame());
+        ((NitroPreview) findChildByName(PREVIEW_COMP)).loadImage(pImage);
+
+        resetBuffer();
+    }
+
+    /**
+     * Show the next tick of the current animation
+     */
+    public void nextFrame() {
+        if (playback == null || playback.getSequence() != getCurrentAnimation()) {
+            playback = data.playback(getCurrentAnimation());
+        }
+        currentFrame = playback.getTick();
+        PImage pImage = resizeImage(playback.nextFrame());
         ((NitroPreview) findChildByName(PREVIEW_COMP)).loadImage(pImage);
 
         resetBuffer();
@@ -130,6 +155,7 @@ public class NANRComponent extends R4JComponent<NANR> {
 
     @Override
     public void recolorImage() throws NitroException {
+        data.clearFrameCache(); // the palette may have been edited in place
         PImage pImage = resizeImage(data.getImage(getCurrentAnimation(),currentFrame));
         ((NitroPreview) findChildByName(PREVIEW_COMP)).loadImage(pImage);
 
@@ -4,6 +4,8 @@ import com.szadowsz.gui.RotomGui;
 import com.szadowsz.gui.component.group.RGroup;
 import com.szadowsz.gui.component.group.RGroupDrawable;
 import com.szadowsz.gui.component.input.toggle.ROptionToggle;
+import com.szadowsz.gui.input.mouse.RActivateByType;
+import com.szadowsz.gui.input.mouse.RMouseAction;
 import com.szadowsz.gui.layout.RDirection;
 import com.szadowsz.gui.layout.RLayoutBase;
 import com.szadowsz.gui.layout.RLinearLayout;
@@ -39,6 +41,16 @@ public class RMediaControl extends RGroupDrawable {
         children.add(new RLoop(gui, path + "/" + LOOP, this, false));
     }
 
+    /**
+     * Add a function to one of the skip buttons
+     *
+     * @param forwards true for the skip forward button, false for skip back
+     * @param action the action lambda to do when the button is released
+     */
+    public void registerSkipAction(boolean forwards, RMouseAction action) {
+        ((RSkip) findChildByName(forwards ? SKIP_FORWARD : SKIP_BACK)).registerAction(RActivateByType.RELEASE, action);
+    }
+
     @Override
     public void setLayout(RLayoutBase layout) {
         // NOOP